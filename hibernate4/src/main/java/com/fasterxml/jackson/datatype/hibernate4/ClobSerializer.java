@@ -0,0 +1,76 @@
+package com.fasterxml.jackson.datatype.hibernate4;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Clob;
+import java.sql.SQLException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Serializer for {@link Clob} (and {@link java.sql.NClob}) values: content is
+ * streamed from {@link Clob#getCharacterStream()} into a JSON String, written in
+ * chunks, so that the whole LOB is never held in memory.
+ *<p>
+ * If content can not be read (for example, because LOB is only a locator for a
+ * transaction that has ended), null is written, unless
+ * {@link Hibernate4Module.Feature#FAIL_ON_UNREADABLE_LOBS} is enabled.
+ *
+ * @since 2.9.7
+ */
+public class ClobSerializer extends StdSerializer<Clob>
+{
+    private static final long serialVersionUID = 1L;
+
+    protected final boolean _failOnUnreadable;
+
+    public ClobSerializer(boolean failOnUnreadable) {
+        super(Clob.class);
+        _failOnUnreadable = failOnUnreadable;
+    }
+
+    @Override
+    public boolean isEmpty(SerializerProvider provider, Clob value) {
+        try {
+            return (value == null) || (value.length() == 0L);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void serialize(Clob value, JsonGenerator g, SerializerProvider provider) throws IOException
+    {
+        final long length;
+        final Reader r;
+        try {
+            length = value.length();
+            r = value.getCharacterStream();
+        } catch (SQLException e) {
+            if (_failOnUnreadable) {
+                throw JsonMappingException.from(g, "Unable to read Clob content", e);
+            }
+            provider.defaultSerializeNull(g);
+            return;
+        }
+        try {
+            try {
+                g.writeString(r, (length <= Integer.MAX_VALUE) ? (int) length : -1);
+            } catch (UnsupportedOperationException e) {
+                // generator can not write Strings in chunks (like TokenBuffer): read it all
+                StringBuilder sb = new StringBuilder();
+                char[] buffer = new char[4000];
+                int count;
+                while ((count = r.read(buffer)) >= 0) {
+                    sb.append(buffer, 0, count);
+                }
+                g.writeString(sb.toString());
+            }
+        } finally {
+            r.close();
+        }
+    }
+}
@@ -78,7 +78,37 @@ public class Hibernate4Module extends Module
          *
          * @since 2.8.2
          */
-        REPLACE_PERSISTENT_COLLECTIONS(false)
+        REPLACE_PERSISTENT_COLLECTIONS(false),
+
+        /**
+         * If FORCE_LAZY_LOADING is false, this feature serializes uninitialized
+         * {@link org.hibernate.collection.spi.PersistentCollection}s as their number
+         * of elements (a JSON Number) rather than <code>null</code>. Elements are
+         * counted by the size query of the collection persister (same as used for
+         * extra-lazy collections), so collection is not initialized.
+         * <p>
+         * Collections not attached to an open session can only be counted if a
+         * {@link org.hibernate.SessionFactory} is provided to the module, and the
+         * mapper uses {@link HibernateSerializerProvider}.
+         * <p>
+         * Default value is false.
+         *
+         * @since 2.9.7
+         */
+        SERIALIZE_SIZE_FOR_LAZY_NOT_LOADED_COLLECTIONS(false),
+
+        /**
+         * Feature that determines what happens when content of a {@link java.sql.Blob}
+         * or {@link java.sql.Clob} can not be read during serialization (for example,
+         * because it is a locator of a transaction that has ended): if enabled,
+         * serialization fails; if disabled, LOB is written as null, like uninitialized
+         * lazy values are.
+         * <p>
+         * Default value is false.
+         *
+         * @since 2.9.7
+         */
+        FAIL_ON_UNREADABLE_LOBS(false)
         ;
 
         final boolean _defaultState;
@@ -139,6 +169,18 @@ public class Hibernate4Module extends Module
         this(mapping, null);
     }
 
+    /**
+     * Constructor for a module that loads lazy collections of detached entities
+     * (with {@link Feature#FORCE_LAZY_LOADING}) using temporary sessions of given
+     * factory: one session per collection, unless the mapper uses
+     * {@link HibernateSerializerProvider}, in which case one read-only session is
+     * shared by all collections loaded during a serialization call:
+     *<pre>
+     *  ObjectMapper mapper = new ObjectMapper()
+     *      .registerModule(new Hibernate4Module(sessionFactory));
+     *  mapper.setSerializerProvider(new HibernateSerializerProvider());
+     *</pre>
+     */
     public Hibernate4Module(SessionFactory sessionFactory) {
         this(null, sessionFactory);
     }
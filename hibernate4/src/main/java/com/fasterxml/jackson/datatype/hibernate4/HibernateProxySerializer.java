@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import com.fasterxml.jackson.core.*;
 import com.fasterxml.jackson.databind.BeanProperty;
@@ -48,8 +49,14 @@ public class HibernateProxySerializer
     /**
      * For efficient serializer lookup, let's use this; most
      * of the time, there's just one type and one serializer.
+     *<p>
+     * Instances are shared by all threads using the mapper: map is immutable, and
+     * updated using compare-and-set so that concurrent additions are not lost.
      */
-    protected PropertySerializerMap _dynamicSerializers;
+    protected volatile PropertySerializerMap _dynamicSerializers;
+
+    private final static AtomicReferenceFieldUpdater<HibernateProxySerializer, PropertySerializerMap> DYNAMIC_SERIALIZERS
+        = AtomicReferenceFieldUpdater.newUpdater(HibernateProxySerializer.class, PropertySerializerMap.class, "_dynamicSerializers");
     
     /*
     /**********************************************************************
@@ -81,6 +88,9 @@ public class HibernateProxySerializer
 
     @Override
     public JsonSerializer<?> createContextual(SerializerProvider prov, BeanProperty property) {
+        if (property == _property) {
+            return this;
+        }
         return new HibernateProxySerializer(this._forceLazyLoading, _serializeIdentifier,
                 _mapping, property);
     }    
@@ -161,12 +171,23 @@ public class HibernateProxySerializer
         /* 18-Oct-2013, tatu: Whether this is for the primary property or secondary is
          *   really anyone's guess at this point; proxies can exist at any level?
          */
-        PropertySerializerMap.SerializerAndMapResult result =
-                _dynamicSerializers.findAndAddPrimarySerializer(type, provider, _property);
-        if (_dynamicSerializers != result.map) {
-            _dynamicSerializers = result.map;
+        PropertySerializerMap map = _dynamicSerializers;
+        JsonSerializer<Object> ser = map.serializerFor(type);
+        if (ser != null) {
+            return ser;
+        }
+        PropertySerializerMap.SerializerAndMapResult result = map.findAndAddPrimarySerializer(type, provider, _property);
+        ser = result.serializer;
+        PropertySerializerMap newMap = result.map;
+        // another thread may have added an entry meanwhile: retry on top of its map
+        while ((newMap != map) && !DYNAMIC_SERIALIZERS.compareAndSet(this, map, newMap)) {
+            map = _dynamicSerializers;
+            if (map.serializerFor(type) != null) {
+                break;
+            }
+            newMap = map.newWith(type, ser);
         }
-        return result.serializer;
+        return ser;
     }
 
     /**
@@ -0,0 +1,121 @@
+package com.fasterxml.jackson.datatype.hibernate4;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.DefaultSerializerProvider;
+import com.fasterxml.jackson.databind.ser.SerializerFactory;
+
+/**
+ * {@link DefaultSerializerProvider} that scopes Hibernate resources to a single
+ * serialization call: the {@link LoadingSession} used to initialize lazy collections
+ * of detached entities is opened at most once per call, and closed when the call
+ * completes.
+ *<p>
+ * Only useful if {@link Hibernate4Module} is given a {@link org.hibernate.SessionFactory};
+ * has to be set explicitly, since the module does not change the configuration
+ * of the mapper it is registered with:
+ *<pre>
+ *  mapper.setSerializerProvider(new HibernateSerializerProvider());
+ *</pre>
+ * Without it, a session is opened for each collection to load.
+ *
+ * @since 2.9.7
+ */
+public class HibernateSerializerProvider extends DefaultSerializerProvider
+{
+    private static final long serialVersionUID = 1L;
+
+    public HibernateSerializerProvider() { super(); }
+
+    protected HibernateSerializerProvider(HibernateSerializerProvider src) { super(src); }
+
+    protected HibernateSerializerProvider(SerializerProvider src, SerializationConfig config,
+            SerializerFactory f) {
+        super(src, config, f);
+    }
+
+    @Override
+    public DefaultSerializerProvider copy()
+    {
+        if (getClass() != HibernateSerializerProvider.class) {
+            return super.copy();
+        }
+        return new HibernateSerializerProvider(this);
+    }
+
+    @Override
+    public HibernateSerializerProvider createInstance(SerializationConfig config, SerializerFactory jsf) {
+        return new HibernateSerializerProvider(this, config, jsf);
+    }
+
+    /*
+    /**********************************************************************
+    /* Serialization calls, scoping loading session
+    /**********************************************************************
+     */
+
+    @Override
+    public void serializeValue(JsonGenerator gen, Object value) throws IOException
+    {
+        boolean success = false;
+        try {
+            super.serializeValue(gen, value);
+            success = true;
+        } finally {
+            _closeLoadingSession(success);
+        }
+    }
+
+    @Override
+    public void serializeValue(JsonGenerator gen, Object value, JavaType rootType) throws IOException
+    {
+        boolean success = false;
+        try {
+            super.serializeValue(gen, value, rootType);
+            success = true;
+        } finally {
+            _closeLoadingSession(success);
+        }
+    }
+
+    @Override
+    public void serializeValue(JsonGenerator gen, Object value, JavaType rootType,
+            JsonSerializer<Object> ser) throws IOException
+    {
+        boolean success = false;
+        try {
+            super.serializeValue(gen, value, rootType, ser);
+            success = true;
+        } finally {
+            _closeLoadingSession(success);
+        }
+    }
+
+    @Override
+    public void serializePolymorphic(JsonGenerator gen, Object value, JavaType rootType,
+            JsonSerializer<Object> valueSer, TypeSerializer typeSer) throws IOException
+    {
+        boolean success = false;
+        try {
+            super.serializePolymorphic(gen, value, rootType, valueSer, typeSer);
+            success = true;
+        } finally {
+            _closeLoadingSession(success);
+        }
+    }
+
+    protected void _closeLoadingSession(boolean success)
+    {
+        LoadingSession loading = (LoadingSession) getAttribute(LoadingSession.class);
+        if (loading != null) {
+            setAttribute(LoadingSession.class, null);
+            loading.close(success);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.fasterxml.jackson.datatype.hibernate4;
 
+import java.sql.Blob;
+import java.sql.Clob;
+
 import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonSerializer;
@@ -15,6 +18,14 @@ public class HibernateSerializers extends Serializers.Base
     protected final boolean _serializeIdentifiers;
     protected final Mapping _mapping;
 
+    /**
+     * Serializers for LOB values, streaming their content.
+     *
+     * @since 2.9.7
+     */
+    protected final BlobSerializer _blobSerializer;
+    protected final ClobSerializer _clobSerializer;
+
     public HibernateSerializers(int features) {
         this(null, features);
     }
@@ -24,6 +35,9 @@ public class HibernateSerializers extends Serializers.Base
         _forceLoading = Feature.FORCE_LAZY_LOADING.enabledIn(features);
         _serializeIdentifiers = Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS.enabledIn(features);
         _mapping = mapping;
+        boolean failOnUnreadableLobs = Feature.FAIL_ON_UNREADABLE_LOBS.enabledIn(features);
+        _blobSerializer = new BlobSerializer(failOnUnreadableLobs);
+        _clobSerializer = new ClobSerializer(failOnUnreadableLobs);
     }
 
     @Override
@@ -32,8 +46,17 @@ public class HibernateSerializers extends Serializers.Base
     {
         Class<?> raw = type.getRawClass();
         if (HibernateProxy.class.isAssignableFrom(raw)) {
+            // New instance for each lookup: it is cached by the serializer cache of the
+            // mapper, along with serializers it resolves for the configuration of the mapper;
+            // instances of Serializers are shared by copies of the mapper.
             return new HibernateProxySerializer(_forceLoading, _serializeIdentifiers, _mapping);
         }
+        if (Blob.class.isAssignableFrom(raw)) {
+            return _blobSerializer;
+        }
+        if (Clob.class.isAssignableFrom(raw)) {
+            return _clobSerializer;
+        }
         return null;
     }
 }
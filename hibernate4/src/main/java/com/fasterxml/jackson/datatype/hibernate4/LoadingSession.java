@@ -0,0 +1,154 @@
+package com.fasterxml.jackson.datatype.hibernate4;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.collection.internal.AbstractPersistentCollection;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.transaction.spi.TransactionFactory;
+
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+/**
+ * Read-only {@link Session} used to initialize lazy collections of detached
+ * entities. A single instance (and so a single session and transaction) is shared
+ * by all collections initialized during one serialization call: it is stored as a
+ * per-call attribute of the {@link SerializerProvider}, and closed by
+ * {@link HibernateSerializerProvider} once the call completes.
+ *
+ * @since 2.9.7
+ */
+public class LoadingSession
+{
+    /**
+     * Whether transactions of a {@link SessionFactory} are managed through JTA;
+     * only depends on the factory so it is only computed once per factory.
+     */
+    private final static Map<SessionFactory, Boolean> _jtaFactories
+        = Collections.synchronizedMap(new WeakHashMap<SessionFactory, Boolean>());
+
+    protected final SessionFactory _sessionFactory;
+
+    protected Session _session;
+
+    protected Transaction _transaction;
+
+    protected LoadingSession(SessionFactory sessionFactory) {
+        _sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Accessor for the loading session of the serialization call given provider is
+     * used for, if any; one is created if provider closes it when the call completes.
+     *
+     * @return Loading session to use, or null if provider does not define a
+     *    serialization scope (in which case caller has to manage a session itself)
+     */
+    public static LoadingSession find(SerializerProvider provider, SessionFactory sessionFactory)
+    {
+        if (provider == null) {
+            return null;
+        }
+        LoadingSession loading = (LoadingSession) provider.getAttribute(LoadingSession.class);
+        if ((loading == null) && (provider instanceof HibernateSerializerProvider)) {
+            loading = new LoadingSession(sessionFactory);
+            provider.setAttribute(LoadingSession.class, loading);
+        }
+        return loading;
+    }
+
+    /**
+     * Helper method for checking whether transactions of given factory are
+     * JTA-managed, in which case no transaction is to be started for loading.
+     */
+    public static boolean isJTA(SessionFactory sessionFactory)
+    {
+        Boolean jta = _jtaFactories.get(sessionFactory);
+        if (jta == null) {
+            jta = ((SessionFactoryImplementor) sessionFactory).getServiceRegistry()
+                    .getService(TransactionFactory.class)
+                    .compatibleWithJtaSynchronization();
+            _jtaFactories.put(sessionFactory, jta);
+        }
+        return jta.booleanValue();
+    }
+
+    /**
+     * Method for opening a read-only session for loading, and starting its transaction
+     * (unless transactions are JTA-managed).
+     */
+    public static Session openSession(SessionFactory sessionFactory)
+    {
+        Session session = sessionFactory.openSession();
+        session.setDefaultReadOnly(true);
+        session.setFlushMode(FlushMode.MANUAL);
+        if (!isJTA(sessionFactory)) {
+            session.beginTransaction();
+        }
+        return session;
+    }
+
+    /**
+     * Method for initializing given collection; if it is attached to an open session
+     * that session is used, otherwise it is attached to the loading session.
+     */
+    public void initialize(PersistentCollection coll)
+    {
+        if (coll.wasInitialized()) {
+            return;
+        }
+        SessionImplementor current = ((AbstractPersistentCollection) coll).getSession();
+        if ((current == null) || !current.isOpen()) {
+            SessionImplementor session = (SessionImplementor) session();
+            session.getPersistenceContext().addUninitializedDetachedCollection(
+                    ((SessionFactoryImplementor) _sessionFactory).getCollectionPersister(coll.getRole()),
+                    coll);
+            coll.setCurrentSession(session);
+        }
+        Hibernate.initialize(coll);
+    }
+
+    /**
+     * Method called once serialization call completes, to end the transaction
+     * and close the session, if one was opened.
+     */
+    public void close(boolean success)
+    {
+        Session session = _session;
+        if (session == null) {
+            return;
+        }
+        _session = null;
+        try {
+            if (_transaction != null && _transaction.isActive()) {
+                if (success) {
+                    _transaction.commit();
+                } else {
+                    _transaction.rollback();
+                }
+            }
+        } finally {
+            _transaction = null;
+            session.close();
+        }
+    }
+
+    protected Session session()
+    {
+        if (_session == null) {
+            _session = openSession(_sessionFactory);
+            if (!isJTA(_sessionFactory)) {
+                _transaction = _session.getTransaction();
+            }
+        }
+        return _session;
+    }
+}
@@ -10,26 +10,20 @@ import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
 import com.fasterxml.jackson.databind.util.NameTransformer;
 import com.fasterxml.jackson.datatype.hibernate4.Hibernate4Module.Feature;
 
-import org.hibernate.FlushMode;
 import org.hibernate.Hibernate;
+import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.collection.internal.AbstractPersistentCollection;
 import org.hibernate.collection.spi.PersistentCollection;
-import org.hibernate.engine.spi.PersistenceContext;
 import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.engine.spi.SessionImplementor;
-import org.hibernate.mapping.Bag;
 
 import javax.persistence.*;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Wrapper serializer used to handle aspects of lazy loading that can be used
@@ -164,7 +158,10 @@ public class PersistentCollectionSerializer
             return true;
         }
         if (value instanceof PersistentCollection) {
-            Object lazy = findLazyValue((PersistentCollection) value);
+            Object lazy = findLazyValue((PersistentCollection) value, null);
+            if (lazy instanceof Integer) { // element count
+                return ((Integer) lazy).intValue() == 0;
+            }
             return (lazy == null) || _serializer.isEmpty(lazy);
         }
         return _serializer.isEmpty(value);
@@ -177,7 +174,10 @@ public class PersistentCollectionSerializer
             return true;
         }
         if (value instanceof PersistentCollection) {
-            Object lazy = findLazyValue((PersistentCollection) value);
+            Object lazy = _resolveLazyValue((PersistentCollection) value, provider, true);
+            if (lazy instanceof Integer) { // element count
+                return ((Integer) lazy).intValue() == 0;
+            }
             return (lazy == null) || _serializer.isEmpty(provider, lazy);
         }
         return _serializer.isEmpty(provider, value);
@@ -247,20 +247,21 @@ public class PersistentCollectionSerializer
         throws IOException
     {
         if (value instanceof PersistentCollection) {
-            value = findLazyValue((PersistentCollection) value);
+            value = _resolveLazyValue((PersistentCollection) value, provider, false);
             if (value == null) {
                 provider.defaultSerializeNull(jgen);
                 return;
             }
+            if (value instanceof Integer) { // element count, written without type id
+                jgen.writeNumber(((Integer) value).intValue());
+                return;
+            }
         }
         if (_serializer == null) { // sanity check...
             throw JsonMappingException.from(jgen, "PersistentCollection does not have serializer set");
         }
 
-        if (Feature.REPLACE_PERSISTENT_COLLECTIONS.enabledIn(_features)) {
-            value = convertToJavaCollection(value); // Strip PersistentCollection
-        }
-
+        // no type id written, so nothing to replace
         _serializer.serialize(value, jgen, provider);
     }
 
@@ -270,18 +271,23 @@ public class PersistentCollectionSerializer
         throws IOException
     {
         if (value instanceof PersistentCollection) {
-            value = findLazyValue((PersistentCollection) value);
+            value = _resolveLazyValue((PersistentCollection) value, provider, false);
             if (value == null) {
                 provider.defaultSerializeNull(jgen);
                 return;
             }
+            if (value instanceof Integer) { // element count, written without type id
+                jgen.writeNumber(((Integer) value).intValue());
+                return;
+            }
         }
         if (_serializer == null) { // sanity check...
             throw JsonMappingException.from(jgen, "PersistentCollection does not have serializer set");
         }
 
-        if (Feature.REPLACE_PERSISTENT_COLLECTIONS.enabledIn(_features)) {
-            value = convertToJavaCollection(value); // Strip PersistentCollection
+        // Only type id of the JDK container is needed; collection itself is written as is
+        if (Feature.REPLACE_PERSISTENT_COLLECTIONS.enabledIn(_features) && (value instanceof PersistentCollection)) {
+            typeSer = PersistentCollectionTypeSerializer.construct(typeSer, value);
         }
 
         _serializer.serializeWithType(value, jgen, provider, typeSer);
@@ -300,31 +306,123 @@ public class PersistentCollectionSerializer
         return null;
     }
     
+    /**
+     * Helper method for resolving value to write for given collection, using
+     * {@link #findLazyValue(PersistentCollection, SerializerProvider)}. If collection
+     * remains uninitialized (value being its element count, or null), value resolved
+     * for the emptiness check is kept as a per-call attribute of the provider, and
+     * reused by the serialization call that follows it: this way elements are only
+     * counted once per property, even with {@code JsonInclude.Include.NON_EMPTY}.
+     *
+     * @param emptyCheck Whether value is resolved by {@link #isEmpty}, and is to
+     *    be kept for the following serialization call
+     *
+     * @since 2.9.7
+     */
+    protected Object _resolveLazyValue(PersistentCollection coll, SerializerProvider provider, boolean emptyCheck) {
+        if ((provider == null) || coll.wasInitialized()) {
+            return findLazyValue(coll, provider);
+        }
+        ResolvedLazyValue resolved = (ResolvedLazyValue) provider.getAttribute(ResolvedLazyValue.class);
+        if ((resolved != null) && (resolved.collection == coll)) {
+            if (!emptyCheck) {
+                provider.setAttribute(ResolvedLazyValue.class, null);
+            }
+            return resolved.value;
+        }
+        Object value = findLazyValue(coll, provider);
+        if (emptyCheck && !coll.wasInitialized()) {
+            provider.setAttribute(ResolvedLazyValue.class, new ResolvedLazyValue(coll, value));
+        }
+        return value;
+    }
+
+    /**
+     * @deprecated Since 2.9.7 use {@link #findLazyValue(PersistentCollection, SerializerProvider)}
+     */
+    @Deprecated
     protected Object findLazyValue(PersistentCollection coll) {
+        return findLazyValue(coll, null);
+    }
+
+    /**
+     * @since 2.9.7
+     */
+    protected Object findLazyValue(PersistentCollection coll, SerializerProvider provider) {
         // If lazy-loaded, not yet loaded, may serialize as null?
         if (!Feature.FORCE_LAZY_LOADING.enabledIn(_features) && !coll.wasInitialized()) {
+            if (Feature.SERIALIZE_SIZE_FOR_LAZY_NOT_LOADED_COLLECTIONS.enabledIn(_features)) {
+                int size = loadSize(coll, provider);
+                if (size >= 0) {
+                    return Integer.valueOf(size);
+                }
+            }
             return null;
         }
 
-        if(_sessionFactory != null) {
-            Session session = openTemporarySessionForLoading(coll);
-            initializeCollection(coll, session);
+        if ((_sessionFactory != null) && !coll.wasInitialized()) {
+            // Share one loading session for the whole serialization call, if possible
+            LoadingSession loading = LoadingSession.find(provider, _sessionFactory);
+            if (loading != null) {
+                loading.initialize(coll);
+            } else {
+                Session session = openTemporarySessionForLoading(coll);
+                initializeCollection(coll, session);
+            }
         }
 
         return coll.getValue();
     }
 
+    /**
+     * Helper method for counting elements of given uninitialized collection with the
+     * size query of its persister, without initializing it.
+     *
+     * @return Number of elements, or -1 if collection can not be counted
+     */
+    private int loadSize(PersistentCollection coll, SerializerProvider provider) {
+        if (!(coll instanceof AbstractPersistentCollection) || (coll.getKey() == null)) {
+            return -1;
+        }
+        SessionImplementor session = ((AbstractPersistentCollection) coll).getSession();
+        if ((session == null) || !session.isOpen()) {
+            LoadingSession loading = (_sessionFactory == null) ? null
+                    : LoadingSession.find(provider, _sessionFactory);
+            if (loading == null) {
+                return -1;
+            }
+            session = (SessionImplementor) loading.session();
+        }
+        try {
+            return session.getFactory().getCollectionPersister(coll.getRole())
+                    .getSize(coll.getKey(), session);
+        } catch (HibernateException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Value resolved for an uninitialized collection by {@link #isEmpty}; only the
+     * latest one is kept, since it is serialized right after the check.
+     *
+     * @since 2.9.7
+     */
+    protected final static class ResolvedLazyValue {
+        protected final PersistentCollection collection;
+        protected final Object value;
+
+        protected ResolvedLazyValue(PersistentCollection collection, Object value) {
+            this.collection = collection;
+            this.value = value;
+        }
+    }
+
     // Most of the code bellow is from Hibernate AbstractPersistentCollection
     private Session openTemporarySessionForLoading(PersistentCollection coll) {
 
-        final SessionFactory sf = _sessionFactory;
-        final Session session = sf.openSession();
-
-        PersistenceContext persistenceContext = ((SessionImplementor) session).getPersistenceContext();
-        persistenceContext.setDefaultReadOnly(true);
-        session.setFlushMode(FlushMode.MANUAL);
+        final Session session = LoadingSession.openSession(_sessionFactory);
 
-        persistenceContext.addUninitializedDetachedCollection(
+        ((SessionImplementor) session).getPersistenceContext().addUninitializedDetachedCollection(
                 ((SessionFactoryImplementor) _sessionFactory).getCollectionPersister(coll.getRole()),
                 coll
         );
@@ -334,19 +432,10 @@ public class PersistentCollectionSerializer
 
     private void initializeCollection(PersistentCollection coll, Session session) {
 
-        boolean isJTA = ((SessionImplementor) session).getTransactionCoordinator()
-                .getTransactionContext().getTransactionEnvironment()
-                .getTransactionFactory()
-                .compatibleWithJtaSynchronization();
-
-        if (!isJTA) {
-            session.beginTransaction();
-        }
-
         coll.setCurrentSession(((SessionImplementor) session));
         Hibernate.initialize(coll);
 
-        if (!isJTA) {
+        if (!LoadingSession.isJTA(_sessionFactory)) {
             session.getTransaction().commit();
         }
         session.close();
@@ -384,38 +473,4 @@ public class PersistentCollectionSerializer
         }
         return false;
     }
-
-    private Object convertToJavaCollection(Object value) {
-        if (!(value instanceof PersistentCollection)) {
-            return value;
-        }
-
-        if (value instanceof Set) {
-            return convertToSet((Set<?>) value);
-        }
-
-        if (value instanceof List
-                || value instanceof Bag
-                ) {
-            return convertToList((List<?>) value);
-        }
-
-        if (value instanceof Map) {
-            return convertToMap((Map<?, ?>) value);
-        }
-
-        throw new IllegalArgumentException("Unsupported type: " + value.getClass());
-    }
-
-    private Object convertToList(List<?> value) {
-        return new ArrayList<>(value);
-    }
-
-    private Object convertToMap(Map<?, ?> value) {
-        return new HashMap<>(value);
-    }
-
-    private Object convertToSet(Set<?> value) {
-        return new HashSet<>(value);
-    }
 }
@@ -0,0 +1,59 @@
+package com.fasterxml.jackson.datatype.hibernate4;
+
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.DefaultSerializerProvider;
+import com.fasterxml.jackson.datatype.hibernate4.data.Customer;
+
+public class DetachedLazyLoadingTest extends BaseTest
+{
+    @Test
+    public void testSingleLoadingSessionPerCall() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            SessionFactory sf = ((HibernateEntityManagerFactory) emf).getSessionFactory();
+            Statistics stats = sf.getStatistics();
+            stats.setStatisticsEnabled(true);
+
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 103);
+            em.close();
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+            assertFalse(Hibernate.isInitialized(customer.getPayments()));
+
+            Hibernate4Module module = new Hibernate4Module(sf);
+            module.enable(Hibernate4Module.Feature.FORCE_LAZY_LOADING);
+            ObjectMapper mapper = new ObjectMapper().registerModule(module);
+            // provider is not changed by the module
+            assertEquals(DefaultSerializerProvider.Impl.class, mapper.getSerializerProvider().getClass());
+            mapper.setSerializerProvider(new HibernateSerializerProvider());
+
+            stats.clear();
+            String json = mapper.writeValueAsString(customer);
+            // orders, payments and details of every order, all loaded with one session
+            assertEquals(1L, stats.getSessionOpenCount());
+            assertEquals(1L, stats.getSessionCloseCount());
+            assertEquals(1L, stats.getTransactionCount());
+            assertTrue(Hibernate.isInitialized(customer.getOrders()));
+            assertTrue(Hibernate.isInitialized(customer.getPayments()));
+
+            Map<?,?> stuff = mapper.readValue(json, Map.class);
+            assertTrue(stuff.containsKey("orders"));
+            assertTrue(stuff.containsKey("payments"));
+        } finally {
+            emf.close();
+        }
+    }
+}
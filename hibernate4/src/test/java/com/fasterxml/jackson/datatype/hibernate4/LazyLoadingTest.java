@@ -13,6 +13,8 @@ import com.fasterxml.jackson.datatype.hibernate4.data.Customer;
 import com.fasterxml.jackson.datatype.hibernate4.data.Payment;
 
 import org.hibernate.Hibernate;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
 
 public class LazyLoadingTest extends BaseTest
@@ -77,4 +79,49 @@ public class LazyLoadingTest extends BaseTest
     		emf.close();
     	}
     }
+
+    @Test
+    public void testSerializeSizeFeature() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 103);
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate4Module()
+                    .enable(Feature.SERIALIZE_SIZE_FOR_LAZY_NOT_LOADED_COLLECTIONS));
+            Map<?,?> stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+
+            // only counted: collections stay uninitialized
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+            assertFalse(Hibernate.isInitialized(customer.getPayments()));
+            assertEquals(Integer.valueOf(customer.getOrders().size()), stuff.get("orders"));
+            assertEquals(Integer.valueOf(customer.getPayments().size()), stuff.get("payments"));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testSizeLoadedOncePerProperty() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            Statistics stats = ((HibernateEntityManagerFactory) emf).getSessionFactory().getStatistics();
+            stats.setStatisticsEnabled(true);
+
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 103);
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate4Module()
+                    .enable(Feature.SERIALIZE_SIZE_FOR_LAZY_NOT_LOADED_COLLECTIONS));
+            stats.clear();
+            mapper.writeValueAsString(customer);
+
+            // "payments" is NON_EMPTY: its elements are still only counted once
+            assertEquals(2L, stats.getPrepareStatementCount());
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
 }
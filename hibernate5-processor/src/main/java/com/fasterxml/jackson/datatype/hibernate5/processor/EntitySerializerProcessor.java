@@ -0,0 +1,379 @@
+package com.fasterxml.jackson.datatype.hibernate5.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor that generates, for every JPA entity (class annotated with
+ * <code>javax.persistence.Entity</code>) of the sources compiled, a serializer
+ * extending <code>com.fasterxml.jackson.datatype.hibernate5.GeneratedEntitySerializer</code>
+ * that lists the properties Jackson would find for the entity with default
+ * configuration, and reads them with direct accessor calls. Generated serializers
+ * are registered as services, and used by <code>Hibernate5Module</code> instead of
+ * serializers built with bean introspection, if its
+ * <code>USE_GENERATED_SERIALIZERS</code> feature is enabled.
+ * <p>
+ * Property discovery follows Jackson defaults: public getters
+ * (<code>getXxx()</code>, and <code>isXxx()</code> for <code>boolean</code>s) and
+ * public fields, named with the legacy name mangling, in the order of declaration
+ * of their fields (superclass fields first), then of their getters.
+ * <p>
+ * No serializer is generated for entities that could be serialized differently
+ * than found here: abstract or generic classes, non-static inner classes, and
+ * entities (or their superclasses) that use any Jackson annotation.
+ *
+ * @since 2.9.7
+ */
+@SupportedAnnotationTypes(EntitySerializerProcessor.ENTITY_ANNOTATION)
+public class EntitySerializerProcessor extends AbstractProcessor
+{
+    protected final static String ENTITY_ANNOTATION = "javax.persistence.Entity";
+
+    protected final static String JACKSON_ANNOTATION_PREFIX = "com.fasterxml.jackson.";
+
+    protected final static String BASE_CLASS = "com.fasterxml.jackson.datatype.hibernate5.GeneratedEntitySerializer";
+
+    protected final static String SERIALIZER_SUFFIX = "_JacksonSerializer";
+
+    /**
+     * Names of all serializers generated, to be listed in the service file.
+     */
+    protected final Set<String> _generated = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+    {
+        if (roundEnv.processingOver()) {
+            _writeServiceFile();
+            return false;
+        }
+        for (TypeElement annotation : annotations) {
+            for (TypeElement entity : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+                String reason = _unsupportedReason(entity);
+                if (reason != null) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                            "No Jackson serializer generated for "+entity.getQualifiedName()+": "+reason, entity);
+                    continue;
+                }
+                try {
+                    _generated.add(_writeSerializer(entity, _findProperties(entity)));
+                } catch (IOException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                            "Unable to write Jackson serializer for "+entity.getQualifiedName()+": "+e, entity);
+                }
+            }
+        }
+        // other processors may be interested in entities too
+        return false;
+    }
+
+    /*
+    /**********************************************************************
+    /* Property discovery
+    /**********************************************************************
+     */
+
+    /**
+     * Helper method for checking whether a serializer can be generated for given
+     * entity.
+     *
+     * @return Reason why serializer can not be generated, or null if it can
+     */
+    protected String _unsupportedReason(TypeElement entity)
+    {
+        if (entity.getKind() != ElementKind.CLASS) {
+            return "not a class";
+        }
+        if (entity.getModifiers().contains(Modifier.ABSTRACT)) {
+            return "abstract class";
+        }
+        if (entity.getModifiers().contains(Modifier.PRIVATE)) {
+            return "private class";
+        }
+        if (!entity.getTypeParameters().isEmpty()) {
+            return "generic class";
+        }
+        for (Element e = entity; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            if ((((TypeElement) e).getNestingKind() == NestingKind.MEMBER)
+                    && !e.getModifiers().contains(Modifier.STATIC)) {
+                return "inner class";
+            }
+            if ((e != entity) && e.getModifiers().contains(Modifier.PRIVATE)) {
+                return "enclosed in a private class";
+            }
+        }
+        for (TypeElement cls : _hierarchy(entity)) {
+            if (_hasJacksonAnnotation(cls)) {
+                return "Jackson annotations used by "+cls.getQualifiedName();
+            }
+            for (Element member : cls.getEnclosedElements()) {
+                if (_hasJacksonAnnotation(member)) {
+                    return "Jackson annotations used by "+cls.getQualifiedName()+"."+member.getSimpleName();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Helper method for finding the properties of given entity, in the order
+     * Jackson would serialize them in.
+     */
+    protected List<Property> _findProperties(TypeElement entity)
+    {
+        // first, fields (including non-visible ones) define the ordering
+        Map<String, Property> props = new LinkedHashMap<>();
+        List<TypeElement> hierarchy = _hierarchy(entity);
+        for (int i = hierarchy.size(); --i >= 0; ) {
+            for (VariableElement field : ElementFilter.fieldsIn(hierarchy.get(i).getEnclosedElements())) {
+                Set<Modifier> mods = field.getModifiers();
+                if (mods.contains(Modifier.STATIC) || mods.contains(Modifier.TRANSIENT)) {
+                    continue;
+                }
+                String name = field.getSimpleName().toString();
+                Property prop = props.get(name);
+                if (prop == null) {
+                    prop = new Property(name);
+                    props.put(name, prop);
+                }
+                prop.fieldName = name;
+                prop.publicField = mods.contains(Modifier.PUBLIC);
+            }
+        }
+        // then getters, overridden ones found first
+        for (TypeElement cls : hierarchy) {
+            for (ExecutableElement method : ElementFilter.methodsIn(cls.getEnclosedElements())) {
+                String name = _getterPropertyName(method);
+                if (name == null) {
+                    continue;
+                }
+                Property prop = props.get(name);
+                if (prop == null) {
+                    prop = new Property(name);
+                    props.put(name, prop);
+                }
+                if (prop.getterName == null) {
+                    prop.getterName = method.getSimpleName().toString();
+                }
+            }
+        }
+        // and only visible ones remain
+        List<Property> result = new ArrayList<>(props.size());
+        for (Property prop : props.values()) {
+            if ((prop.getterName != null) || prop.publicField) {
+                result.add(prop);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Helper method for getting the name of the property given method is a
+     * (visible) getter for, using Jackson default (legacy) name mangling.
+     *
+     * @return Name of the property, or null if method is not a getter
+     */
+    protected String _getterPropertyName(ExecutableElement method)
+    {
+        Set<Modifier> mods = method.getModifiers();
+        if (!mods.contains(Modifier.PUBLIC) || mods.contains(Modifier.STATIC)
+                || !method.getParameters().isEmpty() || !method.getTypeParameters().isEmpty()) {
+            return null;
+        }
+        TypeMirror returnType = method.getReturnType();
+        String name = method.getSimpleName().toString();
+        if (name.startsWith("get") && (name.length() > 3) && (returnType.getKind() != TypeKind.VOID)) {
+            return _manglePropertyName(name.substring(3));
+        }
+        if (name.startsWith("is") && (name.length() > 2) && (returnType.getKind() == TypeKind.BOOLEAN)) {
+            return _manglePropertyName(name.substring(2));
+        }
+        return null;
+    }
+
+    /**
+     * Same as legacy name mangling of Jackson (<code>BeanUtil.legacyManglePropertyName</code>):
+     * all leading upper-case characters are lower-cased.
+     */
+    protected static String _manglePropertyName(String basename)
+    {
+        StringBuilder sb = null;
+        for (int i = 0, len = basename.length(); i < len; ++i) {
+            char upper = basename.charAt(i);
+            char lower = Character.toLowerCase(upper);
+            if (upper == lower) {
+                break;
+            }
+            if (sb == null) {
+                sb = new StringBuilder(basename);
+            }
+            sb.setCharAt(i, lower);
+        }
+        return (sb == null) ? basename : sb.toString();
+    }
+
+    /**
+     * Helper method for getting given class and its superclasses (other than
+     * <code>java.lang.Object</code>), subclasses first.
+     */
+    protected List<TypeElement> _hierarchy(TypeElement cls)
+    {
+        List<TypeElement> hierarchy = new ArrayList<>();
+        while (cls != null && !cls.getQualifiedName().contentEquals("java.lang.Object")) {
+            hierarchy.add(cls);
+            TypeMirror superclass = cls.getSuperclass();
+            cls = (superclass instanceof DeclaredType)
+                ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return hierarchy;
+    }
+
+    protected static boolean _hasJacksonAnnotation(Element element)
+    {
+        for (AnnotationMirror ann : element.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) ann.getAnnotationType().asElement();
+            if (type.getQualifiedName().toString().startsWith(JACKSON_ANNOTATION_PREFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+    /**********************************************************************
+    /* Code generation
+    /**********************************************************************
+     */
+
+    /**
+     * Writes the source of the serializer of given entity.
+     *
+     * @return Binary name of the serializer class
+     */
+    protected String _writeSerializer(TypeElement entity, List<Property> props) throws IOException
+    {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(entity);
+        String pkgName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+        String entityName = entity.getQualifiedName().toString();
+        String simpleName = (pkgName.isEmpty() ? entityName : entityName.substring(pkgName.length() + 1))
+                .replace('.', '_') + SERIALIZER_SUFFIX;
+        String className = pkgName.isEmpty() ? simpleName : (pkgName + "." + simpleName);
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(className, entity);
+        try (Writer w = file.openWriter()) {
+            if (!pkgName.isEmpty()) {
+                w.write("package " + pkgName + ";\n\n");
+            }
+            w.write("/**\n * Jackson serializer for {@link " + entityName + "}, generated by\n"
+                    + " * {@link " + EntitySerializerProcessor.class.getName() + "}: do not edit.\n */\n");
+            w.write("public final class " + simpleName + "\n");
+            w.write("    extends " + BASE_CLASS + "<" + entityName + ">\n{\n");
+            w.write("    private static final long serialVersionUID = 1L;\n\n");
+            w.write("    public " + simpleName + "() {\n");
+            w.write("        super(" + entityName + ".class, new PropertyDef[] {\n");
+            for (Property prop : props) {
+                if (prop.getterName != null) {
+                    w.write("            PropertyDef.getter(" + _literal(prop.name) + ", "
+                            + _literal(prop.getterName) + ", " + _literal(prop.fieldName) + "),\n");
+                } else {
+                    w.write("            PropertyDef.field(" + _literal(prop.name) + ", "
+                            + _literal(prop.fieldName) + "),\n");
+                }
+            }
+            w.write("        });\n    }\n\n");
+            w.write("    @Override\n");
+            w.write("    protected " + simpleName + " _new() {\n");
+            w.write("        return new " + simpleName + "();\n    }\n\n");
+            w.write("    @Override\n");
+            w.write("    protected Object getValue(" + entityName + " bean, int index) {\n");
+            w.write("        switch (index) {\n");
+            for (int i = 0; i < props.size(); ++i) {
+                Property prop = props.get(i);
+                w.write("        case " + i + ": return bean."
+                        + ((prop.getterName != null) ? (prop.getterName + "()") : prop.fieldName) + ";\n");
+            }
+            w.write("        default: return null;\n        }\n    }\n}\n");
+        }
+        return className;
+    }
+
+    /**
+     * Writes the service file listing all generated serializers, once all rounds
+     * are over.
+     */
+    protected void _writeServiceFile()
+    {
+        if (_generated.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT,
+                    "", "META-INF/services/" + BASE_CLASS);
+            try (Writer w = file.openWriter()) {
+                for (String className : _generated) {
+                    w.write(className);
+                    w.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write service file of Jackson serializers: "+e);
+        }
+    }
+
+    private static String _literal(String str)
+    {
+        return (str == null) ? "null" : ("\"" + str + "\"");
+    }
+
+    /**
+     * Property found for an entity.
+     */
+    protected static class Property
+    {
+        protected final String name;
+
+        protected String getterName;
+
+        protected String fieldName;
+
+        protected boolean publicField;
+
+        public Property(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.fasterxml.jackson.datatype.hibernate5.processor;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.datatype.hibernate5.GeneratedEntitySerializer;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
+
+public class EntitySerializerProcessorTest extends junit.framework.TestCase
+{
+    private final static String AUTHOR = "package entities;\n"
+            + "import java.util.*;\n"
+            + "import javax.persistence.*;\n"
+            + "@Entity\n"
+            + "public class Author {\n"
+            + "    @Id private Integer id = 1;\n"
+            + "    private String name = \"Ann\";\n"
+            + "    @OneToMany private List<Book> books = new ArrayList<>(Arrays.asList(new Book()));\n"
+            + "    @Transient private String nickname = \"A\";\n"
+            + "    public String note = \"n\";\n"
+            + "    private String hidden = \"h\";\n"
+            + "    public Integer getId() { return id; }\n"
+            + "    public String getName() { return name; }\n"
+            + "    public List<Book> getBooks() { return books; }\n"
+            + "    public String getNickname() { return nickname; }\n"
+            + "    public boolean isActive() { return true; }\n"
+            + "    public String getURL() { return null; }\n"
+            + "}\n";
+
+    private final static String BOOK = "package entities;\n"
+            + "import javax.persistence.*;\n"
+            + "@Entity\n"
+            + "public class Book extends Item {\n"
+            + "    private String title = \"Java\";\n"
+            + "    public String getTitle() { return title; }\n"
+            + "}\n";
+
+    private final static String ITEM = "package entities;\n"
+            + "import javax.persistence.*;\n"
+            + "@MappedSuperclass\n"
+            + "public abstract class Item {\n"
+            + "    @Id private Long id = 2L;\n"
+            + "    public Long getId() { return id; }\n"
+            + "}\n";
+
+    private final static String SECRET = "package entities;\n"
+            + "import javax.persistence.*;\n"
+            + "import com.fasterxml.jackson.annotation.JsonIgnore;\n"
+            + "@Entity\n"
+            + "public class Secret {\n"
+            + "    @Id private Long id;\n"
+            + "    @JsonIgnore public String getCode() { return \"x\"; }\n"
+            + "}\n";
+
+    private final static String BASE = "package entities;\n"
+            + "import javax.persistence.*;\n"
+            + "@MappedSuperclass\n"
+            + "public abstract class Base<ID> {\n"
+            + "    @Id private ID id;\n"
+            + "    public ID getId() { return id; }\n"
+            + "    public void setId(ID id) { this.id = id; }\n"
+            + "}\n";
+
+    private final static String FOO = "package entities;\n"
+            + "import javax.persistence.*;\n"
+            + "@Entity\n"
+            + "public class Foo extends Base<Long> {\n"
+            + "    private Object data = \"d\";\n"
+            + "    public Foo() { setId(5L); }\n"
+            + "    public Object getData() { return data; }\n"
+            + "}\n";
+
+    public void testGeneratedSerializers() throws Exception
+    {
+        File dir = Files.createTempDirectory("entities").toFile();
+        URLClassLoader loader = _compile(dir, AUTHOR, BOOK, ITEM, SECRET);
+        ClassLoader old = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(loader);
+        try {
+            String services = new String(Files.readAllBytes(new File(dir,
+                    "META-INF/services/" + GeneratedEntitySerializer.class.getName()).toPath()),
+                    StandardCharsets.UTF_8);
+            assertEquals("entities.Author_JacksonSerializer\nentities.Book_JacksonSerializer\n", services);
+
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .enable(Hibernate5Module.Feature.USE_GENERATED_SERIALIZERS))
+                    .enable(SerializationFeature.INDENT_OUTPUT);
+            ObjectMapper reflective = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .disable(Hibernate5Module.Feature.USE_GENERATED_SERIALIZERS))
+                    .enable(SerializationFeature.INDENT_OUTPUT);
+
+            Class<?> authorClass = loader.loadClass("entities.Author");
+            JsonSerializer<?> ser = mapper.getSerializerProviderInstance().findValueSerializer(authorClass);
+            assertTrue(ser instanceof GeneratedEntitySerializer);
+            assertFalse(reflective.getSerializerProviderInstance().findValueSerializer(authorClass)
+                    instanceof GeneratedEntitySerializer);
+
+            // same properties, in the same order, as found with introspection
+            Object author = authorClass.getDeclaredConstructor().newInstance();
+            String json = mapper.writeValueAsString(author);
+            assertEquals(reflective.writeValueAsString(author), json);
+            assertEquals(aposToQuotes("{'id':1,'name':'Ann','books':[{'id':2,'title':'Java'}],"
+                    + "'note':'n','active':true,'url':null}"),
+                    mapper.copy().disable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(author));
+
+            // and not used when configuration could change properties
+            ObjectMapper sorted = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .enable(Hibernate5Module.Feature.USE_GENERATED_SERIALIZERS))
+                    .enable(com.fasterxml.jackson.databind.MapperFeature.SORT_PROPERTIES_ALPHABETICALLY);
+            assertFalse(sorted.getSerializerProviderInstance().findValueSerializer(authorClass)
+                    instanceof GeneratedEntitySerializer);
+            // (like custom introspectors, that could rename or ignore properties)
+            ObjectMapper custom = new ObjectMapper()
+                    .setAnnotationIntrospector(new JacksonAnnotationIntrospector() {
+                        private static final long serialVersionUID = 1L;
+                    })
+                    .registerModule(new Hibernate5Module()
+                            .enable(Hibernate5Module.Feature.USE_GENERATED_SERIALIZERS));
+            assertFalse(custom.getSerializerProviderInstance().findValueSerializer(authorClass)
+                    instanceof GeneratedEntitySerializer);
+            // nor by default
+            assertFalse(new ObjectMapper().registerModule(new Hibernate5Module())
+                    .getSerializerProviderInstance().findValueSerializer(authorClass)
+                    instanceof GeneratedEntitySerializer);
+        } finally {
+            Thread.currentThread().setContextClassLoader(old);
+            loader.close();
+        }
+    }
+
+    // Types of members of generic superclasses are resolved as bound by the entity
+    public void testGenericSuperclass() throws Exception
+    {
+        File dir = Files.createTempDirectory("entities").toFile();
+        URLClassLoader loader = _compile(dir, BASE, FOO);
+        ClassLoader old = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(loader);
+        try {
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .enable(Hibernate5Module.Feature.USE_GENERATED_SERIALIZERS))
+                    .enableDefaultTyping(ObjectMapper.DefaultTyping.OBJECT_AND_NON_CONCRETE);
+            ObjectMapper reflective = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .disable(Hibernate5Module.Feature.USE_GENERATED_SERIALIZERS))
+                    .enableDefaultTyping(ObjectMapper.DefaultTyping.OBJECT_AND_NON_CONCRETE);
+
+            Class<?> fooClass = loader.loadClass("entities.Foo");
+            assertTrue(mapper.getSerializerProviderInstance().findValueSerializer(fooClass)
+                    instanceof GeneratedEntitySerializer);
+            Object foo = fooClass.getDeclaredConstructor().newInstance();
+            assertEquals(aposToQuotes("{'id':5,'data':'d'}"), reflective.writeValueAsString(foo));
+            assertEquals(reflective.writeValueAsString(foo), mapper.writeValueAsString(foo));
+        } finally {
+            Thread.currentThread().setContextClassLoader(old);
+            loader.close();
+        }
+    }
+
+    private URLClassLoader _compile(File dir, String... sources) throws Exception
+    {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fm = compiler.getStandardFileManager(null, null, null);
+        File srcDir = new File(dir, "src");
+        List<File> files = new ArrayList<>();
+        for (String source : sources) {
+            String name = source.substring(source.indexOf("class ") + 6);
+            name = name.substring(0, name.indexOf(' ')).replaceAll("<.*", "");
+            File file = new File(srcDir, "entities/" + name + ".java");
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        }
+        Iterable<? extends JavaFileObject> units = fm.getJavaFileObjectsFromFiles(files);
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fm, null,
+                Arrays.asList("-d", dir.getPath(), "-s", srcDir.getPath(),
+                        "-classpath", System.getProperty("java.class.path")),
+                null, units);
+        task.setProcessors(Arrays.asList(new EntitySerializerProcessor()));
+        assertTrue(task.call());
+        fm.close();
+        return new URLClassLoader(new URL[] { dir.toURI().toURL() }, getClass().getClassLoader());
+    }
+
+    private static String aposToQuotes(String json) {
+        return json.replace("'", "\"");
+    }
+}
@@ -0,0 +1,78 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Blob;
+import java.sql.SQLException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Serializer for {@link Blob} values: content is streamed from
+ * {@link Blob#getBinaryStream()} into a base64-encoded JSON String, so that
+ * the whole LOB is never held in memory.
+ *<p>
+ * If content can not be read (for example, because LOB is only a locator for a
+ * transaction that has ended), null is written, unless
+ * {@link Hibernate5Module.Feature#FAIL_ON_UNREADABLE_LOBS} is enabled.
+ *
+ * @since 2.9.7
+ */
+public class BlobSerializer extends StdSerializer<Blob>
+{
+    private static final long serialVersionUID = 1L;
+
+    protected final boolean _failOnUnreadable;
+
+    public BlobSerializer(boolean failOnUnreadable) {
+        super(Blob.class);
+        _failOnUnreadable = failOnUnreadable;
+    }
+
+    @Override
+    public boolean isEmpty(SerializerProvider provider, Blob value) {
+        try {
+            return (value == null) || (value.length() == 0L);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void serialize(Blob value, JsonGenerator g, SerializerProvider provider) throws IOException
+    {
+        final long length;
+        final InputStream in;
+        try {
+            length = value.length();
+            in = value.getBinaryStream();
+        } catch (SQLException e) {
+            if (_failOnUnreadable) {
+                throw JsonMappingException.from(g, "Unable to read Blob content", e);
+            }
+            provider.defaultSerializeNull(g);
+            return;
+        }
+        try {
+            try {
+                g.writeBinary(provider.getConfig().getBase64Variant(), in,
+                        (length <= Integer.MAX_VALUE) ? (int) length : -1);
+            } catch (UnsupportedOperationException e) {
+                // generator can not stream binary content (like TokenBuffer): read it all
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4000];
+                int count;
+                while ((count = in.read(buffer)) >= 0) {
+                    bytes.write(buffer, 0, count);
+                }
+                g.writeBinary(provider.getConfig().getBase64Variant(), bytes.toByteArray(), 0, bytes.size());
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.FlushMode;
+import org.hibernate.HibernateException;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.collection.internal.AbstractPersistentCollection;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Helper used for {@link Hibernate5Module.Feature#BATCH_LAZY_LOADING}: when an
+ * uninitialized collection has to be loaded, all other uninitialized collections
+ * of the same role attached to the same session are loaded along with it, using
+ * a fetch join query restricted to the owners of those collections (one query
+ * per batch of {@link #DEFAULT_BATCH_SIZE} owners).
+ * <p>
+ * Collections that can not be batched (detached collections, collections keyed
+ * by a property other than the owner identifier) are left alone; callers are
+ * expected to initialize the collection normally afterwards, which is a no-op
+ * if the batch already did it.
+ */
+public class CollectionBatchLoader
+{
+    private static final Logger logger = LoggerFactory.getLogger(CollectionBatchLoader.class);
+
+    /**
+     * Maximum number of owners bound in a single query; kept below 1000 since
+     * some databases limit the size of IN lists.
+     */
+    public final static int DEFAULT_BATCH_SIZE = 500;
+
+    private CollectionBatchLoader() { }
+
+    /**
+     * Initializes given collection, along with other uninitialized collections of the
+     * same role in its session, if possible.
+     *
+     * @return True if a batch query was executed; false if the collection could not
+     *    be batched
+     */
+    @SuppressWarnings({ "deprecation", "unchecked" })
+    public static boolean initialize(PersistentCollection coll)
+    {
+        if (coll.wasInitialized() || (coll.getOwner() == null)) {
+            return false;
+        }
+        final SessionImplementor session = CollectionSessionReader.getSession(coll);
+        if ((session == null) || !session.isOpen() || !session.isConnected()) {
+            return false;
+        }
+        final String role = coll.getRole();
+        final CollectionPersister persister = session.getFactory().getCollectionPersister(role);
+        // collections keyed by a property-ref can not be matched against owner identity
+        if (!persister.getCollectionType().useLHSPrimaryKey()) {
+            return false;
+        }
+        final String ownerEntityName = persister.getOwnerEntityPersister().getEntityName();
+        if (!role.startsWith(ownerEntityName + ".")) {
+            return false;
+        }
+        final String propertyPath = role.substring(ownerEntityName.length() + 1);
+
+        // Collect owners of all uninitialized collections of the same role, starting with ours
+        Map<Object, Boolean> owners = new IdentityHashMap<>();
+        owners.put(coll.getOwner(), Boolean.TRUE);
+        // (note: entries map does not support `keySet()`)
+        Map<PersistentCollection, ?> entries = session.getPersistenceContext().getCollectionEntries();
+        for (Map.Entry<PersistentCollection, ?> entry : new ArrayList<>(entries.entrySet())) {
+            PersistentCollection pc = entry.getKey();
+            if (!pc.wasInitialized() && role.equals(pc.getRole()) && (pc.getOwner() != null)) {
+                owners.put(pc.getOwner(), Boolean.TRUE);
+            }
+        }
+        final String hql = "select o from " + ownerEntityName + " o left join fetch o." + propertyPath
+                + " where o in (:owners)";
+        List<Object> all = new ArrayList<>(owners.keySet());
+        logger.debug("Batch loading {} collections of role {}", all.size(), role);
+        try {
+            for (int start = 0, len = all.size(); start < len; start += DEFAULT_BATCH_SIZE) {
+                List<Object> batch = all.subList(start, Math.min(len, start + DEFAULT_BATCH_SIZE));
+                QueryCreator.createQuery(session, hql)
+                    .setParameterList("owners", batch)
+                    .list();
+            }
+        } catch (HibernateException | IllegalArgumentException e) {
+            // (5.2 wraps query failures in IllegalArgumentException)
+            // fall back to initializing collections one by one
+            logger.warn("Unable to batch load collections of role " + role, e);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Hibernate 5.2 changed the return type of
+     * {@code AbstractPersistentCollection.getSession()} (see
+     * {@link HibernateProxySerializer.ProxySessionReader} for the same issue with
+     * proxies), so with earlier versions the method must be called using reflection.
+     */
+    protected static class CollectionSessionReader {
+        static SessionImplementor getSession(PersistentCollection coll) {
+            if (!(coll instanceof AbstractPersistentCollection)) {
+                return null;
+            }
+            final Object session;
+            if (Hibernate5Version.isHibernate5_2_Plus()) {
+                session = ((AbstractPersistentCollection) coll).getSession();
+            } else {
+                session = LegacyCollectionSessionReader.getSession(coll);
+            }
+            if (session instanceof SessionImplementor) {
+                return (SessionImplementor) session;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Hibernate 5.2 changed the return type of {@code createQuery(String)} of
+     * sessions (to {@code org.hibernate.query.Query}), and deprecated
+     * {@code setFlushMode} for {@code setHibernateFlushMode}, which does not exist
+     * in earlier versions; so queries are created through this class, and used as
+     * the {@link org.hibernate.Query} all versions of hibernate 5 have in common.
+     */
+    @SuppressWarnings("deprecation")
+    protected static class QueryCreator {
+        /**
+         * Creates query for given HQL, that does not flush the session.
+         */
+        static org.hibernate.Query<?> createQuery(Object session, String hql) {
+            final org.hibernate.Query<?> query;
+            if (Hibernate5Version.isHibernate5_2_Plus()) {
+                query = ((SharedSessionContract) session).createQuery(hql);
+            } else {
+                query = LegacyQueryCreator.createQuery(session, hql);
+            }
+            return query.setFlushMode(FlushMode.MANUAL);
+        }
+    }
+
+    /**
+     * Creator of queries for Hibernate versions before 5.2; only loaded with
+     * such versions.
+     */
+    @SuppressWarnings("deprecation")
+    protected static class LegacyQueryCreator {
+        protected static final Method createQueryMethod;
+        static {
+            try {
+                createQueryMethod = SharedSessionContract.class.getMethod("createQuery", String.class);
+            } catch (Exception e) {
+                // should never happen: the class and method exists in all versions of hibernate 5
+                throw new RuntimeException(e);
+            }
+        }
+
+        static org.hibernate.Query<?> createQuery(Object session, String hql) {
+            try {
+                return (org.hibernate.Query<?>) createQueryMethod.invoke(session, hql);
+            } catch (InvocationTargetException e) {
+                // invalid query: rethrow as is, for callers to handle
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            } catch (IllegalAccessException e) {
+                // Should never happen
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Reader of the session of collections for Hibernate versions before 5.2;
+     * only loaded with such versions.
+     */
+    protected static class LegacyCollectionSessionReader {
+        protected static final Method collectionGetSessionMethod;
+        static {
+            try {
+                collectionGetSessionMethod = AbstractPersistentCollection.class.getMethod("getSession");
+            } catch (Exception e) {
+                // should never happen: the class and method exists in all versions of hibernate 5
+                throw new RuntimeException(e);
+            }
+        }
+
+        static Object getSession(PersistentCollection coll) {
+            try {
+                return collectionGetSessionMethod.invoke(coll);
+            } catch (Exception e) {
+                // Should never happen
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
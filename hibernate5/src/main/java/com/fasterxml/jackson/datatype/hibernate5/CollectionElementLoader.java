@@ -0,0 +1,560 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.io.IOException;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.persistence.OrderBy;
+
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
+import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.MapType;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.impl.IndexedListSerializer;
+import com.fasterxml.jackson.databind.ser.std.CollectionSerializer;
+import com.fasterxml.jackson.datatype.hibernate5.CollectionBatchLoader.QueryCreator;
+
+/**
+ * Helper used for collections annotated with {@link JsonLazyLimit}: instead of
+ * initializing an uninitialized collection, only its first elements are selected,
+ * with a query restricted to the collection key and limited to the maximum number
+ * of elements. Collection stays uninitialized.
+ * <p>
+ * Also used for {@link Hibernate5Module.Feature#STREAM_LAZY_COLLECTIONS}, to read
+ * all elements one at a time (see {@link ElementStream}).
+ * <p>
+ * Elements are selected in the order of the collection: by index for lists, and
+ * as specified by the JPA {@link OrderBy} of the property for ordered collections.
+ * Maps, collections keyed by a property other than the owner identifier, and
+ * collections ordered otherwise (with SQL ordering) are not handled.
+ *
+ * @since 2.9.7
+ */
+public class CollectionElementLoader
+{
+    private static final Logger logger = LoggerFactory.getLogger(CollectionElementLoader.class);
+
+    /**
+     * Marker used for collection roles elements of which can not be selected.
+     */
+    private final static String NO_QUERY = new String("");
+
+    /**
+     * Element queries resolved per collection persister (that is, per role of a
+     * factory), since finding the ordering of a role needs reflection.
+     */
+    private final static Map<CollectionPersister, String> _elementQueries
+        = Collections.synchronizedMap(new WeakHashMap<CollectionPersister, String>());
+
+    private CollectionElementLoader() { }
+
+    /**
+     * Selects at most <code>maxElements</code> first elements of given uninitialized
+     * collection, using given session.
+     *
+     * @return Elements selected, or null if they can not be selected without
+     *    initializing the collection
+     */
+    @SuppressWarnings({ "deprecation", "unchecked" })
+    public static List<Object> load(PersistentCollection coll, Session session, int maxElements)
+    {
+        final String hql = _elementQuery(coll, session);
+        if (hql == null) {
+            return null;
+        }
+        try {
+            return (List<Object>) QueryCreator.createQuery(session, hql)
+                .setParameter("key", coll.getKey())
+                .setMaxResults(maxElements)
+                .list();
+        } catch (HibernateException | IllegalArgumentException e) {
+            // (5.2 wraps query failures in IllegalArgumentException)
+            logger.warn("Unable to select elements of collection role " + coll.getRole(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Creates a stream over the elements of given uninitialized collection, to be
+     * read using given session when serialized.
+     *
+     * @return Stream of the elements, or null if they can not be selected without
+     *    initializing the collection
+     *
+     * @see Hibernate5Module.Feature#STREAM_LAZY_COLLECTIONS
+     */
+    public static ElementStream stream(PersistentCollection coll, Session session)
+    {
+        final String hql = _elementQuery(coll, session);
+        if (hql == null) {
+            return null;
+        }
+        return new ElementStream(coll, session, hql);
+    }
+
+    /**
+     * Helper method for building the query selecting elements of given collection.
+     *
+     * @return HQL of the query (with collection key as parameter <code>key</code>),
+     *    or null if collection is not supported
+     */
+    @SuppressWarnings("deprecation")
+    protected static String _elementQuery(PersistentCollection coll, Session session)
+    {
+        if (coll.wasInitialized() || (coll.getKey() == null)
+                || (session == null) || !session.isOpen()) {
+            return null;
+        }
+        final SessionFactoryImplementor factory = (SessionFactoryImplementor) session.getSessionFactory();
+        final CollectionPersister persister = factory.getCollectionPersister(coll.getRole());
+        String hql = _elementQueries.get(persister);
+        if (hql == null) {
+            hql = _buildElementQuery(persister, factory);
+            if (hql == null) {
+                hql = NO_QUERY;
+            }
+            _elementQueries.put(persister, hql);
+        }
+        return (hql == NO_QUERY) ? null : hql;
+    }
+
+    /**
+     * Helper method for building the query selecting elements of collections of
+     * given persister; only called once per persister.
+     *
+     * @return HQL of the query, or null if collections are not supported
+     */
+    protected static String _buildElementQuery(CollectionPersister persister, SessionFactoryImplementor factory)
+    {
+        final String role = persister.getRole();
+        if ((persister.getCollectionType() instanceof MapType)
+                || !persister.getCollectionType().useLHSPrimaryKey()) {
+            return null;
+        }
+        final EntityPersister ownerPersister = persister.getOwnerEntityPersister();
+        final String ownerEntityName = ownerPersister.getEntityName();
+        if (!role.startsWith(ownerEntityName + ".")) {
+            return null;
+        }
+        final String propertyPath = role.substring(ownerEntityName.length() + 1);
+        String ownerIdName = ownerPersister.getIdentifierPropertyName();
+        if (ownerIdName == null) {
+            ownerIdName = "id";
+        }
+        StringBuilder hql = new StringBuilder("select e from ")
+            .append(ownerEntityName).append(" o join o.").append(propertyPath).append(" e")
+            .append(" where o.").append(ownerIdName).append(" = :key");
+        if (persister.hasIndex()) {
+            hql.append(" order by index(e)");
+        } else if (persister.hasOrdering() || persister.hasManyToManyOrdering()) {
+            // ordering of persister is SQL: has to be found from the mapping of the property
+            String ordering = _elementOrdering(persister, factory,
+                    ownerPersister.getMappedClass(), propertyPath);
+            if (ordering == null) {
+                return null;
+            }
+            hql.append(" order by ").append(ordering);
+        }
+        return hql.toString();
+    }
+
+    /**
+     * Helper method for translating the JPA {@link OrderBy} of an ordered collection
+     * property to the ordering of the elements (aliased <code>e</code>) in HQL.
+     *
+     * @return Ordering (without <code>order by</code>), or null if there is no
+     *    such annotation (ordering is mapped otherwise) or it can not be translated
+     */
+    @SuppressWarnings("deprecation")
+    protected static String _elementOrdering(CollectionPersister persister, SessionFactoryImplementor factory,
+            Class<?> ownerClass, String propertyPath)
+    {
+        final OrderBy orderBy = _findOrderBy(ownerClass, propertyPath);
+        if (orderBy == null) {
+            return null;
+        }
+        final String value = orderBy.value().trim();
+        if (value.isEmpty()) {
+            // ordered by identifier of entities, by value of basic elements
+            final Type elementType = persister.getElementType();
+            if (elementType.isEntityType()) {
+                String idName = factory.getEntityPersister(((EntityType) elementType).getAssociatedEntityName())
+                        .getIdentifierPropertyName();
+                return (idName == null) ? null : "e." + idName;
+            }
+            return elementType.isComponentType() ? null : "e";
+        }
+        StringBuilder ordering = new StringBuilder();
+        for (String item : value.split(",")) {
+            String[] parts = item.trim().split("\\s+");
+            if (parts[0].isEmpty() || (parts.length > 2)) {
+                return null;
+            }
+            if (ordering.length() > 0) {
+                ordering.append(", ");
+            }
+            ordering.append("e.").append(parts[0]);
+            if (parts.length == 2) {
+                ordering.append(' ').append(parts[1]);
+            }
+        }
+        return ordering.toString();
+    }
+
+    /**
+     * Helper method for finding the {@link OrderBy} of the property at given path
+     * (names separated by dots, for properties of embeddables), on its field or
+     * getter.
+     */
+    protected static OrderBy _findOrderBy(Class<?> cls, String propertyPath)
+    {
+        OrderBy orderBy = null;
+        for (String name : propertyPath.split("\\.")) {
+            if (cls == null) {
+                return null;
+            }
+            Field field = null;
+            Method getter = null;
+            for (Class<?> c = cls; (c != null) && (c != Object.class); c = c.getSuperclass()) {
+                for (Field f : c.getDeclaredFields()) {
+                    if ((field == null) && f.getName().equals(name)) {
+                        field = f;
+                    }
+                }
+                for (Method m : c.getDeclaredMethods()) {
+                    if ((getter == null) && (m.getParameterTypes().length == 0)
+                            && (m.getName().startsWith("get") || m.getName().startsWith("is"))
+                            && name.equals(ReflectionUtil.getAttributeName(m))) {
+                        getter = m;
+                    }
+                }
+            }
+            orderBy = _getOrderBy(field);
+            if (orderBy == null) {
+                orderBy = _getOrderBy(getter);
+            }
+            cls = (field != null) ? field.getType()
+                    : ((getter != null) ? getter.getReturnType() : null);
+        }
+        return orderBy;
+    }
+
+    private static OrderBy _getOrderBy(AnnotatedElement member) {
+        return (member == null) ? null : member.getAnnotation(OrderBy.class);
+    }
+
+    /**
+     * Helper method for getting the first <code>maxElements</code> elements of an
+     * initialized collection.
+     */
+    public static List<Object> first(Collection<?> coll, int maxElements)
+    {
+        List<Object> elements = new ArrayList<>(Math.min(coll.size(), maxElements));
+        for (Iterator<?> it = coll.iterator(); it.hasNext() && (elements.size() < maxElements); ) {
+            elements.add(it.next());
+        }
+        return elements;
+    }
+
+    /**
+     * First elements of a collection, serialized as a JSON Array or, if the total
+     * number of elements is known, as <code>{"total":n,"elements":[...]}</code>.
+     */
+    public static class Elements
+    {
+        protected final List<Object> _elements;
+
+        /**
+         * Number of elements of the whole collection, if to be written; -1 if not.
+         */
+        protected final int _total;
+
+        public Elements(List<Object> elements, int total) {
+            _elements = elements;
+            _total = total;
+        }
+
+        public boolean isObject() {
+            return (_total >= 0);
+        }
+
+        public boolean isEmpty() {
+            return _elements.isEmpty();
+        }
+
+        public List<Object> getElements() {
+            return _elements;
+        }
+
+        public void serialize(JsonGenerator g, SerializerProvider provider,
+                JsonSerializer<Object> ser) throws IOException
+        {
+            if (isObject()) {
+                g.writeStartObject();
+                serializeContents(g, provider, ser);
+                g.writeEndObject();
+            } else {
+                ser.serialize(_elements, g, provider);
+            }
+        }
+
+        /**
+         * Method for writing the properties of the Object only, without enclosing
+         * START/END markers; used when those are written by a type serializer.
+         */
+        public void serializeContents(JsonGenerator g, SerializerProvider provider,
+                JsonSerializer<Object> ser) throws IOException
+        {
+            g.writeNumberField("total", _total);
+            g.writeFieldName("elements");
+            ser.serialize(_elements, g, provider);
+        }
+    }
+
+    /**
+     * Elements of an uninitialized collection, serialized as a JSON Array while
+     * being read with a read-only, forward-only {@link ScrollableResults}, bypassing
+     * the second-level cache. Elements are written in chunks of
+     * {@link #DEFAULT_FETCH_SIZE}, with the (contextualized) serializer of the
+     * collection property, so that content serializers and type serializers of the
+     * property apply as for initialized collections.
+     * <p>
+     * Elements are read with a child session of the session of the collection,
+     * sharing its connection and transaction but not its persistence context: after
+     * each chunk, the child session is cleared, so that entities loaded while reading
+     * and writing it (elements, and entities they refer to) are dropped, without
+     * going through the entities managed by the session of the collection (which
+     * are left alone). Memory use thus depends neither on the size of the collection
+     * nor on the size of the session. Note that elements are read as stored in the
+     * database: changes to them not flushed yet are not written.
+     * <p>
+     * Rows are only opened while elements are written (by {@link #serializeContents}),
+     * and always closed before it returns; whether there are elements at all (for
+     * {@link #isEmpty}) is found with the size query of the collection, or with a
+     * query for the first element only, so no cursor is left open if the collection
+     * is not written after all.
+     * <p>
+     * Note that lazy associations of elements that are loaded while elements are
+     * written (with {@link Hibernate5Module.Feature#FORCE_LAZY_LOADING}) are loaded
+     * with the same connection, while rows are still open: JDBC drivers that do not
+     * support multiple open result sets per connection (such as SQL Server without
+     * MARS) fail to do so; with those, this is only usable for collections of
+     * elements that have no such associations to write.
+     */
+    public static class ElementStream
+    {
+        /**
+         * Number of rows fetched from the database at a time, which is also the
+         * number of elements written between clearings of the child session.
+         */
+        public final static int DEFAULT_FETCH_SIZE = 100;
+
+        protected final PersistentCollection _collection;
+
+        protected final Session _session;
+
+        protected final String _hql;
+
+        protected final int _fetchSize;
+
+        /**
+         * Child session elements are read with, while rows are being read.
+         */
+        protected Session _streamSession;
+
+        /**
+         * Rows being read, while open: positioned on a row not written yet.
+         */
+        protected ScrollableResults _results;
+
+        /**
+         * Whether collection was found to have no elements, if checked; null if not.
+         */
+        protected Boolean _empty;
+
+        protected ElementStream(PersistentCollection coll, Session session, String hql) {
+            this(coll, session, hql, DEFAULT_FETCH_SIZE);
+        }
+
+        protected ElementStream(PersistentCollection coll, Session session, String hql, int fetchSize) {
+            _collection = coll;
+            _session = session;
+            _hql = hql;
+            _fetchSize = fetchSize;
+        }
+
+        /**
+         * Method for checking whether given serializer of a collection property can
+         * write streamed elements: only the standard serializers of collections and
+         * lists can.
+         */
+        public static boolean canWrite(JsonSerializer<?> ser) {
+            return (ser instanceof CollectionSerializer) || (ser instanceof IndexedListSerializer);
+        }
+
+        /**
+         * Method for checking whether collection has no elements: elements are
+         * counted (or, if they can not be, the first one is selected), without
+         * opening rows to be kept for the serialization call that follows.
+         */
+        @SuppressWarnings("deprecation")
+        public boolean isEmpty() {
+            if (_empty == null) {
+                int size = CollectionSizeLoader.load(_collection, _session);
+                if (size < 0) {
+                    Session session = _openSession();
+                    try {
+                        size = QueryCreator.createQuery(session, _hql)
+                            .setParameter("key", _collection.getKey())
+                            .setReadOnly(true)
+                            .setMaxResults(1)
+                            .setCacheMode(CacheMode.IGNORE)
+                            .list().size();
+                    } finally {
+                        LoadingSession.SessionCloser.close(session);
+                    }
+                }
+                _empty = Boolean.valueOf(size == 0);
+            }
+            return _empty.booleanValue();
+        }
+
+        public void serialize(JsonGenerator g, SerializerProvider provider,
+                JsonSerializer<?> ser) throws IOException
+        {
+            g.writeStartArray();
+            serializeContents(g, provider, ser);
+            g.writeEndArray();
+        }
+
+        /**
+         * Method for writing the elements only, without enclosing START/END markers;
+         * used when those are written by a type serializer.
+         *
+         * @param ser Serializer of the collection property, for which {@link #canWrite}
+         *    returns true
+         */
+        public void serializeContents(JsonGenerator g, SerializerProvider provider,
+                JsonSerializer<?> ser) throws IOException
+        {
+            boolean more = _open();
+            try {
+                List<Object> chunk = new ArrayList<>(_fetchSize);
+                while (more) {
+                    chunk.add(_results.get(0));
+                    if (chunk.size() == _fetchSize) {
+                        _serializeChunk(chunk, g, provider, ser);
+                        chunk.clear();
+                        // (before advancing, since next row is loaded by then)
+                        _streamSession.clear();
+                    }
+                    more = _results.next();
+                }
+                if (!chunk.isEmpty()) {
+                    _serializeChunk(chunk, g, provider, ser);
+                }
+            } finally {
+                _close();
+            }
+        }
+
+        protected void _serializeChunk(List<Object> chunk, JsonGenerator g, SerializerProvider provider,
+                JsonSerializer<?> ser) throws IOException
+        {
+            if (ser instanceof IndexedListSerializer) {
+                ((IndexedListSerializer) ser).serializeContents(chunk, g, provider);
+            } else {
+                ((CollectionSerializer) ser).serializeContents(chunk, g, provider);
+            }
+        }
+
+        /**
+         * Helper method for opening the child session and rows, and positioning
+         * them on the first row.
+         *
+         * @return Whether there is a row to write; if not, everything is closed
+         */
+        @SuppressWarnings("deprecation")
+        protected boolean _open()
+        {
+            if (Boolean.TRUE.equals(_empty)) {
+                return false;
+            }
+            Session session = _openSession();
+            _streamSession = session;
+            boolean hasRow = false;
+            try {
+                _results = QueryCreator.createQuery(session, _hql)
+                    .setParameter("key", _collection.getKey())
+                    .setReadOnly(true)
+                    .setFetchSize(_fetchSize)
+                    .setCacheMode(CacheMode.IGNORE)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+                hasRow = _results.next();
+            } finally {
+                if (!hasRow) {
+                    _close();
+                }
+            }
+            return hasRow;
+        }
+
+        /**
+         * Helper method for opening a read-only child session of the session of the
+         * collection, sharing its connection.
+         */
+        @SuppressWarnings("deprecation")
+        protected Session _openSession()
+        {
+            Session session = _session.sessionWithOptions().connection().openSession();
+            try {
+                session.setDefaultReadOnly(true);
+                session.setFlushMode(FlushMode.MANUAL);
+            } catch (RuntimeException e) {
+                LoadingSession.SessionCloser.close(session);
+                throw e;
+            }
+            return session;
+        }
+
+        protected void _close()
+        {
+            ScrollableResults results = _results;
+            Session session = _streamSession;
+            _results = null;
+            _streamSession = null;
+            try {
+                if (results != null) {
+                    results.close();
+                }
+            } finally {
+                if (session != null) {
+                    LoadingSession.SessionCloser.close(session);
+                }
+            }
+        }
+    }
+}
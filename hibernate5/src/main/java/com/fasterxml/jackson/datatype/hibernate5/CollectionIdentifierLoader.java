@@ -0,0 +1,217 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.MapType;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.datatype.hibernate5.CollectionBatchLoader.QueryCreator;
+
+/**
+ * Helper used for {@link Hibernate5Module.Feature#SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS}
+ * with uninitialized collections of entities: instead of initializing the collection
+ * (which hydrates every element), only the identifiers of the elements (and the
+ * indexes, for maps and lists) are selected, with a projection query restricted
+ * to the collection key. Collection stays uninitialized. Identifiers are in the
+ * order of the loaded collection: by index, or by the JPA {@code OrderBy} of ordered
+ * collections (those ordered otherwise are not handled).
+ * <p>
+ * Collections of values or embeddables, and collections keyed by a property other
+ * than the owner identifier, are not handled.
+ *
+ * @since 2.9.7
+ */
+public class CollectionIdentifierLoader
+{
+    private static final Logger logger = LoggerFactory.getLogger(CollectionIdentifierLoader.class);
+
+    private CollectionIdentifierLoader() { }
+
+    /**
+     * Selects identifiers of the elements of given uninitialized collection, using
+     * given session.
+     *
+     * @param identifiers Registry to find the identifier stub writer of the element
+     *    entity from
+     *
+     * @return Identifiers of the elements, or null if they can not be selected
+     *    without initializing the collection
+     */
+    @SuppressWarnings({ "deprecation", "unchecked" })
+    public static Identifiers load(PersistentCollection coll, Session session,
+            EntityIdentifierRegistry identifiers)
+    {
+        if (coll.wasInitialized() || (coll.getKey() == null)
+                || (session == null) || !session.isOpen()) {
+            return null;
+        }
+        final SessionFactoryImplementor factory = (SessionFactoryImplementor) session.getSessionFactory();
+        final String role = coll.getRole();
+        final CollectionPersister persister = factory.getCollectionPersister(role);
+        final Type elementType = persister.getElementType();
+        if (!elementType.isEntityType() || !persister.getCollectionType().useLHSPrimaryKey()) {
+            return null;
+        }
+        final EntityPersister ownerPersister = persister.getOwnerEntityPersister();
+        final String ownerEntityName = ownerPersister.getEntityName();
+        if (!role.startsWith(ownerEntityName + ".")) {
+            return null;
+        }
+        final String propertyPath = role.substring(ownerEntityName.length() + 1);
+        final EntityPersister elementPersister = factory.getEntityPersister(
+                ((EntityType) elementType).getAssociatedEntityName());
+        final String idName = elementPersister.getIdentifierPropertyName();
+        if (idName == null) { // non-aggregated composite identifier
+            return null;
+        }
+        String ownerIdName = ownerPersister.getIdentifierPropertyName();
+        if (ownerIdName == null) {
+            ownerIdName = "id";
+        }
+        final boolean indexed = persister.hasIndex();
+        String ordering = null;
+        if (!indexed && (persister.hasOrdering() || persister.hasManyToManyOrdering())) {
+            // same order as elements of the loaded collection
+            ordering = CollectionElementLoader._elementOrdering(persister, factory,
+                    ownerPersister.getMappedClass(), propertyPath);
+            if (ordering == null) {
+                return null;
+            }
+        }
+        StringBuilder hql = new StringBuilder("select ");
+        if (indexed) {
+            hql.append("index(e), ");
+        }
+        hql.append("e.").append(idName)
+            .append(" from ").append(ownerEntityName).append(" o join o.").append(propertyPath).append(" e")
+            .append(" where o.").append(ownerIdName).append(" = :key");
+        if (indexed) {
+            hql.append(" order by index(e)");
+        } else if (ordering != null) {
+            hql.append(" order by ").append(ordering);
+        }
+        final List<Object> rows;
+        try {
+            rows = (List<Object>) QueryCreator.createQuery(session, hql.toString())
+                .setParameter("key", coll.getKey())
+                .list();
+        } catch (HibernateException | IllegalArgumentException e) {
+            // (5.2 wraps query failures in IllegalArgumentException)
+            logger.warn("Unable to select element identifiers of collection role " + role, e);
+            return null;
+        }
+        final IdentifierStub stub = identifiers.addStub(elementPersister.getEntityName(),
+                elementPersister.getMappedClass(), idName);
+        if (persister.getCollectionType() instanceof MapType) {
+            Map<Object, Object> ids = new LinkedHashMap<>();
+            for (Object row : rows) {
+                Object[] cols = (Object[]) row;
+                ids.put(cols[0], cols[1]);
+            }
+            return new Identifiers(stub, elementPersister.getMappedClass(), null, ids);
+        }
+        List<Object> ids = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            ids.add(indexed ? ((Object[]) row)[1] : row);
+        }
+        return new Identifiers(stub, elementPersister.getMappedClass(), ids, null);
+    }
+
+    /**
+     * Identifiers of the elements of a collection, serialized as a JSON Array (or, for
+     * maps, a JSON Object) of <code>{"identifierName":"identifierValue"}</code> Objects.
+     * If elements are written with type ids, type id of each Object is that of the
+     * entity class of the elements, as for loaded elements.
+     */
+    public static class Identifiers
+    {
+        protected final IdentifierStub _stub;
+
+        /**
+         * Entity class of the elements, for their type ids.
+         */
+        protected final Class<?> _elementClass;
+
+        protected final List<Object> _ids;
+
+        protected final Map<Object, Object> _indexedIds;
+
+        protected Identifiers(IdentifierStub stub, Class<?> elementClass, List<Object> ids, Map<Object, Object> indexedIds) {
+            _stub = stub;
+            _elementClass = elementClass;
+            _ids = ids;
+            _indexedIds = indexedIds;
+        }
+
+        public boolean isMap() {
+            return (_indexedIds != null);
+        }
+
+        public boolean isEmpty() {
+            return isMap() ? _indexedIds.isEmpty() : _ids.isEmpty();
+        }
+
+        /**
+         * @param typeSer Type serializer of the elements, if any
+         */
+        public void serialize(JsonGenerator g, SerializerProvider provider, TypeSerializer typeSer) throws IOException
+        {
+            if (isMap()) {
+                g.writeStartObject();
+                serializeContents(g, provider, typeSer);
+                g.writeEndObject();
+            } else {
+                g.writeStartArray(_ids.size());
+                serializeContents(g, provider, typeSer);
+                g.writeEndArray();
+            }
+        }
+
+        /**
+         * Method for writing the entries only, without enclosing START/END markers;
+         * used when those are written by a type serializer.
+         *
+         * @param typeSer Type serializer of the elements, if any
+         */
+        public void serializeContents(JsonGenerator g, SerializerProvider provider, TypeSerializer typeSer) throws IOException
+        {
+            if (isMap()) {
+                for (Map.Entry<Object, Object> entry : _indexedIds.entrySet()) {
+                    Object key = entry.getKey();
+                    provider.findKeySerializer(key.getClass(), null).serialize(key, g, provider);
+                    _serializeStub(entry.getValue(), g, provider, typeSer);
+                }
+            } else {
+                for (Object id : _ids) {
+                    _serializeStub(id, g, provider, typeSer);
+                }
+            }
+        }
+
+        protected void _serializeStub(Object id, JsonGenerator g, SerializerProvider provider,
+                TypeSerializer typeSer) throws IOException
+        {
+            if (typeSer == null) {
+                _stub.serialize(id, g, provider);
+            } else {
+                _stub.serializeWithType(id, _elementClass, g, provider, typeSer);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Helper used for {@link Hibernate5Module.Feature#SERIALIZE_SIZE_FOR_LAZY_NOT_LOADED_COLLECTIONS}:
+ * counts elements of an uninitialized collection with the size query of its
+ * {@link CollectionPersister} (the one Hibernate uses for extra-lazy collections),
+ * without initializing the collection.
+ *
+ * @since 2.9.7
+ */
+public class CollectionSizeLoader
+{
+    private static final Logger logger = LoggerFactory.getLogger(CollectionSizeLoader.class);
+
+    private CollectionSizeLoader() { }
+
+    /**
+     * Counts elements of given uninitialized collection, using given session.
+     *
+     * @return Number of elements, or -1 if they can not be counted without
+     *    initializing the collection
+     */
+    @SuppressWarnings("deprecation")
+    public static int load(PersistentCollection coll, Session session)
+    {
+        final Serializable key = coll.getKey();
+        if (coll.wasInitialized() || (key == null)
+                || !(session instanceof SessionImplementor) || !session.isOpen()) {
+            return -1;
+        }
+        final SessionImplementor si = (SessionImplementor) session;
+        final String role = coll.getRole();
+        try {
+            CollectionPersister persister = si.getFactory().getCollectionPersister(role);
+            return PersisterSizeReader.getSize(persister, key, si);
+        } catch (HibernateException e) {
+            logger.warn("Unable to count elements of collection " + role, e);
+        }
+        return -1;
+    }
+
+    /**
+     * Hibernate 5.2 changed the session parameter type of
+     * {@code CollectionPersister.getSize()} (see
+     * {@link HibernateProxySerializer.ProxySessionReader} for the same issue with
+     * proxies), so with earlier versions the method must be called using reflection.
+     */
+    protected static class PersisterSizeReader {
+        static int getSize(CollectionPersister persister, Serializable key, SessionImplementor session) {
+            if (Hibernate5Version.isHibernate5_2_Plus()) {
+                return persister.getSize(key, session);
+            }
+            return LegacyPersisterSizeReader.getSize(persister, key, session);
+        }
+    }
+
+    /**
+     * Reader of collection sizes for Hibernate versions before 5.2; only loaded
+     * with such versions.
+     */
+    protected static class LegacyPersisterSizeReader {
+        protected static final Method persisterGetSizeMethod;
+        static {
+            Method getSize = null;
+            for (Method m : CollectionPersister.class.getMethods()) {
+                if ("getSize".equals(m.getName()) && (m.getParameterCount() == 2)) {
+                    getSize = m;
+                    break;
+                }
+            }
+            if (getSize == null) {
+                // should never happen: the method exists in all versions of hibernate 5
+                throw new IllegalStateException("No CollectionPersister.getSize() method found");
+            }
+            persisterGetSizeMethod = getSize;
+        }
+
+        static int getSize(CollectionPersister persister, Serializable key, SessionImplementor session) {
+            try {
+                return ((Integer) persisterGetSizeMethod.invoke(persister, key, session)).intValue();
+            } catch (InvocationTargetException e) {
+                // (HibernateExceptions included, for the caller to handle)
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            } catch (IllegalAccessException e) {
+                // Should never happen
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
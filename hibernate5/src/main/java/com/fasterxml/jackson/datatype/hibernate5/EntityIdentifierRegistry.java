@@ -0,0 +1,455 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hibernate.MappingException;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.Mapping;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.LazyInitializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.datatype.hibernate5.HibernateProxySerializer.ProxyReader;
+import com.fasterxml.jackson.datatype.hibernate5.HibernateProxySerializer.ProxySessionReader;
+
+/**
+ * Registry of identifier metadata of entity classes, used when serializing
+ * identifiers of lazy values that are not loaded. Metadata of a class is resolved
+ * once, from the {@link SessionFactory} metamodel (or the {@link Mapping}) if
+ * one was given to the module, otherwise from {@code javax.persistence.Id} and
+ * {@code javax.persistence.EmbeddedId} annotations; accessors are looked up at
+ * the same time, so that reading or writing an identifier needs no further
+ * reflection.
+ *<p>
+ * Identifier names are also kept per entity name (as {@link IdentifierStub}s), for
+ * proxies and elements of collections: with a {@link SessionFactory} all entities
+ * are registered when a stub is first needed, otherwise names are registered as
+ * resolved, and remain available once the session of the proxy is closed. Stubs
+ * also keep the name written for the identifier property, once found.
+ *<p>
+ * Registries are meant to be shared by all serializers of a {@link SessionFactory}
+ * (or {@link Mapping}): see {@link #shared}.
+ *
+ * @since 2.9.7
+ */
+public class EntityIdentifierRegistry
+{
+    private static final Logger logger = LoggerFactory.getLogger(EntityIdentifierRegistry.class);
+
+    /**
+     * Marker used for classes with no (resolvable) identifier, so that they are
+     * only introspected once.
+     */
+    protected final static EntityIdentifier NO_IDENTIFIER = new EntityIdentifier(null, null, null, null, null);
+
+    /**
+     * Registries shared per {@link SessionFactory} (or {@link Mapping}); registries
+     * are only weakly referenced since they refer to their key.
+     */
+    private final static Map<Object, WeakReference<EntityIdentifierRegistry>> _shared =
+            Collections.synchronizedMap(new WeakHashMap<Object, WeakReference<EntityIdentifierRegistry>>());
+
+    protected final Mapping _mapping;
+
+    protected final SessionFactory _sessionFactory;
+
+    protected final ConcurrentHashMap<Class<?>, EntityIdentifier> _identifiers = new ConcurrentHashMap<>();
+
+    protected final ConcurrentHashMap<String, IdentifierStub> _stubs = new ConcurrentHashMap<>();
+
+    /**
+     * Whether all entities of {@link #_sessionFactory} have been registered.
+     */
+    protected volatile boolean _entitiesAdded;
+
+    public EntityIdentifierRegistry(Mapping mapping, SessionFactory sessionFactory) {
+        _mapping = mapping;
+        _sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Factory method for finding the registry for given {@link SessionFactory}
+     * and/or {@link Mapping}: a single registry is shared by all callers passing
+     * the same ones, so that metadata is only resolved once.
+     */
+    public static EntityIdentifierRegistry shared(Mapping mapping, SessionFactory sessionFactory)
+    {
+        final Object key = (sessionFactory != null) ? sessionFactory : mapping;
+        if ((key == null) || ((mapping != null) && (mapping != key))) {
+            // nothing to share by, or a Mapping unrelated to the factory
+            return new EntityIdentifierRegistry(mapping, sessionFactory);
+        }
+        synchronized (_shared) {
+            WeakReference<EntityIdentifierRegistry> ref = _shared.get(key);
+            EntityIdentifierRegistry registry = (ref == null) ? null : ref.get();
+            if (registry == null) {
+                registry = new EntityIdentifierRegistry(mapping, sessionFactory);
+                _shared.put(key, new WeakReference<>(registry));
+            }
+            return registry;
+        }
+    }
+
+    /**
+     * @return Identifier metadata of given entity class, or null if class has no
+     *    identifier that could be resolved
+     */
+    public EntityIdentifier find(Class<?> cls)
+    {
+        EntityIdentifier id = _identifiers.get(cls);
+        if (id == null) {
+            id = _resolve(cls);
+            _identifiers.putIfAbsent(cls, id);
+        }
+        return (id == NO_IDENTIFIER) ? null : id;
+    }
+
+    /**
+     * @return Identifier stub writer registered for given entity name, if any
+     */
+    public IdentifierStub findStub(String entityName)
+    {
+        _addEntitiesIfNeeded();
+        return _stubs.get(entityName);
+    }
+
+    /**
+     * Accessor for the identifier stub writer of the entity of given proxy. If
+     * identifier name of entity is not yet known, it is resolved using metadata of
+     * the proxied class, the {@link Mapping}, or the proxy itself; entity name is
+     * used as the last resort.
+     */
+    public IdentifierStub findStub(LazyInitializer init)
+    {
+        _addEntitiesIfNeeded();
+        final String entityName = init.getEntityName();
+        IdentifierStub stub = _stubs.get(entityName);
+        if (stub != null) {
+            return stub;
+        }
+        String idName;
+        EntityIdentifier id = find(init.getPersistentClass());
+        if (id != null) {
+            idName = id.getName();
+        } else if (_mapping != null) {
+            idName = _mapping.getIdentifierPropertyName(entityName);
+        } else {
+            idName = ProxySessionReader.getIdentifierPropertyName(init);
+            if (idName == null) {
+                idName = ProxyReader.getIdentifierPropertyName(init);
+            }
+        }
+        if (idName == null) {
+            // not cached: may still be resolved using another proxy of the entity
+            return new IdentifierStub(entityName);
+        }
+        return addStub(entityName, init.getPersistentClass(), idName);
+    }
+
+    /**
+     * Method for registering the identifier property name of given entity name,
+     * once resolved.
+     *
+     * @param entityClass Class of the entity, if known: used to find the name
+     *    written for the identifier property
+     *
+     * @return Identifier stub writer to use for the entity name
+     */
+    public IdentifierStub addStub(String entityName, Class<?> entityClass, String idName)
+    {
+        IdentifierStub stub = new IdentifierStub(idName, entityClass);
+        IdentifierStub old = _stubs.putIfAbsent(entityName, stub);
+        return (old == null) ? stub : old;
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    protected void _addEntitiesIfNeeded()
+    {
+        if (!_entitiesAdded && (_sessionFactory != null)) {
+            synchronized (this) {
+                if (!_entitiesAdded) {
+                    _addEntities(_sessionFactory);
+                    _entitiesAdded = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Method for registering identifier names of all entities of given factory
+     * up front, so that proxies never need to be inspected for them.
+     */
+    @SuppressWarnings("deprecation")
+    protected void _addEntities(SessionFactory sessionFactory)
+    {
+        // 5.2 no longer supports `getAllClassMetadata()`, earlier versions have no metamodel
+        if (Hibernate5Version.isHibernate5_2_Plus()) {
+            for (EntityPersister persister : ((SessionFactoryImplementor) sessionFactory).getMetamodel()
+                    .entityPersisters().values()) {
+                _addStub(persister.getEntityName(), persister.getMappedClass(),
+                        persister.getIdentifierPropertyName());
+            }
+        } else {
+            for (Map.Entry<String, ClassMetadata> entry : sessionFactory.getAllClassMetadata().entrySet()) {
+                _addStub(entry.getKey(), entry.getValue().getMappedClass(),
+                        entry.getValue().getIdentifierPropertyName());
+            }
+        }
+    }
+
+    private void _addStub(String entityName, Class<?> entityClass, String idName)
+    {
+        if (idName != null) { // null for non-aggregated composite identifiers
+            addStub(entityName, entityClass, idName);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    protected EntityIdentifier _resolve(Class<?> cls)
+    {
+        String name = null;
+        try {
+            if (_sessionFactory != null) {
+                ClassMetadata metadata = _sessionFactory.getClassMetadata(cls);
+                if (metadata != null) {
+                    name = metadata.getIdentifierPropertyName();
+                }
+            }
+            if ((name == null) && (_mapping != null)) {
+                name = _mapping.getIdentifierPropertyName(cls.getName());
+            }
+        } catch (MappingException e) { // not an entity
+            return NO_IDENTIFIER;
+        }
+        try {
+            Member getter = (name == null) ? _findAnnotatedMember(cls) : _findMember(cls, name);
+            if (getter == null) {
+                return NO_IDENTIFIER;
+            }
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle get, set = null;
+            if (getter.field != null) {
+                getter.field.setAccessible(true);
+                get = lookup.unreflectGetter(getter.field);
+                if (!Modifier.isFinal(getter.field.getModifiers())) {
+                    set = lookup.unreflectSetter(getter.field);
+                }
+            } else {
+                getter.method.setAccessible(true);
+                get = lookup.unreflect(getter.method);
+                Method setter = _findMethod(cls, "set" + _capitalize(getter.name), getter.type);
+                if (setter != null) {
+                    setter.setAccessible(true);
+                    set = lookup.unreflect(setter);
+                } else {
+                    Field field = _findField(cls, getter.name);
+                    if ((field != null) && !Modifier.isFinal(field.getModifiers())) {
+                        field.setAccessible(true);
+                        set = lookup.unreflectSetter(field);
+                    }
+                }
+            }
+            MethodHandle ctor = null;
+            if (!Modifier.isAbstract(cls.getModifiers())) {
+                try {
+                    Constructor<?> c = cls.getDeclaredConstructor();
+                    c.setAccessible(true);
+                    ctor = lookup.unreflectConstructor(c);
+                } catch (NoSuchMethodException e) {
+                    ;
+                }
+            }
+            return new EntityIdentifier(getter.name, getter.type, get, set, ctor);
+        } catch (IllegalAccessException | SecurityException e) {
+            logger.warn("Unable to access identifier of " + cls.getName(), e);
+            return NO_IDENTIFIER;
+        }
+    }
+
+    protected Member _findMember(Class<?> cls, String name)
+    {
+        Field field = _findField(cls, name);
+        if (field != null) {
+            return new Member(name, field, null);
+        }
+        String suffix = _capitalize(name);
+        Method method = _findMethod(cls, "get" + suffix);
+        if (method == null) {
+            method = _findMethod(cls, "is" + suffix);
+        }
+        return (method == null) ? null : new Member(name, null, method);
+    }
+
+    protected Member _findAnnotatedMember(Class<?> cls)
+    {
+        for (Class<?> curr = cls; (curr != null) && (curr != Object.class); curr = curr.getSuperclass()) {
+            for (Field field : curr.getDeclaredFields()) {
+                if (_isIdentifier(field.getDeclaredAnnotations())) {
+                    return new Member(field.getName(), field, null);
+                }
+            }
+            for (Method method : curr.getDeclaredMethods()) {
+                if ((method.getParameterCount() == 0) && _isIdentifier(method.getDeclaredAnnotations())) {
+                    return new Member(_propertyName(method), null, method);
+                }
+            }
+        }
+        return null;
+    }
+
+    protected static boolean _isIdentifier(Annotation[] annotations)
+    {
+        for (Annotation anno : annotations) {
+            String name = anno.annotationType().getName();
+            if (name.equals("javax.persistence.Id") || name.equals("javax.persistence.EmbeddedId")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected static Field _findField(Class<?> cls, String name)
+    {
+        for (Class<?> curr = cls; curr != null; curr = curr.getSuperclass()) {
+            for (Field field : curr.getDeclaredFields()) {
+                if (field.getName().equals(name) && !Modifier.isStatic(field.getModifiers())) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    protected static Method _findMethod(Class<?> cls, String name, Class<?>... paramTypes)
+    {
+        for (Class<?> curr = cls; curr != null; curr = curr.getSuperclass()) {
+            try {
+                return curr.getDeclaredMethod(name, paramTypes);
+            } catch (NoSuchMethodException e) {
+                ;
+            }
+        }
+        return null;
+    }
+
+    protected static String _propertyName(Method method)
+    {
+        String name = method.getName();
+        if (name.startsWith("get") && (name.length() > 3)) {
+            return Character.toLowerCase(name.charAt(3)) + name.substring(4);
+        }
+        if (name.startsWith("is") && (name.length() > 2)) {
+            return Character.toLowerCase(name.charAt(2)) + name.substring(3);
+        }
+        return name;
+    }
+
+    protected static String _capitalize(String name)
+    {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * Field or getter method of an identifier property.
+     */
+    protected static class Member
+    {
+        final String name;
+        final Field field;
+        final Method method;
+        final Class<?> type;
+
+        Member(String name, Field field, Method method) {
+            this.name = name;
+            this.field = field;
+            this.method = method;
+            type = (field != null) ? field.getType() : method.getReturnType();
+        }
+    }
+
+    /**
+     * Identifier metadata of an entity class: name and type of the identifier
+     * property, along with accessors.
+     */
+    public static class EntityIdentifier
+    {
+        protected final String _name;
+
+        protected final Class<?> _type;
+
+        protected final MethodHandle _getter;
+
+        protected final MethodHandle _setter;
+
+        protected final MethodHandle _constructor;
+
+        protected EntityIdentifier(String name, Class<?> type,
+                MethodHandle getter, MethodHandle setter, MethodHandle constructor) {
+            _name = name;
+            _type = type;
+            _getter = getter;
+            _setter = setter;
+            _constructor = constructor;
+        }
+
+        public String getName() { return _name; }
+
+        public Class<?> getType() { return _type; }
+
+        /**
+         * Accessor for the identifier value of given entity.
+         */
+        public Object getValue(Object entity)
+        {
+            try {
+                return _getter.invoke(entity);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("Unable to read identifier '" + _name + "'", t);
+            }
+        }
+
+        /**
+         * Method for creating an instance of the entity class with only the identifier
+         * set.
+         *
+         * @return Instance created, or null if class can not be instantiated, or
+         *    identifier can not be set
+         */
+        public Object newInstance(Object idValue)
+        {
+            if ((_constructor == null) || (_setter == null)) {
+                return null;
+            }
+            try {
+                Object entity = _constructor.invoke();
+                _setter.invoke(entity, idValue);
+                return entity;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("Unable to set identifier '" + _name + "'", t);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module.Feature;
+
+/**
+ * Per-call overrides of the {@link Feature}s that control how lazy values are
+ * written, so that a single mapper (with a single serializer cache) can serialize
+ * with different policies. Overrides are passed as an attribute, keyed by this
+ * class, of the {@link ObjectWriter} used:
+ *<pre>
+ *  mapper.writer()
+ *      .withAttribute(FeatureOverrides.class, FeatureOverrides.empty()
+ *          .with(Feature.FORCE_LAZY_LOADING))
+ *      .writeValueAsString(entity);
+ *</pre>
+ * Only features checked when values are serialized can be overridden (see
+ * {@link #isOverridable}); others affect how serializers are constructed.
+ *
+ * @since 2.9.7
+ */
+public final class FeatureOverrides
+{
+    private final static FeatureOverrides EMPTY = new FeatureOverrides(0, 0);
+
+    /**
+     * Mask of the features that can be overridden per call.
+     */
+    private final static int OVERRIDABLE = Feature.FORCE_LAZY_LOADING.getMask()
+            | Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS.getMask()
+            | Feature.BATCH_LAZY_LOADING.getMask()
+            | Feature.SERIALIZE_SIZE_FOR_LAZY_NOT_LOADED_COLLECTIONS.getMask()
+            | Feature.STREAM_LAZY_COLLECTIONS.getMask();
+
+    private final int _enabled;
+    private final int _disabled;
+
+    private FeatureOverrides(int enabled, int disabled) {
+        _enabled = enabled;
+        _disabled = disabled;
+    }
+
+    public static FeatureOverrides empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Method for checking whether given feature can be overridden per call.
+     */
+    public static boolean isOverridable(Feature f) {
+        return (OVERRIDABLE & f.getMask()) != 0;
+    }
+
+    /**
+     * Fluent factory method for constructing overrides that enable given feature,
+     * in addition to these overrides.
+     *
+     * @throws IllegalArgumentException If feature can not be overridden per call
+     */
+    public FeatureOverrides with(Feature f) {
+        _checkOverridable(f);
+        return new FeatureOverrides(_enabled | f.getMask(), _disabled & ~f.getMask());
+    }
+
+    /**
+     * Fluent factory method for constructing overrides that disable given feature,
+     * in addition to these overrides.
+     *
+     * @throws IllegalArgumentException If feature can not be overridden per call
+     */
+    public FeatureOverrides without(Feature f) {
+        _checkOverridable(f);
+        return new FeatureOverrides(_enabled & ~f.getMask(), _disabled | f.getMask());
+    }
+
+    public FeatureOverrides configure(Feature f, boolean state) {
+        return state ? with(f) : without(f);
+    }
+
+    /**
+     * Method for applying these overrides to given features (of the module).
+     */
+    public int applyTo(int features) {
+        return (features | _enabled) & ~_disabled;
+    }
+
+    /**
+     * Method for finding features in effect for the serialization call of given
+     * provider: given module features, with the overrides of the call applied, if
+     * any.
+     */
+    public static int apply(int features, SerializerProvider provider) {
+        if (provider != null) {
+            Object overrides = provider.getAttribute(FeatureOverrides.class);
+            if (overrides instanceof FeatureOverrides) {
+                return ((FeatureOverrides) overrides).applyTo(features);
+            }
+        }
+        return features;
+    }
+
+    private static void _checkOverridable(Feature f) {
+        if (!isOverridable(f)) {
+            throw new IllegalArgumentException("Feature "+f+" can not be overridden per call");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[FeatureOverrides: enabled=0x%x, disabled=0x%x]", _enabled, _disabled);
+    }
+}
@@ -0,0 +1,144 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+/**
+ * Selection of the properties of entities to write for a serialization call
+ * (sparse fieldset), like <code>customerName,orders.orderNumber</code>: selected
+ * properties are written as usual (including all their contents, unless
+ * properties of their values are selected too), others are skipped without
+ * calling their accessors. Associations that are not selected are thus never
+ * loaded, even with {@link Hibernate5Module.Feature#FORCE_LAZY_LOADING}.
+ * Selection is passed as an attribute, keyed by this class, of the
+ * {@link ObjectWriter} used:
+ *<pre>
+ *  mapper.writer()
+ *      .withAttribute(FieldSelection.class, FieldSelection.parse("customerName,orders.orderNumber"))
+ *      .writeValueAsString(customer);
+ *</pre>
+ * Selection is only applied with {@link Hibernate5Module.Feature#APPLY_FIELD_SELECTION}
+ * enabled, to properties of entities and embeddables (see
+ * {@link FieldSelectionPropertyWriter}), matched by name as written; values of
+ * collections are selected from as a whole. Other beans are written as a whole.
+ *
+ * @since 2.9.7
+ */
+public final class FieldSelection
+{
+    /**
+     * Selection of all properties (of selected values that have no selection of
+     * their own).
+     */
+    public final static FieldSelection ALL = new FieldSelection(null);
+
+    /**
+     * Selections of the properties selected, by name; null for {@link #ALL}.
+     */
+    private final Map<String, FieldSelection> _selected;
+
+    private FieldSelection(Map<String, FieldSelection> selected) {
+        _selected = selected;
+    }
+
+    /**
+     * Factory method for parsing a selection: comma-separated paths of property
+     * names, separated by dots (like <code>customerName,orders.orderNumber</code>).
+     */
+    public static FieldSelection parse(String spec) {
+        return of(spec.split(","));
+    }
+
+    /**
+     * Factory method for constructing a selection of given paths of property
+     * names, separated by dots.
+     */
+    public static FieldSelection of(String... paths) {
+        Map<String, Object> tree = new LinkedHashMap<>();
+        for (String path : paths) {
+            path = path.trim();
+            if (!path.isEmpty()) {
+                _add(tree, path.split("\\."), 0);
+            }
+        }
+        return _build(tree);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void _add(Map<String, Object> tree, String[] names, int index) {
+        String name = names[index].trim();
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Empty property name in selection path '"+String.join(".", names)+"'");
+        }
+        Object sub = tree.get(name);
+        if (sub == ALL) { // already selected as a whole
+            return;
+        }
+        if (index == names.length - 1) {
+            tree.put(name, ALL);
+            return;
+        }
+        if (sub == null) {
+            sub = new LinkedHashMap<String, Object>();
+            tree.put(name, sub);
+        }
+        _add((Map<String, Object>) sub, names, index + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FieldSelection _build(Map<String, Object> tree) {
+        Map<String, FieldSelection> selected = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : tree.entrySet()) {
+            Object sub = entry.getValue();
+            selected.put(entry.getKey(), (sub == ALL) ? ALL : _build((Map<String, Object>) sub));
+        }
+        return new FieldSelection(Collections.unmodifiableMap(selected));
+    }
+
+    /*
+    /**********************************************************************
+    /* Accessors
+    /**********************************************************************
+     */
+
+    public boolean isAll() {
+        return (_selected == null);
+    }
+
+    /**
+     * Method for finding the selection of the value of given property, if it
+     * is selected.
+     *
+     * @return Selection of the property value ({@link #ALL} if selected as a whole),
+     *    or null if property is not selected
+     */
+    public FieldSelection select(String propertyName) {
+        if (_selected == null) {
+            return ALL;
+        }
+        return _selected.get(propertyName);
+    }
+
+    /**
+     * Method for finding the selection in effect for the serialization call of
+     * given provider (for the value being written).
+     *
+     * @return Selection to apply, or null if all properties are written
+     */
+    public static FieldSelection find(SerializerProvider provider) {
+        Object selection = provider.getAttribute(FieldSelection.class);
+        if ((selection instanceof FieldSelection) && !((FieldSelection) selection).isAll()) {
+            return (FieldSelection) selection;
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return isAll() ? "*" : _selected.toString();
+    }
+}
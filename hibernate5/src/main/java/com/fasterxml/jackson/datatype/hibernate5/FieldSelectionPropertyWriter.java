@@ -0,0 +1,116 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+
+/**
+ * {@link BeanPropertyWriter} used for properties of entities (and embeddables),
+ * with {@link Hibernate5Module.Feature#APPLY_FIELD_SELECTION}, to
+ * apply the {@link FieldSelection} of the serialization call, if any: properties
+ * that are not selected are skipped without calling their accessors, so that
+ * their values (like proxies or lazy collections) are not touched at all.
+ * While the value of a selected property is written, its own selection is the
+ * one in effect.
+ *
+ * @since 2.9.7
+ */
+public class FieldSelectionPropertyWriter extends BeanPropertyWriter
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Whether selection is applied; if not, properties are written as usual, without
+     * looking for the selection of the call.
+     */
+    protected final boolean _selectable;
+
+    public FieldSelectionPropertyWriter(BeanPropertyWriter base) {
+        this(base, true);
+    }
+
+    /**
+     * @param selectable Whether selection is applied (sub-classes may only use
+     *    this class for the other features they add)
+     */
+    protected FieldSelectionPropertyWriter(BeanPropertyWriter base, boolean selectable) {
+        super(base);
+        _selectable = selectable;
+    }
+
+    protected FieldSelectionPropertyWriter(FieldSelectionPropertyWriter base, PropertyName name) {
+        super(base, name);
+        _selectable = base._selectable;
+    }
+
+    @Override
+    protected BeanPropertyWriter _new(PropertyName newName) {
+        return new FieldSelectionPropertyWriter(this, newName);
+    }
+
+    /*
+    /**********************************************************************
+    /* Serialization
+    /**********************************************************************
+     */
+
+    @Override
+    public final void serializeAsField(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception
+    {
+        final FieldSelection selection = _selectable ? FieldSelection.find(prov) : null;
+        if (selection == null) {
+            _serializeAsField(bean, gen, prov);
+            return;
+        }
+        FieldSelection selected = selection.select(_name.getValue());
+        if (selected != null) {
+            prov.setAttribute(FieldSelection.class, selected);
+            try {
+                _serializeAsField(bean, gen, prov);
+            } finally {
+                prov.setAttribute(FieldSelection.class, selection);
+            }
+        }
+    }
+
+    @Override
+    public final void serializeAsElement(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception
+    {
+        final FieldSelection selection = _selectable ? FieldSelection.find(prov) : null;
+        if (selection == null) {
+            _serializeAsElement(bean, gen, prov);
+            return;
+        }
+        FieldSelection selected = selection.select(_name.getValue());
+        if (selected == null) {
+            // position is kept, but value not accessed
+            serializeAsPlaceholder(bean, gen, prov);
+            return;
+        }
+        prov.setAttribute(FieldSelection.class, selected);
+        try {
+            _serializeAsElement(bean, gen, prov);
+        } finally {
+            prov.setAttribute(FieldSelection.class, selection);
+        }
+    }
+
+    /**
+     * Method called to write selected property as a field; overridden by
+     * sub-classes instead of {@link #serializeAsField}.
+     */
+    protected void _serializeAsField(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception
+    {
+        super.serializeAsField(bean, gen, prov);
+    }
+
+    /**
+     * Method called to write selected property as an array element; overridden by
+     * sub-classes instead of {@link #serializeAsElement}.
+     */
+    protected void _serializeAsElement(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception
+    {
+        super.serializeAsElement(bean, gen, prov);
+    }
+}
@@ -0,0 +1,486 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import org.hibernate.engine.spi.PersistentAttributeInterceptable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.type.WritableTypeId;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.PropertyMetadata;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.AnnotatedField;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.introspect.AnnotationMap;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.introspect.TypeResolutionContext;
+import com.fasterxml.jackson.databind.introspect.VisibilityChecker;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.impl.PropertySerializerMap;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.type.TypeBindings;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+/**
+ * Base class for entity serializers generated at compile time by the annotation
+ * processor of <code>jackson-datatype-hibernate5-processor</code>: generated
+ * subclasses list the properties Jackson would find for the entity, and read
+ * them with direct accessor calls, so that no bean introspection is needed when
+ * the serializer is constructed, and no reflection when it is used.
+ * <p>
+ * Generated serializers are registered as services (for this class), and used
+ * by {@link HibernateSerializers} for their entity classes when
+ * {@link Hibernate5Module.Feature#USE_GENERATED_SERIALIZERS} is enabled, as long
+ * as configuration of the mapper does not change the properties Jackson would
+ * find (see {@link #isCompatible}); otherwise, the usual bean serializer is used.
+ * Some configuration can not be detected from {@link SerializationConfig} though,
+ * and is not applied by generated serializers:
+ *<ul>
+ * <li>{@link com.fasterxml.jackson.databind.ser.BeanSerializerModifier}s other
+ *   than the one of the module (the module's own handling of lazy attributes
+ *   and {@link FieldSelection} is applied, the latter with
+ *   {@link Hibernate5Module.Feature#APPLY_FIELD_SELECTION});
+ *  </li>
+ * <li>Removal of properties whose type is ignorable
+ *   ({@link AnnotationIntrospector#isIgnorableType}, or
+ *   {@link com.fasterxml.jackson.databind.ObjectMapper#configOverride} of the type).
+ *  </li>
+ *</ul>
+ * Since values of properties are serialized with serializers found for them, like
+ * {@link com.fasterxml.jackson.databind.ser.BeanSerializer} does, proxies, lazy
+ * collections and identifier stubs are handled as usual, and so is the
+ * {@link FieldSelection} of the call.
+ * <p>
+ * The annotation processor only generates serializers for entities that use no
+ * Jackson annotations; bytecode-enhanced entities are never handled by generated
+ * serializers.
+ *
+ * @since 2.9.7
+ */
+public abstract class GeneratedEntitySerializer<T>
+    extends StdSerializer<T>
+    implements ResolvableSerializer
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = LoggerFactory.getLogger(GeneratedEntitySerializer.class);
+
+    /**
+     * Properties of the entity, in the order Jackson would find them in.
+     */
+    protected final PropertyDef[] _propertyDefs;
+
+    /**
+     * Properties to serialize, resolved by {@link #resolve}.
+     */
+    protected ResolvedProperty[] _properties;
+
+    /**
+     * Whether {@link FieldSelection} of the call is applied; set by
+     * {@link HibernateSerializers} on the instances it returns.
+     *
+     * @since 2.9.7
+     */
+    protected boolean _selectable;
+
+    protected GeneratedEntitySerializer(Class<T> entityClass, PropertyDef[] propertyDefs) {
+        super(entityClass);
+        _propertyDefs = propertyDefs;
+    }
+
+    /**
+     * Method called to create a new, unresolved instance of this serializer,
+     * since serializers are resolved for the configuration of a mapper.
+     */
+    protected abstract GeneratedEntitySerializer<T> _new();
+
+    /**
+     * Method implemented by generated subclasses to read value of property with
+     * given index (in {@link #_propertyDefs}) of given entity.
+     */
+    protected abstract Object getValue(T bean, int index);
+
+    /**
+     * Method for finding all generated serializers visible to given class loader.
+     *
+     * @return Generated serializers, keyed by entity class
+     */
+    @SuppressWarnings("rawtypes")
+    public static Map<Class<?>, GeneratedEntitySerializer<?>> findAll(ClassLoader loader)
+    {
+        Map<Class<?>, GeneratedEntitySerializer<?>> serializers = new HashMap<>();
+        Iterator<GeneratedEntitySerializer> it = ServiceLoader.load(GeneratedEntitySerializer.class, loader).iterator();
+        while (true) {
+            try {
+                if (!it.hasNext()) {
+                    break;
+                }
+                GeneratedEntitySerializer<?> ser = it.next();
+                serializers.put(ser.handledType(), ser);
+            } catch (ServiceConfigurationError e) { // stale service entry, most likely
+                logger.warn("Unable to load generated entity serializer", e);
+            }
+        }
+        return serializers;
+    }
+
+    /**
+     * Method for checking whether this serializer writes the same properties the
+     * usual bean serializer would with given configuration: that is, as long as
+     * no mix-ins, configuration overrides, naming strategies, non-default
+     * visibility or ordering, or annotation introspectors other than the default
+     * one and the one of the module (which could rename, filter or ignore
+     * properties based on other annotations) are used for the entity.
+     */
+    public boolean isCompatible(SerializationConfig config)
+    {
+        final Class<?> cls = handledType();
+        if (PersistentAttributeInterceptable.class.isAssignableFrom(cls)
+                || !config.isAnnotationProcessingEnabled()
+                || !_hasDefaultIntrospectors(config)
+                || (config.findMixInClassFor(cls) != null)
+                || (config.findConfigOverride(cls) != null)
+                || (config.getPropertyNamingStrategy() != null)
+                || (config.getDefaultVisibilityChecker() != VisibilityChecker.Std.defaultInstance())
+                || config.isEnabled(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+                || config.isEnabled(MapperFeature.USE_STD_BEAN_NAMING)
+                || config.isEnabled(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS)) {
+            return false;
+        }
+        switch (config.getDefaultPropertyInclusion(cls).getValueInclusion()) {
+        case NON_DEFAULT:
+        case CUSTOM:
+            return false;
+        default:
+            return true;
+        }
+    }
+
+    private static boolean _hasDefaultIntrospectors(SerializationConfig config)
+    {
+        for (AnnotationIntrospector intr : config.getAnnotationIntrospector().allIntrospectors()) {
+            Class<?> cls = intr.getClass();
+            if ((cls != JacksonAnnotationIntrospector.class) && (cls != HibernateAnnotationIntrospector.class)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+    /**********************************************************************
+    /* Resolution
+    /**********************************************************************
+     */
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException
+    {
+        final SerializationConfig config = provider.getConfig();
+        final AnnotationIntrospector intr = config.getAnnotationIntrospector();
+        final JavaType beanType = config.constructType(handledType());
+        List<ResolvedProperty> props = new ArrayList<>(_propertyDefs.length);
+        for (int i = 0; i < _propertyDefs.length; ++i) {
+            AnnotatedMember member = _propertyDefs[i].findMember(beanType, config.getTypeFactory());
+            if ((intr != null) && intr.hasIgnoreMarker(member)) {
+                continue;
+            }
+            props.add(new ResolvedProperty(provider, handledType(), i, _propertyDefs[i].getName(), member));
+        }
+        _properties = props.toArray(new ResolvedProperty[props.size()]);
+    }
+
+    /*
+    /**********************************************************************
+    /* Serialization
+    /**********************************************************************
+     */
+
+    @Override
+    public void serialize(T bean, JsonGenerator g, SerializerProvider provider) throws IOException
+    {
+        g.writeStartObject(bean);
+        serializeFields(bean, g, provider);
+        g.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(T bean, JsonGenerator g, SerializerProvider provider,
+            TypeSerializer typeSer) throws IOException
+    {
+        g.setCurrentValue(bean);
+        WritableTypeId typeIdDef = typeSer.writeTypePrefix(g, typeSer.typeId(bean, JsonToken.START_OBJECT));
+        serializeFields(bean, g, provider);
+        typeSer.writeTypeSuffix(g, typeIdDef);
+    }
+
+    protected void serializeFields(T bean, JsonGenerator g, SerializerProvider provider) throws IOException
+    {
+        // properties have no views: only included with default view inclusion
+        if ((provider.getActiveView() != null) && !provider.isEnabled(MapperFeature.DEFAULT_VIEW_INCLUSION)) {
+            return;
+        }
+        final ResolvedProperty[] props = _properties;
+        final FieldSelection selection = _selectable ? FieldSelection.find(provider) : null;
+        int i = 0;
+        try {
+            for (final int len = props.length; i < len; ++i) {
+                final ResolvedProperty prop = props[i];
+                if (selection == null) {
+                    prop.serialize(getValue(bean, prop._index), g, provider);
+                    continue;
+                }
+                // same as FieldSelectionPropertyWriter: unselected values not accessed
+                FieldSelection selected = selection.select(prop._name.getValue());
+                if (selected != null) {
+                    provider.setAttribute(FieldSelection.class, selected);
+                    try {
+                        prop.serialize(getValue(bean, prop._index), g, provider);
+                    } finally {
+                        provider.setAttribute(FieldSelection.class, selection);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            wrapAndThrow(provider, e, bean, props[i]._name.getValue());
+        } catch (StackOverflowError e) {
+            JsonMappingException mapE = new JsonMappingException(g, "Infinite recursion (StackOverflowError)", e);
+            mapE.prependPath(new JsonMappingException.Reference(bean, props[i]._name.getValue()));
+            throw mapE;
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    /**
+     * Definition of a property, as found by the annotation processor: name of the
+     * property, and names of its getter and field (if any), that are used for
+     * finding its annotations.
+     */
+    public static final class PropertyDef
+    {
+        protected final String _name;
+        protected final String _getterName;
+        protected final String _fieldName;
+
+        protected PropertyDef(String name, String getterName, String fieldName) {
+            _name = name;
+            _getterName = getterName;
+            _fieldName = fieldName;
+        }
+
+        /**
+         * Factory method for property read with a (public) getter; field is the
+         * one with the same name as the property, if any.
+         */
+        public static PropertyDef getter(String name, String getterName, String fieldName) {
+            return new PropertyDef(name, getterName, fieldName);
+        }
+
+        /**
+         * Factory method for property read from a public field.
+         */
+        public static PropertyDef field(String name, String fieldName) {
+            return new PropertyDef(name, null, fieldName);
+        }
+
+        public String getName() { return _name; }
+
+        /**
+         * Method for constructing the member used for reading the property,
+         * annotated with annotations of both getter and field (getter
+         * annotations having precedence), like Jackson would. Type of the member
+         * is resolved with type parameters of the class declaring it, as bound
+         * by given bean type (for members of generic superclasses).
+         */
+        protected AnnotatedMember findMember(JavaType beanType, TypeFactory typeFactory)
+            throws JsonMappingException
+        {
+            final Class<?> beanClass = beanType.getRawClass();
+            Field field = (_fieldName == null) ? null : _findField(beanClass, _fieldName);
+            try {
+                if (_getterName != null) {
+                    Method getter = beanClass.getMethod(_getterName);
+                    AnnotationMap annotations = _annotations(getter.getDeclaredAnnotations(), null);
+                    if (field != null) {
+                        annotations = _annotations(field.getDeclaredAnnotations(), annotations);
+                    }
+                    return new AnnotatedMethod(_typeContext(beanType, getter.getDeclaringClass(), typeFactory),
+                            getter, annotations, null);
+                }
+            } catch (NoSuchMethodException e) {
+                throw new JsonMappingException(null, "Generated serializer for "+beanClass.getName()
+                    +" out of date: no getter '"+_getterName+"()'", e);
+            }
+            if (field == null) {
+                throw new JsonMappingException(null, "Generated serializer for "+beanClass.getName()
+                    +" out of date: no field '"+_fieldName+"'");
+            }
+            return new AnnotatedField(_typeContext(beanType, field.getDeclaringClass(), typeFactory),
+                    field, _annotations(field.getDeclaredAnnotations(), null));
+        }
+
+        private static TypeResolutionContext _typeContext(JavaType beanType, Class<?> declaringClass,
+                TypeFactory typeFactory)
+        {
+            JavaType declaringType = beanType.findSuperType(declaringClass);
+            return new TypeResolutionContext.Basic(typeFactory, (declaringType == null)
+                    ? TypeBindings.emptyBindings() : declaringType.getBindings());
+        }
+
+        private static Field _findField(Class<?> beanClass, String name)
+        {
+            for (Class<?> cls = beanClass; (cls != null) && (cls != Object.class); cls = cls.getSuperclass()) {
+                try {
+                    return cls.getDeclaredField(name);
+                } catch (NoSuchFieldException e) { }
+            }
+            return null;
+        }
+
+        private static AnnotationMap _annotations(Annotation[] anns, AnnotationMap map)
+        {
+            if (map == null) {
+                map = new AnnotationMap();
+            }
+            for (Annotation ann : anns) {
+                map.addIfNotPresent(ann);
+            }
+            return map;
+        }
+    }
+
+    /**
+     * Property to serialize, with its serializers and inclusion criteria resolved
+     * for the configuration used, in the same way
+     * {@link com.fasterxml.jackson.databind.ser.BeanPropertyWriter} resolves them.
+     */
+    protected static final class ResolvedProperty
+    {
+        protected final int _index;
+
+        protected final SerializableString _name;
+
+        protected final BeanProperty _property;
+
+        /**
+         * Declared type of the property, if it has type parameters: runtime types
+         * are specialized from it.
+         */
+        protected final JavaType _nonTrivialBaseType;
+
+        /**
+         * Serializer for values, if declared type is final; otherwise serializers
+         * are found for runtime types.
+         */
+        protected final JsonSerializer<Object> _serializer;
+
+        protected PropertySerializerMap _dynamicSerializers;
+
+        protected final TypeSerializer _typeSerializer;
+
+        protected final boolean _suppressNulls;
+
+        protected final boolean _suppressEmpty;
+
+        public ResolvedProperty(SerializerProvider provider, Class<?> beanClass, int index, String name,
+                AnnotatedMember member) throws JsonMappingException
+        {
+            final JavaType type = member.getType();
+            _index = index;
+            _name = new SerializedString(name);
+            _property = new BeanProperty.Std(PropertyName.construct(name), type, null, member,
+                    PropertyMetadata.STD_OPTIONAL);
+            _typeSerializer = provider.findTypeSerializer(type);
+            if (type.isFinal() || provider.isEnabled(MapperFeature.USE_STATIC_TYPING)) {
+                _serializer = provider.findValueSerializer(type, _property);
+                _nonTrivialBaseType = null;
+            } else {
+                _serializer = null;
+                _nonTrivialBaseType = (type.isContainerType() || (type.containedTypeCount() > 0)) ? type : null;
+            }
+            _dynamicSerializers = PropertySerializerMap.emptyForProperties();
+
+            JsonInclude.Value incl = provider.getConfig().getDefaultInclusion(beanClass, type.getRawClass());
+            switch (incl.getValueInclusion()) {
+            case NON_EMPTY:
+                _suppressNulls = true;
+                _suppressEmpty = true;
+                break;
+            case NON_ABSENT:
+                _suppressNulls = true;
+                _suppressEmpty = type.isReferenceType();
+                break;
+            case NON_NULL:
+                _suppressNulls = true;
+                _suppressEmpty = false;
+                break;
+            default:
+                _suppressNulls = false;
+                _suppressEmpty = false;
+            }
+        }
+
+        public void serialize(Object value, JsonGenerator g, SerializerProvider provider) throws Exception
+        {
+            if (value == null) {
+                if (!_suppressNulls) {
+                    g.writeFieldName(_name);
+                    provider.defaultSerializeNull(g);
+                }
+                return;
+            }
+            JsonSerializer<Object> ser = _serializer;
+            if (ser == null) {
+                Class<?> cls = value.getClass();
+                ser = _dynamicSerializers.serializerFor(cls);
+                if (ser == null) {
+                    PropertySerializerMap.SerializerAndMapResult result = (_nonTrivialBaseType == null)
+                        ? _dynamicSerializers.findAndAddSecondarySerializer(cls, provider, _property)
+                        : _dynamicSerializers.findAndAddSecondarySerializer(
+                                provider.constructSpecializedType(_nonTrivialBaseType, cls), provider, _property);
+                    _dynamicSerializers = result.map;
+                    ser = result.serializer;
+                }
+            }
+            if (_suppressEmpty && ser.isEmpty(provider, value)) {
+                return;
+            }
+            g.writeFieldName(_name);
+            if (_typeSerializer == null) {
+                ser.serialize(value, g, provider);
+            } else {
+                ser.serializeWithType(value, g, provider, _typeSerializer);
+            }
+        }
+    }
+}
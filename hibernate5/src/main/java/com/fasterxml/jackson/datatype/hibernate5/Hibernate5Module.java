@@ -3,6 +3,7 @@ package com.fasterxml.jackson.datatype.hibernate5;
 import com.fasterxml.jackson.core.Version;
 import com.fasterxml.jackson.databind.AnnotationIntrospector;
 import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hibernate.SessionFactory;
 import org.hibernate.engine.spi.Mapping;
 
@@ -10,12 +11,20 @@ public class Hibernate5Module extends Module
 {
     /**
      * Enumeration that defines all toggleable features this module
+     *<p>
+     * Features that control how lazy values are written may also be overridden
+     * for a single serialization call, see {@link FeatureOverrides}.
      */
     public enum Feature {
         /**
          * Whether lazy-loaded object should be forced to be loaded and then serialized
          * (true); or serialized as nulls (false).
          *<p>
+         * If module is constructed with a {@link SessionFactory}, and the mapper uses
+         * {@link HibernateSerializerProvider}, collections of detached entities are
+         * also loaded, using a single read-only session per serialization call
+         * (see {@link LoadingSession}).
+         *<p>
          * Default value is false.
          */
         FORCE_LAZY_LOADING(false),
@@ -42,7 +51,11 @@ public class Hibernate5Module extends Module
 	     * <li>the id property is mapped with property access (for instance because the {@code @Id}
 	     * annotation is applied to a method rather than a field)</li>
 	     * </ul>
-	     * Otherwise, the entity name will be used instead. 
+	     * Otherwise, the entity name will be used instead.
+	     * <p>
+	     * Uninitialized collections of entities are serialized as Arrays (or, for maps, Objects)
+	     * of such identifier Objects, selected without loading the elements (see
+	     * {@link CollectionIdentifierLoader}).
 	     */
         SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS(false),
 
@@ -77,7 +90,114 @@ public class Hibernate5Module extends Module
          *
          * @since 2.8.2
          */
-        REPLACE_PERSISTENT_COLLECTIONS(false)
+        REPLACE_PERSISTENT_COLLECTIONS(false),
+
+        /**
+         * If FORCE_LAZY_LOADING is true, this feature makes the initialization of an
+         * uninitialized {@link org.hibernate.collection.spi.PersistentCollection} also
+         * initialize all other uninitialized collections of the same role attached to
+         * the same session, using one query per batch of owners instead of one query
+         * per collection.
+         * Since collections of the same role are typically found at the same depth of
+         * the serialized graph, this effectively loads the graph level by level.
+         * <p>
+         * Likewise, the initialization of an uninitialized {@link org.hibernate.proxy.HibernateProxy}
+         * that is the value of a property of an element of a collection being written
+         * also initializes the proxies that are values of the same property of the
+         * other elements, with one multi-id load (see {@link ProxyBatchLoader}).
+         * <p>
+         * Has no effect if FORCE_LAZY_LOADING is false, or if the collection (or proxy)
+         * is not attached to an open session.
+         * <p>
+         * Default value is false.
+         *
+         * @since 2.9.7
+         */
+        BATCH_LAZY_LOADING(false),
+
+        /**
+         * If FORCE_LAZY_LOADING is false, this feature serializes uninitialized
+         * {@link org.hibernate.collection.spi.PersistentCollection}s as their number
+         * of elements (a JSON Number) rather than <code>null</code>. Elements are
+         * counted by the size query of the collection persister (same as used for
+         * extra-lazy collections), so collection is not initialized
+         * (see {@link CollectionSizeLoader}).
+         * <p>
+         * Has priority over {@link #SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS}
+         * for collections. Collections not attached to an open session can only be
+         * counted if a {@link org.hibernate.SessionFactory} is provided to the module,
+         * and the mapper uses {@link HibernateSerializerProvider}.
+         * <p>
+         * Default value is false.
+         *
+         * @since 2.9.7
+         */
+        SERIALIZE_SIZE_FOR_LAZY_NOT_LOADED_COLLECTIONS(false),
+
+        /**
+         * If FORCE_LAZY_LOADING is true, this feature makes uninitialized
+         * {@link org.hibernate.collection.spi.PersistentCollection}s (other than maps)
+         * be streamed instead of initialized: elements are read one at a time with a
+         * forward-only {@link org.hibernate.ScrollableResults}, in a child session of
+         * the session of the collection that is cleared once elements are written,
+         * so that memory use does not grow with the size of the collection.
+         * Collection itself stays uninitialized
+         * (see {@link CollectionElementLoader.ElementStream}).
+         * <p>
+         * Elements are written with the serializers of the collection property, like
+         * those of initialized collections; collections with custom serializers are
+         * initialized instead. {@link JsonLazyLimit} has priority over this Feature.
+         * Lazy associations of elements are loaded while rows are still open, which
+         * requires a JDBC driver supporting multiple open result sets per connection.
+         * <p>
+         * Default value is false.
+         *
+         * @since 2.9.7
+         */
+        STREAM_LAZY_COLLECTIONS(false),
+
+        /**
+         * Feature that determines what happens when content of a {@link java.sql.Blob}
+         * or {@link java.sql.Clob} can not be read during serialization (for example,
+         * because it is a locator of a transaction that has ended): if enabled,
+         * serialization fails; if disabled, LOB is written as null, like uninitialized
+         * lazy values are.
+         * <p>
+         * Default value is false.
+         *
+         * @since 2.9.7
+         */
+        FAIL_ON_UNREADABLE_LOBS(false),
+
+        /**
+         * Whether entity serializers generated at compile time by the annotation
+         * processor of <code>jackson-datatype-hibernate5-processor</code> (if any are
+         * found on the class path) are used instead of serializers built with bean
+         * introspection, for mappers configured so that both write the same
+         * properties (see {@link GeneratedEntitySerializer}).
+         * <p>
+         * Note that {@link com.fasterxml.jackson.databind.ser.BeanSerializerModifier}s
+         * of other modules (or of the application) are not applied to entities
+         * written by generated serializers, so this feature should only be enabled
+         * if no such modifier is needed for entities.
+         * <p>
+         * Default value is false.
+         *
+         * @since 2.9.7
+         */
+        USE_GENERATED_SERIALIZERS(false),
+
+        /**
+         * Whether the {@link FieldSelection} given as an attribute of the serialization
+         * call (if any) is applied to properties of entities and embeddables. Since
+         * properties then have to look for the selection of the call when written,
+         * this feature should only be enabled if selections are used.
+         * <p>
+         * Default value is false.
+         *
+         * @since 2.9.7
+         */
+        APPLY_FIELD_SELECTION(false)
         ;
 
         final boolean _defaultState;
@@ -138,6 +258,17 @@ public class Hibernate5Module extends Module
         this(mapping, null);
     }
 
+    /**
+     * Constructor for a module that can also load (or count, or select identifiers
+     * of) lazy collections of detached entities, using a read-only session of given
+     * factory per serialization call; this requires the mapper to use
+     * {@link HibernateSerializerProvider}, which has to be set explicitly:
+     *<pre>
+     *  ObjectMapper mapper = new ObjectMapper()
+     *      .registerModule(new Hibernate5Module(sessionFactory));
+     *  mapper.setSerializerProvider(new HibernateSerializerProvider());
+     *</pre>
+     */
     public Hibernate5Module(SessionFactory sessionFactory) {
         this(null, sessionFactory);
     }
@@ -161,8 +292,9 @@ public class Hibernate5Module extends Module
         if (ai != null) {
             context.appendAnnotationIntrospector(ai);
         }
-        context.addSerializers(new HibernateSerializers(_mapping, _moduleFeatures));
-        context.addBeanSerializerModifier(new HibernateSerializerModifier(_mapping, _moduleFeatures, _sessionFactory));
+        EntityIdentifierRegistry identifiers = EntityIdentifierRegistry.shared(_mapping, _sessionFactory);
+        context.addSerializers(new HibernateSerializers(_mapping, _moduleFeatures, identifiers));
+        context.addBeanSerializerModifier(new HibernateSerializerModifier(_mapping, _moduleFeatures, _sessionFactory, identifiers));
     }
 
     /**
@@ -175,6 +307,21 @@ public class Hibernate5Module extends Module
         return ai;
     }
     
+    /**
+     * Method for resolving serializers of all entities, proxies and collection
+     * roles mapped by given session factory ahead of time, so that they are
+     * cached by given mapper (which should have this module registered) before
+     * the first serialization call; usually called once during application
+     * startup (see {@link SerializerWarmUp}).
+     *
+     * @return Summary of serializers resolved, including time taken
+     *
+     * @since 2.9.7
+     */
+    public static SerializerWarmUp.Result warmUp(ObjectMapper mapper, SessionFactory sessionFactory) {
+        return SerializerWarmUp.warmUp(mapper, sessionFactory);
+    }
+
     /*
     /**********************************************************************
     /* Extended API, configuration
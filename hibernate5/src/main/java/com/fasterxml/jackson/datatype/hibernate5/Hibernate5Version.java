@@ -1,38 +1,68 @@
 package com.fasterxml.jackson.datatype.hibernate5;
 
+import org.hibernate.Version;
+
 public class Hibernate5Version {
 
+    /**
+     * Version is read (and parsed) only once, using {@link Version} directly:
+     * neither class lookup by name nor package metadata (that is not available
+     * in native images) is needed.
+     *
+     * @since 2.9.7
+     */
+    private final static String VERSION = _findVersion();
+
+    private final static boolean IS_5_1_PLUS = _isAtLeast(VERSION, 1);
+
+    private final static boolean IS_5_2_PLUS = _isAtLeast(VERSION, 2);
+
     public static String getHibernateVersion(){
-        try {
-            return Class.forName("org.hibernate.Version").getPackage().getImplementationVersion();
-        } catch (Exception e) {
-            // Should not happen: hibernate not found in the classpath
-            throw new RuntimeException(e);
-        }
+        return VERSION;
     }
 
     public static boolean isHibernate5_2_Plus(){
-        String version = getHibernateVersion();
-        String[] split = version.split("\\.");
-        int isV5 = split[0].compareTo("5");
-        if(isV5 != 0){
-            return isV5 > 0;
-        }
-        int isV52 = split[1].compareTo("2");
-        return isV52 >= 0;
+        return IS_5_2_PLUS;
+    }
+
+    /**
+     * @since 2.9.7
+     */
+    public static boolean isHibernate5_1_Plus(){
+        return IS_5_1_PLUS;
     }
 
     public static Class<?> getTransactionCoordinatorClass() {
+        if (IS_5_2_PLUS) {
+            return org.hibernate.resource.transaction.spi.TransactionCoordinator.class;
+        }
         try {
             return Class.forName("org.hibernate.resource.transaction.TransactionCoordinator");
         } catch (ClassNotFoundException e) {
-            try {
-                return Class.forName("org.hibernate.resource.transaction.spi.TransactionCoordinator");
-            } catch (Exception e2) {
-                // should never happen
-                throw new RuntimeException(e); 
-            }
+            // should never happen
+            throw new RuntimeException(e);
         }
     }
 
+    private static String _findVersion() {
+        String version = Version.getVersionString();
+        if ((version == null) || version.isEmpty() || !Character.isDigit(version.charAt(0))) {
+            // Should not happen: version not replaced in the build of hibernate
+            version = Version.class.getPackage().getImplementationVersion();
+        }
+        return version;
+    }
+
+    private static boolean _isAtLeast(String version, int minor5) {
+        if (version == null) {
+            // version unknown: assume the latest
+            return true;
+        }
+        String[] split = version.split("\\.");
+        int isV5 = split[0].compareTo("5");
+        if(isV5 != 0){
+            return isV5 > 0;
+        }
+        return (split.length < 2) || (split[1].compareTo(String.valueOf(minor5)) >= 0);
+    }
 }
@@ -99,9 +99,12 @@ public class HibernateAnnotationIntrospector extends AnnotationIntrospector
 
         public FieldHandlerChecker() {
             Class<?> cls = null;
-            try {
-                cls = Class.forName(FIELD_HANDLER_INTERFACE);
-            } catch (Throwable t) { }
+            // no need to look for it with versions it was removed from
+            if (!Hibernate5Version.isHibernate5_1_Plus()) {
+                try {
+                    cls = Class.forName(FIELD_HANDLER_INTERFACE);
+                } catch (Throwable t) { }
+            }
             _handlerClass = cls;
         }
 
@@ -2,8 +2,15 @@ package com.fasterxml.jackson.datatype.hibernate5;
 
 import java.beans.Introspector;
 import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.hibernate.engine.spi.Mapping;
 import org.hibernate.engine.spi.SessionFactoryImplementor;
@@ -15,6 +22,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.WritableTypeId;
 import com.fasterxml.jackson.databind.BeanProperty;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonMappingException;
@@ -24,6 +33,7 @@ import com.fasterxml.jackson.databind.jsonFormatVisitors.JsonFormatVisitorWrappe
 import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
 import com.fasterxml.jackson.databind.ser.ContextualSerializer;
 import com.fasterxml.jackson.databind.ser.impl.PropertySerializerMap;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module.Feature;
 
 /**
  * Serializer to use for values proxied using
@@ -42,12 +52,80 @@ public class HibernateProxySerializer extends JsonSerializer<HibernateProxy> imp
     protected final BeanProperty    _property;
     protected final boolean         _forceLazyLoading;
     protected final boolean         _serializeIdentifier;
+    /**
+     * Whether proxies are initialized along with those of the same property of
+     * the other elements of the collection being written (see {@link ProxyBatchLoader}).
+     *
+     * @since 2.9.7
+     */
+    protected final boolean         _batchLazyLoading;
+    /**
+     * Whether per-call {@link FeatureOverrides} apply; not for properties with
+     * their own mode ({@link JsonLazy}).
+     *
+     * @since 2.9.7
+     */
+    protected final boolean         _overridable;
     protected final Mapping         _mapping;
+    /**
+     * Identifier metadata of entity classes, used to create instances with only
+     * the identifier set.
+     *
+     * @since 2.9.7
+     */
+    protected final EntityIdentifierRegistry _identifiers;
     /**
      * For efficient serializer lookup, let's use this; most of the time,
      * there's just one type and one serializer.
+     *<p>
+     * Instances are shared by all threads using the mapper: map is immutable, and
+     * updated using compare-and-set so that concurrent additions are not lost.
+     */
+    protected volatile PropertySerializerMap _dynamicSerializers;
+
+    private final static AtomicReferenceFieldUpdater<HibernateProxySerializer, PropertySerializerMap> DYNAMIC_SERIALIZERS
+        = AtomicReferenceFieldUpdater.newUpdater(HibernateProxySerializer.class, PropertySerializerMap.class, "_dynamicSerializers");
+
+    /**
+     * Entity class proxies handled by this serializer are generated for, if known;
+     * proxied values of exactly that class are written with {@link #_entitySerializer}
+     * without dynamic lookup.
+     *
+     * @since 2.9.7
      */
-    protected PropertySerializerMap _dynamicSerializers;
+    protected final Class<?> _entityClass;
+
+    /**
+     * Serializer for {@link #_entityClass}, resolved on first use.
+     *
+     * @since 2.9.7
+     */
+    protected volatile JsonSerializer<Object> _entitySerializer;
+
+    /**
+     * For serializers of {@link #_entityClass} shared by mappers (see
+     * {@link #withEntityClass}): serializers actually used by each mapper, keyed
+     * by the serializer of the entity class in the serializer cache of the mapper,
+     * so that serializers resolved for the configuration of one mapper are not used
+     * by others. Null for serializers used by a single mapper.
+     *<p>
+     * Values are only weakly referenced (they are kept by the serializer caches of
+     * the mappers, and keep their keys), so that nothing is retained for discarded
+     * mappers.
+     *
+     * @since 2.9.7
+     */
+    protected final Map<JsonSerializer<?>, Reference<HibernateProxySerializer>> _mapperSerializers;
+
+    /**
+     * For serializers used by a mapper for all proxies of {@link #_entityClass}:
+     * canonical serializers of properties, so that proxy classes of the entity share
+     * the instance of each property (along with the serializers it resolves).
+     * Null for other serializers.
+     *
+     * @since 2.9.7
+     */
+    protected final ConcurrentHashMap<BeanProperty, HibernateProxySerializer> _propertySerializers;
 
     /*
      * /**********************************************************************
@@ -67,16 +145,140 @@ public class HibernateProxySerializer extends JsonSerializer<HibernateProxy> imp
     }
 
     public HibernateProxySerializer(boolean forceLazyLoading, boolean serializeIdentifier, Mapping mapping, BeanProperty property) {
+        this(forceLazyLoading, serializeIdentifier, mapping, EntityIdentifierRegistry.shared(mapping, null), property);
+    }
+
+    /**
+     * @since 2.9.7
+     */
+    public HibernateProxySerializer(boolean forceLazyLoading, boolean serializeIdentifier, Mapping mapping,
+            EntityIdentifierRegistry identifiers, BeanProperty property) {
+        this(forceLazyLoading, serializeIdentifier, false, mapping, identifiers, property);
+    }
+
+    /**
+     * @since 2.9.7
+     */
+    public HibernateProxySerializer(boolean forceLazyLoading, boolean serializeIdentifier, boolean batchLazyLoading,
+            Mapping mapping, EntityIdentifierRegistry identifiers, BeanProperty property) {
         _forceLazyLoading = forceLazyLoading;
         _serializeIdentifier = serializeIdentifier;
+        _batchLazyLoading = batchLazyLoading;
+        _overridable = true;
         _mapping = mapping;
+        _identifiers = identifiers;
+        _dynamicSerializers = PropertySerializerMap.emptyForProperties();
+        _property = property;
+        _entityClass = null;
+        _mapperSerializers = null;
+        _propertySerializers = null;
+    }
+
+    /**
+     * @since 2.9.7
+     */
+    protected HibernateProxySerializer(HibernateProxySerializer base, BeanProperty property, Class<?> entityClass) {
+        this(base, property, entityClass, base._forceLazyLoading, base._serializeIdentifier, base._overridable, null, null);
+    }
+
+    /**
+     * Constructor for serializers of properties with their own mode (see
+     * {@link JsonLazy}), that per-call overrides do not apply to.
+     *
+     * @since 2.9.7
+     */
+    protected HibernateProxySerializer(HibernateProxySerializer base, BeanProperty property, Class<?> entityClass,
+            boolean forceLazyLoading, boolean serializeIdentifier) {
+        this(base, property, entityClass, forceLazyLoading, serializeIdentifier, false, null, null);
+    }
+
+    private HibernateProxySerializer(HibernateProxySerializer base, BeanProperty property, Class<?> entityClass,
+            boolean forceLazyLoading, boolean serializeIdentifier, boolean overridable,
+            Map<JsonSerializer<?>, Reference<HibernateProxySerializer>> mapperSerializers,
+            ConcurrentHashMap<BeanProperty, HibernateProxySerializer> propertySerializers) {
+        _forceLazyLoading = forceLazyLoading;
+        _serializeIdentifier = serializeIdentifier;
+        _batchLazyLoading = base._batchLazyLoading;
+        _overridable = overridable;
+        _mapping = base._mapping;
+        _identifiers = base._identifiers;
         _dynamicSerializers = PropertySerializerMap.emptyForProperties();
         _property = property;
+        _entityClass = entityClass;
+        _mapperSerializers = mapperSerializers;
+        _propertySerializers = propertySerializers;
+    }
+
+    /**
+     * Fluent factory for creating a serializer for proxies of given entity class,
+     * that may be shared by all proxy classes of the entity class, and by mappers:
+     * serializers actually used are resolved for each mapper (see {@link #_mapperSerializers}).
+     *
+     * @since 2.9.7
+     */
+    public HibernateProxySerializer withEntityClass(Class<?> entityClass) {
+        if ((entityClass == _entityClass) && (_mapperSerializers != null)) {
+            return this;
+        }
+        return new HibernateProxySerializer(this, _property, entityClass, _forceLazyLoading, _serializeIdentifier,
+                _overridable, Collections.synchronizedMap(new WeakHashMap<JsonSerializer<?>, Reference<HibernateProxySerializer>>()),
+                null);
+    }
+
+    /**
+     * Helper method for finding the serializer to use for the mapper of given
+     * provider, for serializers shared by mappers; created on first use.
+     *
+     * @since 2.9.7
+     */
+    protected HibernateProxySerializer _forMapper(SerializerProvider provider) throws JsonMappingException {
+        // same instance for the whole serializer cache, whatever the proxy class
+        JsonSerializer<Object> key = provider.findValueSerializer(_entityClass);
+        synchronized (_mapperSerializers) {
+            Reference<HibernateProxySerializer> ref = _mapperSerializers.get(key);
+            HibernateProxySerializer ser = (ref == null) ? null : ref.get();
+            if (ser == null) {
+                ser = new HibernateProxySerializer(this, _property, _entityClass, _forceLazyLoading,
+                        _serializeIdentifier, _overridable, null, new ConcurrentHashMap<BeanProperty, HibernateProxySerializer>());
+                _mapperSerializers.put(key, new WeakReference<HibernateProxySerializer>(ser));
+            }
+            return ser;
+        }
     }
 
     @Override
-    public JsonSerializer<?> createContextual(SerializerProvider prov, BeanProperty property) {
-        return new HibernateProxySerializer(this._forceLazyLoading, _serializeIdentifier, _mapping, property);
+    public JsonSerializer<?> createContextual(SerializerProvider prov, BeanProperty property) throws JsonMappingException {
+        if (_mapperSerializers != null) {
+            return _forMapper(prov).createContextual(prov, property);
+        }
+        if (property == _property) {
+            return this;
+        }
+        if (_propertySerializers != null) {
+            // one instance per property, whatever the proxy class
+            HibernateProxySerializer ser = _propertySerializers.get(property);
+            if (ser == null) {
+                ser = _forProperty(property);
+                HibernateProxySerializer old = _propertySerializers.putIfAbsent(property, ser);
+                if (old != null) {
+                    ser = old;
+                }
+            }
+            return ser;
+        }
+        return _forProperty(property);
+    }
+
+    private HibernateProxySerializer _forProperty(BeanProperty property) {
+        // Mode of the property, if any, is resolved once here instead of for each value
+        JsonLazy lazy = (property == null) ? null : property.getAnnotation(JsonLazy.class);
+        if (lazy != null) {
+            int features = lazy.mode().applyTo(_features(null));
+            return new HibernateProxySerializer(this, property, _entityClass,
+                    Feature.FORCE_LAZY_LOADING.enabledIn(features),
+                    Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS.enabledIn(features));
+        }
+        return new HibernateProxySerializer(this, property, _entityClass);
     }
 
     /*
@@ -86,12 +288,23 @@ public class HibernateProxySerializer extends JsonSerializer<HibernateProxy> imp
      */
     @Override
     public boolean isEmpty(SerializerProvider provider, HibernateProxy value) {
-        return (value == null) || (findProxied(value) == null);
+        if (value == null) {
+            return true;
+        }
+        if (_writesIdentifier(value.getHibernateLazyInitializer(), provider)) {
+            return false;
+        }
+        return (findProxied(value, provider) == null);
     }
 
     @Override
     public void serialize(HibernateProxy value, JsonGenerator g, SerializerProvider provider) throws IOException {
-        Object proxiedValue = findProxied(value);
+        LazyInitializer init = value.getHibernateLazyInitializer();
+        if (_writesIdentifier(init, provider)) {
+            findIdentifierStub(init).serialize(init.getIdentifier(), g, provider);
+            return;
+        }
+        Object proxiedValue = findProxied(value, provider);
         // TODO: figure out how to suppress nulls, if necessary? (too late for that here)
         if (proxiedValue == null) {
             provider.defaultSerializeNull(g);
@@ -102,7 +315,16 @@ public class HibernateProxySerializer extends JsonSerializer<HibernateProxy> imp
 
     @Override
     public void serializeWithType(HibernateProxy value, JsonGenerator g, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
-        Object proxiedValue = findProxied(value);
+        LazyInitializer init = value.getHibernateLazyInitializer();
+        if (_writesIdentifier(init, provider)) {
+            // type id is that of the entity, not the proxy class
+            WritableTypeId typeIdDef = typeSer.writeTypePrefix(g,
+                    typeSer.typeId(value, init.getPersistentClass(), JsonToken.START_OBJECT));
+            findIdentifierStub(init).serializeContents(init.getIdentifier(), g, provider);
+            typeSer.writeTypeSuffix(g, typeIdDef);
+            return;
+        }
+        Object proxiedValue = findProxied(value, provider);
         if (proxiedValue == null) {
             provider.defaultSerializeNull(g);
             return;
@@ -137,7 +359,18 @@ public class HibernateProxySerializer extends JsonSerializer<HibernateProxy> imp
          * TODO: if Hibernate did use generics, or we wanted to allow use of
          * Jackson annotations to indicate type, should take that into account.
          */
+        if (_mapperSerializers != null) { // not contextualized: not to keep serializers of a mapper
+            return _forMapper(provider).findSerializer(provider, value);
+        }
         Class<?> type = value.getClass();
+        if (type == _entityClass) {
+            JsonSerializer<Object> ser = _entitySerializer;
+            if (ser == null) {
+                ser = provider.findPrimaryPropertySerializer(type, _property);
+                _entitySerializer = ser;
+            }
+            return ser;
+        }
         /*
          * we will use a map to contain serializers found so far, keyed by type:
          * this avoids potentially costly lookup from global caches and/or
@@ -148,11 +381,74 @@ public class HibernateProxySerializer extends JsonSerializer<HibernateProxy> imp
          * secondary is really anyone's guess at this point; proxies can exist
          * at any level?
          */
-        PropertySerializerMap.SerializerAndMapResult result = _dynamicSerializers.findAndAddPrimarySerializer(type, provider, _property);
-        if (_dynamicSerializers != result.map) {
-            _dynamicSerializers = result.map;
+        PropertySerializerMap map = _dynamicSerializers;
+        JsonSerializer<Object> ser = map.serializerFor(type);
+        if (ser != null) {
+            return ser;
+        }
+        PropertySerializerMap.SerializerAndMapResult result = map.findAndAddPrimarySerializer(type, provider, _property);
+        ser = result.serializer;
+        PropertySerializerMap newMap = result.map;
+        // another thread may have added an entry meanwhile: retry on top of its map
+        while ((newMap != map) && !DYNAMIC_SERIALIZERS.compareAndSet(this, map, newMap)) {
+            map = _dynamicSerializers;
+            if (map.serializerFor(type) != null) {
+                break;
+            }
+            newMap = map.newWith(type, ser);
+        }
+        return ser;
+    }
+
+    /**
+     * Helper method for checking whether given proxy is to be written as
+     * an identifier stub.
+     */
+    protected boolean _writesIdentifier(LazyInitializer init) {
+        return _writesIdentifier(init, null);
+    }
+
+    /**
+     * Helper method for checking whether given proxy is to be written as
+     * an identifier stub by the serialization call of given provider.
+     *
+     * @since 2.9.7
+     */
+    protected boolean _writesIdentifier(LazyInitializer init, SerializerProvider provider) {
+        final int features = _features(provider);
+        return Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS.enabledIn(features)
+                && !Feature.FORCE_LAZY_LOADING.enabledIn(features) && init.isUninitialized();
+    }
+
+    /**
+     * Helper method for finding features in effect for the serialization call of
+     * given provider: those of the module, with the overrides of the call applied
+     * (see {@link FeatureOverrides}).
+     *
+     * @since 2.9.7
+     */
+    protected int _features(SerializerProvider provider) {
+        int features = 0;
+        if (_forceLazyLoading) {
+            features |= Feature.FORCE_LAZY_LOADING.getMask();
         }
-        return result.serializer;
+        if (_serializeIdentifier) {
+            features |= Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS.getMask();
+        }
+        if (_batchLazyLoading) {
+            features |= Feature.BATCH_LAZY_LOADING.getMask();
+        }
+        return _overridable ? FeatureOverrides.apply(features, provider) : features;
+    }
+
+    /**
+     * Helper method for finding the writer of the identifier stub of given proxy;
+     * writers are shared by all proxies of the same entity.
+     *
+     * @since 2.9.7
+     */
+    protected IdentifierStub findIdentifierStub(LazyInitializer init) {
+        return _identifiers.findStub(init);
     }
 
     /**
@@ -160,35 +456,26 @@ public class HibernateProxySerializer extends JsonSerializer<HibernateProxy> imp
      * it is to be forced to be loaded.
      */
     protected Object findProxied(HibernateProxy proxy) {
+        return findProxied(proxy, null);
+    }
+
+    /**
+     * Helper method for finding value being proxied, if it is available or if
+     * it is to be forced to be loaded by the serialization call of given provider.
+     *
+     * @since 2.9.7
+     */
+    protected Object findProxied(HibernateProxy proxy, SerializerProvider provider) {
+        final int features = _features(provider);
         LazyInitializer init = proxy.getHibernateLazyInitializer();
-        if (!_forceLazyLoading && init.isUninitialized()) {
-            if (_serializeIdentifier) {
-                String idName;
-                if (_mapping != null) {
-                    idName = _mapping.getIdentifierPropertyName(init.getEntityName());
-                } else {
-                    idName = ProxySessionReader.getIdentifierPropertyName(init);
-                    if (idName == null) {
-                        idName = ProxyReader.getIdentifierPropertyName(init);
-                        if (idName == null) {
-                            idName = init.getEntityName();
-                        }
-                    }
-                }
-                final Object idValue = init.getIdentifier();
-                try {
-                    logger.debug("entity name:{}", init.getEntityName());
-                    final Object obj = Class.forName(init.getEntityName()).newInstance();
-                    ReflectionUtil.setFieldValue(obj, idName, idValue);
-                    return obj;
-                } catch (InstantiationException | IllegalAccessException | ClassNotFoundException | SecurityException e) {
-                    logger.error("Unable to find proxied", e);
-                    return null;
-                }
-                //return ImmutableMap.of("type", init.getEntityName(), idName, idValue);
-            }
+        if (!Feature.FORCE_LAZY_LOADING.enabledIn(features) && init.isUninitialized()) {
+            // (proxies written as identifiers never get here: see _writesIdentifier)
             return null;
         }
+        if (init.isUninitialized() && (provider != null) && Feature.BATCH_LAZY_LOADING.enabledIn(features)) {
+            // also initializes proxies of the same property of the other elements being written
+            ProxyBatchLoader.initialize(init, provider, _property);
+        }
         return init.getImplementation();
     }
 
@@ -201,15 +488,19 @@ public class HibernateProxySerializer extends JsonSerializer<HibernateProxy> imp
      * ...
      */
     protected static class ProxyReader {
-        // static final so the JVM can inline the lookup
-        private static final Field getIdentifierMethodField;
-        static {
+        // static final so the JVM can inline the lookup; null if field can not be
+        // accessed (like in a native image where it is not registered for reflection)
+        private static final Field getIdentifierMethodField = _findField();
+
+        private static Field _findField() {
             try {
-                getIdentifierMethodField = BasicLazyInitializer.class.getDeclaredField("getIdentifierMethod");
-                getIdentifierMethodField.setAccessible(true);
+                Field f = BasicLazyInitializer.class.getDeclaredField("getIdentifierMethod");
+                f.setAccessible(true);
+                return f;
             } catch (Exception e) {
-                // should never happen: the field exists in all versions of hibernate 4 and 5
-                throw new RuntimeException(e);
+                // the field exists in all versions of hibernate 4 and 5, but may not be accessible
+                logger.debug("Unable to access BasicLazyInitializer.getIdentifierMethod", e);
+                return null;
             }
         }
 
@@ -218,6 +509,9 @@ public class HibernateProxySerializer extends JsonSerializer<HibernateProxy> imp
          *         could not be determined
          */
         static String getIdentifierPropertyName(LazyInitializer init) {
+            if ((getIdentifierMethodField == null) || !(init instanceof BasicLazyInitializer)) {
+                return null;
+            }
             try {
                 Method idGetter = (Method) getIdentifierMethodField.get(init);
                 if (idGetter == null) {
@@ -247,6 +541,62 @@ public class HibernateProxySerializer extends JsonSerializer<HibernateProxy> imp
      * org.hibernate.internal.SessionImpl is returned from getSession().
      */
     protected static class ProxySessionReader {
+        static String getIdentifierPropertyName(LazyInitializer init) {
+            final SessionImplementor session = getSession(init);
+            if (session != null) {
+                SessionFactoryImplementor factory = session.getFactory();
+                return factory.getIdentifierPropertyName(init.getEntityName());
+            }
+            return null;
+        }
+
+        /**
+         * @return Session the proxy is attached to, if any
+         *
+         * @since 2.9.7
+         */
+        static SessionImplementor getSession(LazyInitializer init) {
+            final Object session = _getSession(init);
+            if (session instanceof SessionImplementor) {
+                return (SessionImplementor) session;
+            } else if (session != null) {
+                // Should never happen: session should be an instance of org.hibernate.internal.SessionImpl
+                // factory = session.getClass().getMethod("getFactory").invoke(session);
+                throw new RuntimeException("Session is not instance of SessionImplementor");
+            }
+            return null;
+        }
+
+        /**
+         * @return Session the proxy is attached to, if any and if it is a
+         *    {@link SessionImplementor}: null for proxies of other sessions (like
+         *    lazy associations of entities loaded by a {@link org.hibernate.StatelessSession}
+         *    with Hibernate 5.2), with which proxies can only be initialized one by one
+         *
+         * @since 2.9.7
+         */
+        static SessionImplementor findSessionImplementor(LazyInitializer init) {
+            final Object session = _getSession(init);
+            return (session instanceof SessionImplementor) ? (SessionImplementor) session : null;
+        }
+
+        private static Object _getSession(LazyInitializer init) {
+            if (Hibernate5Version.isHibernate5_2_Plus()) {
+                // no reflection needed with the version module is compiled against
+                return init.getSession();
+            }
+            return LegacySessionReader.getSession(init);
+        }
+    }
+
+    /**
+     * Reader of the session of proxies for Hibernate versions before 5.2, for which
+     * {@code LazyInitializer.getSession()} must be called using reflection; only
+     * loaded with such versions.
+     *
+     * @since 2.9.7
+     */
+    protected static class LegacySessionReader {
         /**
          * The getSession method must be executed using reflection for
          * compatibility purpose. For efficiency keep the method cached.
@@ -261,23 +611,13 @@ public class HibernateProxySerializer extends JsonSerializer<HibernateProxy> imp
             }
         }
 
-        static String getIdentifierPropertyName(LazyInitializer init) {
-            final Object session;
+        static Object getSession(LazyInitializer init) {
             try {
-                session = lazyInitializerGetSessionMethod.invoke(init);
+                return lazyInitializerGetSessionMethod.invoke(init);
             } catch (Exception e) {
                 // Should never happen
                 throw new RuntimeException(e);
             }
-            if (session instanceof SessionImplementor) {
-                SessionFactoryImplementor factory = ((SessionImplementor) session).getFactory();
-                return factory.getIdentifierPropertyName(init.getEntityName());
-            } else if (session != null) {
-                // Should never happen: session should be an instance of org.hibernate.internal.SessionImpl
-                // factory = session.getClass().getMethod("getFactory").invoke(session);
-                throw new RuntimeException("Session is not instance of SessionImplementor");
-            }
-            return null;
         }
     }
 }
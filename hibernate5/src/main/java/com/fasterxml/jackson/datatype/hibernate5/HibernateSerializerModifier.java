@@ -1,26 +1,55 @@
 package com.fasterxml.jackson.datatype.hibernate5;
 
+import java.util.List;
+
+import javax.persistence.Embeddable;
+import javax.persistence.Entity;
+
 import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
 import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
 import com.fasterxml.jackson.databind.type.CollectionType;
 import com.fasterxml.jackson.databind.type.MapType;
+import org.hibernate.HibernateException;
 import org.hibernate.SessionFactory;
 import org.hibernate.engine.spi.Mapping;
+import org.hibernate.engine.spi.PersistentAttributeInterceptable;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 
 public class HibernateSerializerModifier
     extends BeanSerializerModifier
 {
+    /**
+     * Whether lazy attributes of bytecode-enhanced entities can be detected with
+     * the Hibernate version used.
+     */
+    private final static boolean ENHANCEMENT_SUPPORTED = LazyAttributePropertyWriter.isSupported();
+
     protected final Mapping _mapping;
     protected final int _features;
 
     protected final SessionFactory _sessionFactory;
 
+    /**
+     * @since 2.9.7
+     */
+    protected final EntityIdentifierRegistry _identifiers;
+
     public HibernateSerializerModifier(Mapping mapping, int features, SessionFactory sessionFactory) {
+        this(mapping, features, sessionFactory, EntityIdentifierRegistry.shared(mapping, sessionFactory));
+    }
+
+    /**
+     * @since 2.9.7
+     */
+    public HibernateSerializerModifier(Mapping mapping, int features, SessionFactory sessionFactory,
+            EntityIdentifierRegistry identifiers) {
         _mapping = mapping;
         _features = features;
         _sessionFactory = sessionFactory;
+        _identifiers = identifiers;
     }
     
     /*
@@ -31,15 +60,80 @@ public class HibernateSerializerModifier
     }
     */
 
+    @Override
+    public List<BeanPropertyWriter> changeProperties(SerializationConfig config,
+            BeanDescription beanDesc, List<BeanPropertyWriter> beanProperties) {
+        // Entities with bytecode enhancement: unloaded lazy attributes are not to be loaded
+        // (unless forced, which may be overridden per call so it is checked when writing)
+        if (PersistentAttributeInterceptable.class.isAssignableFrom(beanDesc.getBeanClass())
+                && ENHANCEMENT_SUPPORTED) {
+            for (int i = 0, len = beanProperties.size(); i < len; ++i) {
+                BeanPropertyWriter writer = beanProperties.get(i);
+                // only plain writers: sub-classes (like virtual properties) would lose their behavior
+                if (writer.getClass() == BeanPropertyWriter.class) {
+                    beanProperties.set(i, new LazyAttributePropertyWriter(writer, _features));
+                }
+            }
+        } else if (Hibernate5Module.Feature.APPLY_FIELD_SELECTION.enabledIn(_features)
+                && _isPersistent(beanDesc)) {
+            // Entities (and embeddables): properties not selected for the call are not accessed
+            // (lazy attribute writers above apply the selection as well)
+            for (int i = 0, len = beanProperties.size(); i < len; ++i) {
+                BeanPropertyWriter writer = beanProperties.get(i);
+                if (writer.getClass() == BeanPropertyWriter.class) { // same as above
+                    beanProperties.set(i, new FieldSelectionPropertyWriter(writer));
+                }
+            }
+        }
+        return beanProperties;
+    }
+
+    /**
+     * Helper method for checking whether given bean is an entity or embeddable,
+     * whose properties {@link FieldSelection} applies to: either annotated as such,
+     * or mapped by the session factory of the module, if any (for types mapped
+     * in XML, like <code>orm.xml</code>).
+     *
+     * @since 2.9.7
+     */
+    protected boolean _isPersistent(BeanDescription beanDesc) {
+        if ((beanDesc.getClassAnnotations().get(Entity.class) != null)
+                || (beanDesc.getClassAnnotations().get(Embeddable.class) != null)) {
+            return true;
+        }
+        return (_sessionFactory != null) && _isMapped(beanDesc.getBeanClass());
+    }
+
+    /**
+     * Helper method for checking whether given class is mapped by the session
+     * factory: as a managed type of its metamodel with Hibernate 5.2, which has
+     * embeddables as well; earlier versions have no metamodel, so only entities
+     * are found there.
+     *
+     * @since 2.9.7
+     */
+    @SuppressWarnings("deprecation")
+    protected boolean _isMapped(Class<?> cls) {
+        try {
+            if (Hibernate5Version.isHibernate5_2_Plus()) {
+                ((SessionFactoryImplementor) _sessionFactory).getMetamodel().managedType(cls);
+                return true;
+            }
+            return (_sessionFactory.getClassMetadata(cls) != null);
+        } catch (IllegalArgumentException | HibernateException e) { // not mapped
+            return false;
+        }
+    }
+
     @Override
     public JsonSerializer<?> modifyCollectionSerializer(SerializationConfig config,
             CollectionType valueType, BeanDescription beanDesc, JsonSerializer<?> serializer) {
-        return new PersistentCollectionSerializer(valueType, serializer, _mapping, _features, _sessionFactory);
+        return PersistentCollectionSerializers.construct(valueType, serializer, _mapping, _features, _sessionFactory, _identifiers);
     }
 
     @Override
     public JsonSerializer<?> modifyMapSerializer(SerializationConfig config,
             MapType valueType, BeanDescription beanDesc, JsonSerializer<?> serializer) {
-        return new PersistentCollectionSerializer(valueType, serializer, _mapping, _features, _sessionFactory);
+        return PersistentCollectionSerializers.construct(valueType, serializer, _mapping, _features, _sessionFactory, _identifiers);
     }
 }
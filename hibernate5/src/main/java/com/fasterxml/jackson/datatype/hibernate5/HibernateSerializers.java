@@ -1,5 +1,11 @@
 package com.fasterxml.jackson.datatype.hibernate5;
 
+import java.sql.Blob;
+import java.sql.Clob;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonSerializer;
@@ -12,17 +18,82 @@ public class HibernateSerializers extends Serializers.Base
 {
     protected final boolean _forceLoading;
     protected final boolean _serializeIdentifiers;
+
+    /**
+     * @since 2.9.7
+     */
+    protected final boolean _batchLoading;
+
+    /**
+     * Whether generated serializers apply {@link FieldSelection}.
+     *
+     * @since 2.9.7
+     */
+    protected final boolean _fieldSelection;
     protected final Mapping _mapping;
 
+    /**
+     * @since 2.9.7
+     */
+    protected final EntityIdentifierRegistry _identifiers;
+
+    /**
+     * Serializers for LOB values, streaming their content.
+     *
+     * @since 2.9.7
+     */
+    protected final BlobSerializer _blobSerializer;
+    protected final ClobSerializer _clobSerializer;
+
+    /**
+     * Serializers generated at compile time for entity classes, used as
+     * prototypes for the serializers returned; empty if
+     * {@link Hibernate5Module.Feature#USE_GENERATED_SERIALIZERS} is disabled.
+     *
+     * @since 2.9.7
+     */
+    protected final Map<Class<?>, GeneratedEntitySerializer<?>> _generatedSerializers;
+
+    /**
+     * Serializers for proxies, by entity class: shared by all proxy classes of the
+     * entity class, and by mappers using this instance (see
+     * {@link HibernateProxySerializer#withEntityClass}).
+     *
+     * @since 2.9.7
+     */
+    protected final ConcurrentHashMap<Class<?>, HibernateProxySerializer> _proxySerializers
+        = new ConcurrentHashMap<>();
+
     public HibernateSerializers(int features) {
         this(null, features);
     }
 
     public HibernateSerializers(Mapping mapping, int features)
+    {
+        this(mapping, features, EntityIdentifierRegistry.shared(mapping, null));
+    }
+
+    /**
+     * @since 2.9.7
+     */
+    public HibernateSerializers(Mapping mapping, int features, EntityIdentifierRegistry identifiers)
     {
         _forceLoading = Hibernate5Module.Feature.FORCE_LAZY_LOADING.enabledIn(features);
         _serializeIdentifiers = Hibernate5Module.Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS.enabledIn(features);
+        _batchLoading = Hibernate5Module.Feature.BATCH_LAZY_LOADING.enabledIn(features);
+        _fieldSelection = Hibernate5Module.Feature.APPLY_FIELD_SELECTION.enabledIn(features);
         _mapping = mapping;
+        _identifiers = identifiers;
+        boolean failOnUnreadableLobs = Hibernate5Module.Feature.FAIL_ON_UNREADABLE_LOBS.enabledIn(features);
+        _blobSerializer = new BlobSerializer(failOnUnreadableLobs);
+        _clobSerializer = new ClobSerializer(failOnUnreadableLobs);
+        if (Hibernate5Module.Feature.USE_GENERATED_SERIALIZERS.enabledIn(features)) {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            _generatedSerializers = GeneratedEntitySerializer.findAll((loader == null)
+                    ? HibernateSerializers.class.getClassLoader() : loader);
+        } else {
+            _generatedSerializers = Collections.emptyMap();
+        }
     }
 
     @Override
@@ -31,8 +102,59 @@ public class HibernateSerializers extends Serializers.Base
     {
         Class<?> raw = type.getRawClass();
         if (HibernateProxy.class.isAssignableFrom(raw)) {
-            return new HibernateProxySerializer(_forceLoading, _serializeIdentifiers, _mapping);
+            Class<?> entityClass = findEntityClass(raw);
+            if (entityClass == null) {
+                // New instance for each lookup: it is cached by the serializer cache of the
+                // mapper, along with serializers it resolves for the configuration of the mapper;
+                // instances of Serializers are shared by copies of the mapper.
+                return new HibernateProxySerializer(_forceLoading, _serializeIdentifiers,
+                        _batchLoading, _mapping, _identifiers, null);
+            }
+            HibernateProxySerializer ser = _proxySerializers.get(entityClass);
+            if (ser == null) {
+                ser = new HibernateProxySerializer(_forceLoading, _serializeIdentifiers,
+                        _batchLoading, _mapping, _identifiers, null).withEntityClass(entityClass);
+                HibernateProxySerializer old = _proxySerializers.putIfAbsent(entityClass, ser);
+                if (old != null) {
+                    ser = old;
+                }
+            }
+            return ser;
+        }
+        if (Blob.class.isAssignableFrom(raw)) {
+            return _blobSerializer;
+        }
+        if (Clob.class.isAssignableFrom(raw)) {
+            return _clobSerializer;
+        }
+        GeneratedEntitySerializer<?> generated = _generatedSerializers.get(raw);
+        if ((generated != null) && generated.isCompatible(config)) {
+            // resolved for the configuration of the mapper, so not shared
+            GeneratedEntitySerializer<?> ser = generated._new();
+            ser._selectable = _fieldSelection;
+            return ser;
         }
         return null;
     }
+
+    /**
+     * Helper method for finding the entity class given proxy class was generated
+     * for, that is, its closest superclass that is not a proxy.
+     *
+     * @return Entity class, or null if proxy class does not extend one (interface
+     *    based proxies, or declared type being {@link HibernateProxy} itself)
+     *
+     * @since 2.9.7
+     */
+    protected Class<?> findEntityClass(Class<?> proxyClass)
+    {
+        Class<?> cls = proxyClass;
+        while ((cls != null) && HibernateProxy.class.isAssignableFrom(cls)) {
+            cls = cls.getSuperclass();
+        }
+        if ((cls == null) || (cls == Object.class)) {
+            return null;
+        }
+        return cls;
+    }
 }
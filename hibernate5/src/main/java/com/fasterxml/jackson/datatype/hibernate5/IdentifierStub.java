@@ -0,0 +1,165 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.type.WritableTypeId;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+/**
+ * Writer of the <code>{"identifierName":"identifierValue"}</code> Object used to
+ * represent an entity that is not loaded (see
+ * {@link Hibernate5Module.Feature#SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS}).
+ * Object is written directly, without creating an instance of the entity; the
+ * identifier value itself (including embedded identifiers) is written using its
+ * own serializer, same as when the entity is loaded.
+ * <p>
+ * Name of the identifier property is also the one written for loaded entities:
+ * if the entity class is known, it is found from the bean properties of the class
+ * (so that renaming with {@code @JsonProperty}, or by a
+ * {@link com.fasterxml.jackson.databind.PropertyNamingStrategy}, applies), and
+ * kept per serializer of the class it was found for (that is, once per mapper).
+ * <p>
+ * Instances only depend on the entity name, and are cached by
+ * {@link EntityIdentifierRegistry}.
+ *
+ * @since 2.9.7
+ */
+public class IdentifierStub
+{
+    /**
+     * Name of the identifier property, as mapped.
+     */
+    protected final SerializableString _name;
+
+    /**
+     * Entity class, if known.
+     */
+    protected final Class<?> _entityClass;
+
+    /**
+     * Name written for the identifier property by the latest serializer of
+     * {@link #_entityClass} used, checked first.
+     */
+    protected volatile WrittenName _writtenName;
+
+    /**
+     * Names written for the identifier property by all serializers of
+     * {@link #_entityClass} used (one per mapper), weakly keyed so that nothing
+     * is kept for discarded mappers.
+     */
+    protected final Map<JsonSerializer<?>, SerializableString> _writtenNames
+        = Collections.synchronizedMap(new WeakHashMap<JsonSerializer<?>, SerializableString>());
+
+    public IdentifierStub(String name) {
+        this(name, null);
+    }
+
+    public IdentifierStub(String name, Class<?> entityClass) {
+        _name = new SerializedString(name);
+        _entityClass = entityClass;
+    }
+
+    public String getName() {
+        return _name.getValue();
+    }
+
+    public Class<?> getEntityClass() {
+        return _entityClass;
+    }
+
+    public void serialize(Object id, JsonGenerator g, SerializerProvider provider) throws IOException
+    {
+        g.writeStartObject();
+        serializeContents(id, g, provider);
+        g.writeEndObject();
+    }
+
+    /**
+     * Method for writing the Object along with the type id of given entity class,
+     * same as the type id written for a loaded entity.
+     */
+    public void serializeWithType(Object id, Class<?> entityClass, JsonGenerator g, SerializerProvider provider,
+            TypeSerializer typeSer) throws IOException
+    {
+        // no value: type id is resolved from the entity class only
+        WritableTypeId typeIdDef = typeSer.writeTypePrefix(g,
+                typeSer.typeId(null, entityClass, JsonToken.START_OBJECT));
+        serializeContents(id, g, provider);
+        typeSer.writeTypeSuffix(g, typeIdDef);
+    }
+
+    /**
+     * Method for writing the identifier property only, without enclosing START/END
+     * markers; used when those are written by a type serializer.
+     */
+    public void serializeContents(Object id, JsonGenerator g, SerializerProvider provider) throws IOException
+    {
+        g.writeFieldName(_writtenName(provider));
+        if (id == null) {
+            provider.defaultSerializeNull(g);
+        } else {
+            provider.findValueSerializer(id.getClass()).serialize(id, g, provider);
+        }
+    }
+
+    /**
+     * Helper method for finding the name written for the identifier property by
+     * the mapper of given provider.
+     */
+    protected SerializableString _writtenName(SerializerProvider provider) throws JsonMappingException
+    {
+        if (_entityClass == null) {
+            return _name;
+        }
+        JsonSerializer<Object> ser = provider.findValueSerializer(_entityClass);
+        WrittenName written = _writtenName;
+        if ((written == null) || (written.serializer != ser)) {
+            // another mapper (or the first one): only introspected once per mapper
+            SerializableString name = _writtenNames.get(ser);
+            if (name == null) {
+                name = _findWrittenName(provider);
+                _writtenNames.put(ser, name);
+            }
+            written = new WrittenName(ser, name);
+            _writtenName = written;
+        }
+        return written.name;
+    }
+
+    protected SerializableString _findWrittenName(SerializerProvider provider)
+    {
+        for (BeanPropertyDefinition prop : provider.getConfig()
+                .introspect(provider.constructType(_entityClass)).findProperties()) {
+            if (_name.getValue().equals(prop.getInternalName())) {
+                return prop.getName().equals(_name.getValue()) ? _name : new SerializedString(prop.getName());
+            }
+        }
+        return _name;
+    }
+
+    /**
+     * Name written for the identifier property, along with the serializer of the
+     * entity class it was found for.
+     */
+    protected final static class WrittenName
+    {
+        final JsonSerializer<?> serializer;
+        final SerializableString name;
+
+        WrittenName(JsonSerializer<?> serializer, SerializableString name) {
+            this.serializer = serializer;
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotation;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module.Feature;
+
+/**
+ * Annotation that may be used on lazily loaded properties (associations and
+ * collections) to choose how their values are written when not loaded yet,
+ * regardless of the module-wide {@link Feature}s; for example, to force loading
+ * of one association of an entity, write another one as identifiers, and leave
+ * the rest as nulls.
+ *<p>
+ * Annotation is read when serializers are contextualized for the property, so
+ * the mode is fixed for the property: per-call {@link FeatureOverrides} do not
+ * apply to it.
+ *<p>
+ * Annotation also acts as the explicit marker of laziness, for
+ * {@link Feature#REQUIRE_EXPLICIT_LAZY_LOADING_MARKER}.
+ *
+ * @since 2.9.7
+ */
+@Target({ElementType.ANNOTATION_TYPE, ElementType.METHOD, ElementType.FIELD})
+@Retention(RetentionPolicy.RUNTIME)
+@JacksonAnnotation
+public @interface JsonLazy
+{
+    /**
+     * How values not loaded yet are written.
+     */
+    public Mode mode();
+
+    public enum Mode {
+        /**
+         * Values are loaded and written, as with {@link Feature#FORCE_LAZY_LOADING}.
+         */
+        FORCE,
+
+        /**
+         * Values are written as identifiers (of entities, or of collection elements),
+         * as with {@link Feature#SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS}.
+         */
+        IDENTIFIER,
+
+        /**
+         * Values are written as nulls (or omitted, if nulls are not included).
+         */
+        NULL,
+
+        /**
+         * Collections are written as their element counts, as with
+         * {@link Feature#SERIALIZE_SIZE_FOR_LAZY_NOT_LOADED_COLLECTIONS}; other
+         * values as nulls.
+         */
+        SIZE;
+
+        private final static int LAZY_FEATURES = Feature.FORCE_LAZY_LOADING.getMask()
+                | Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS.getMask()
+                | Feature.SERIALIZE_SIZE_FOR_LAZY_NOT_LOADED_COLLECTIONS.getMask();
+
+        /**
+         * Method for finding features to use for a property with this mode, given
+         * those of the module: features choosing how values not loaded are written
+         * are replaced, others (like {@link Feature#BATCH_LAZY_LOADING}) kept.
+         */
+        public int applyTo(int features) {
+            features &= ~LAZY_FEATURES;
+            switch (this) {
+            case FORCE:
+                return features | Feature.FORCE_LAZY_LOADING.getMask();
+            case IDENTIFIER:
+                return features | Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS.getMask();
+            case SIZE:
+                return features | Feature.SERIALIZE_SIZE_FOR_LAZY_NOT_LOADED_COLLECTIONS.getMask();
+            default:
+                return features;
+            }
+        }
+    }
+}
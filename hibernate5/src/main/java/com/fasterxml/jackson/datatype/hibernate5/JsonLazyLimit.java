@@ -0,0 +1,37 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotation;
+
+/**
+ * Annotation that may be used on lazily loaded collection properties (not maps)
+ * to only serialize the first {@link #maxElements} elements. If the collection is
+ * to be loaded (with {@link Hibernate5Module.Feature#FORCE_LAZY_LOADING}), only those
+ * elements are selected from the database, instead of initializing the collection
+ * (see {@link CollectionElementLoader}).
+ *<p>
+ * If {@link #writeTotal} is enabled, collection is written as
+ * <code>{"total":n,"elements":[...]}</code>, where <code>total</code> is the
+ * number of elements of the whole collection.
+ *
+ * @since 2.9.7
+ */
+@Target({ElementType.ANNOTATION_TYPE, ElementType.METHOD, ElementType.FIELD})
+@Retention(RetentionPolicy.RUNTIME)
+@JacksonAnnotation
+public @interface JsonLazyLimit
+{
+    /**
+     * Maximum number of elements to serialize; must be positive.
+     */
+    public int maxElements();
+
+    /**
+     * Whether the total number of elements is written along with the elements.
+     */
+    public boolean writeTotal() default false;
+}
@@ -0,0 +1,142 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import org.hibernate.bytecode.enhance.spi.interceptor.LazyAttributeLoadingInterceptor;
+import org.hibernate.engine.spi.PersistentAttributeInterceptable;
+import org.hibernate.engine.spi.PersistentAttributeInterceptor;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+
+/**
+ * {@link BeanPropertyWriter} used for properties of entities compiled with
+ * Hibernate bytecode enhancement ({@link PersistentAttributeInterceptable}s):
+ * lazy attributes of such entities (like <code>@Basic(fetch=LAZY)</code> ones, or
+ * <code>@LazyToOne(NO_PROXY)</code> associations) have no proxy, and reading them
+ * loads them. Unless lazy loading is forced, attributes that are not loaded yet
+ * are instead written as nulls (or omitted, if nulls are not included), the same
+ * way uninitialized proxies are, without calling the accessor.
+ *<p>
+ * Note that identifiers of unloaded associations are not known without loading
+ * them, so they are written as nulls with
+ * {@link Hibernate5Module.Feature#SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS} too.
+ *<p>
+ * Like for other entities, {@link FieldSelection} of the call applies as well, with
+ * {@link Hibernate5Module.Feature#APPLY_FIELD_SELECTION}.
+ *
+ * @since 2.9.7
+ */
+public class LazyAttributePropertyWriter extends FieldSelectionPropertyWriter
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Name of the persistent attribute property is for.
+     */
+    protected final String _attributeName;
+
+    /**
+     * Module features, checked (with per-call {@link FeatureOverrides} applied)
+     * for {@link Hibernate5Module.Feature#FORCE_LAZY_LOADING}.
+     */
+    protected final int _features;
+
+    public LazyAttributePropertyWriter(BeanPropertyWriter base) {
+        this(base, 0);
+    }
+
+    public LazyAttributePropertyWriter(BeanPropertyWriter base, int features) {
+        super(base, Hibernate5Module.Feature.APPLY_FIELD_SELECTION.enabledIn(features));
+        _attributeName = _findAttributeName(base.getMember());
+        _features = features;
+    }
+
+    protected LazyAttributePropertyWriter(LazyAttributePropertyWriter base, PropertyName name) {
+        super(base, name);
+        _attributeName = base._attributeName;
+        _features = base._features;
+    }
+
+    @Override
+    protected BeanPropertyWriter _new(PropertyName newName) {
+        return new LazyAttributePropertyWriter(this, newName);
+    }
+
+    /**
+     * Method for checking whether bytecode enhancement is supported by the
+     * Hibernate version used, that is, whether lazy attributes can be detected.
+     */
+    public static boolean isSupported() {
+        try {
+            Class.forName("org.hibernate.bytecode.enhance.spi.interceptor.LazyAttributeLoadingInterceptor",
+                    false, PersistentAttributeInterceptable.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Serialization
+    /**********************************************************************
+     */
+
+    @Override
+    protected void _serializeAsField(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception
+    {
+        if (isLoaded(bean, prov)) {
+            super._serializeAsField(bean, gen, prov);
+        } else if (_suppressNulls) {
+            serializeAsOmittedField(bean, gen, prov);
+        } else {
+            gen.writeFieldName(_name);
+            serializeAsPlaceholder(bean, gen, prov);
+        }
+    }
+
+    @Override
+    protected void _serializeAsElement(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception
+    {
+        if (isLoaded(bean, prov)) {
+            super._serializeAsElement(bean, gen, prov);
+        } else {
+            serializeAsPlaceholder(bean, gen, prov);
+        }
+    }
+
+    /**
+     * Method for checking whether attribute of given bean is to be written as is
+     * for the serialization call of given provider: either it is loaded, or
+     * lazy loading is forced.
+     */
+    protected boolean isLoaded(Object bean, SerializerProvider prov)
+    {
+        return Hibernate5Module.Feature.FORCE_LAZY_LOADING.enabledIn(FeatureOverrides.apply(_features, prov))
+                || isLoaded(bean);
+    }
+
+    /**
+     * Method for checking whether attribute of given bean is loaded, meaning
+     * that it can be accessed without a query.
+     */
+    public boolean isLoaded(Object bean)
+    {
+        if ((_attributeName == null) || !(bean instanceof PersistentAttributeInterceptable)) {
+            return true;
+        }
+        PersistentAttributeInterceptor interceptor = ((PersistentAttributeInterceptable) bean).$$_hibernate_getInterceptor();
+        return !(interceptor instanceof LazyAttributeLoadingInterceptor)
+                || ((LazyAttributeLoadingInterceptor) interceptor).isAttributeLoaded(_attributeName);
+    }
+
+    private static String _findAttributeName(AnnotatedMember member)
+    {
+        if ((member == null) || (member.getMember() == null)) {
+            return null;
+        }
+        return ReflectionUtil.getAttributeName(member.getMember());
+    }
+}
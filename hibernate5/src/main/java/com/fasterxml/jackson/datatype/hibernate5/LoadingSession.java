@@ -0,0 +1,307 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.resource.transaction.spi.TransactionCoordinatorBuilder;
+import org.hibernate.service.Service;
+
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.datatype.hibernate5.CollectionBatchLoader.CollectionSessionReader;
+
+/**
+ * Read-only {@link Session} used to initialize lazy collections of detached
+ * entities. A single instance (and so a single session and transaction) is shared
+ * by all collections initialized during one serialization call: it is stored as a
+ * per-call attribute of the {@link SerializerProvider}, and closed by
+ * {@link HibernateSerializerProvider} once the call completes, so that no
+ * connection is held after the write.
+ *<p>
+ * Session is opened as default-read-only with {@link FlushMode#MANUAL}, so loaded
+ * entities need no dirty-checking snapshots and are never flushed.
+ * Note that a {@link org.hibernate.StatelessSession} can not be used since it is
+ * not able to initialize collections.
+ *
+ * @since 2.9.7
+ */
+public class LoadingSession
+{
+    /**
+     * Whether transactions of a {@link SessionFactory} are managed through JTA;
+     * only depends on the factory so it is only computed once per factory.
+     */
+    private final static Map<SessionFactory, Boolean> _jtaFactories
+        = Collections.synchronizedMap(new WeakHashMap<SessionFactory, Boolean>());
+
+    protected final SessionFactory _sessionFactory;
+
+    protected Session _session;
+
+    protected Transaction _transaction;
+
+    protected LoadingSession(SessionFactory sessionFactory) {
+        _sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Accessor for the loading session of the serialization call given provider is
+     * used for; one is created if provider closes it when the call completes.
+     *
+     * @return Loading session to use, or null if provider does not define a
+     *    serialization scope
+     */
+    public static LoadingSession find(SerializerProvider provider, SessionFactory sessionFactory)
+    {
+        if (provider == null) {
+            return null;
+        }
+        LoadingSession loading = (LoadingSession) provider.getAttribute(LoadingSession.class);
+        if ((loading == null) && (provider instanceof HibernateSerializerProvider)) {
+            loading = new LoadingSession(sessionFactory);
+            provider.setAttribute(LoadingSession.class, loading);
+        }
+        return loading;
+    }
+
+    /**
+     * Helper method for checking whether transactions of given factory are
+     * JTA-managed, in which case no transaction is to be started for loading.
+     */
+    public static boolean isJTA(SessionFactory sessionFactory)
+    {
+        Boolean jta = _jtaFactories.get(sessionFactory);
+        if (jta == null) {
+            jta = TransactionCoordinatorReader.isJta((SessionFactoryImplementor) sessionFactory);
+            _jtaFactories.put(sessionFactory, jta);
+        }
+        return jta.booleanValue();
+    }
+
+    /**
+     * Method for checking whether given collection can only be initialized using a
+     * loading session, that is, whether it is not attached to an open session.
+     */
+    public static boolean isDetached(PersistentCollection coll)
+    {
+        SessionImplementor current = CollectionSessionReader.getSession(coll);
+        return (current == null) || !current.isOpen();
+    }
+
+    /**
+     * Method for initializing given collection, attaching it to the loading session
+     * if it is detached.
+     */
+    @SuppressWarnings("deprecation")
+    public void initialize(PersistentCollection coll)
+    {
+        if (coll.wasInitialized()) {
+            return;
+        }
+        if (isDetached(coll)) {
+            SessionImplementor session = (SessionImplementor) session();
+            session.getPersistenceContext().addUninitializedDetachedCollection(
+                    ((SessionFactoryImplementor) _sessionFactory).getCollectionPersister(coll.getRole()),
+                    coll);
+            CollectionSessionWriter.setSession(coll, session);
+        }
+        Hibernate.initialize(coll);
+    }
+
+    /**
+     * Method called once serialization call completes, to end the transaction
+     * and close the session, if one was opened.
+     */
+    public void close(boolean success)
+    {
+        Session session = _session;
+        if (session == null) {
+            return;
+        }
+        _session = null;
+        try {
+            if ((_transaction != null) && _transaction.isActive()) {
+                if (success) {
+                    _transaction.commit();
+                } else {
+                    _transaction.rollback();
+                }
+            }
+        } finally {
+            _transaction = null;
+            SessionCloser.close(session);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    protected Session session()
+    {
+        if (_session == null) {
+            Session session = _sessionFactory.openSession();
+            session.setDefaultReadOnly(true);
+            session.setFlushMode(FlushMode.MANUAL);
+            if (!isJTA(_sessionFactory)) {
+                _transaction = session.beginTransaction();
+            }
+            _session = session;
+        }
+        return _session;
+    }
+
+    /**
+     * Hibernate 5.2 changed the parameter type of
+     * {@code PersistentCollection.setCurrentSession()} (to
+     * {@code SharedSessionContractImplementor}), so with earlier versions the
+     * method must be called using reflection.
+     */
+    protected static class CollectionSessionWriter {
+        static boolean setSession(PersistentCollection coll, SessionImplementor session) {
+            if (Hibernate5Version.isHibernate5_2_Plus()) {
+                return coll.setCurrentSession(session);
+            }
+            return LegacyCollectionSessionWriter.setSession(coll, session);
+        }
+    }
+
+    /**
+     * Writer of the session of collections for Hibernate versions before 5.2;
+     * only loaded with such versions.
+     */
+    protected static class LegacyCollectionSessionWriter {
+        protected static final Method collectionSetSessionMethod;
+        static {
+            Method found = null;
+            // parameter type depends on the version, so method is only found by name
+            for (Method m : PersistentCollection.class.getMethods()) {
+                if ("setCurrentSession".equals(m.getName()) && (m.getParameterCount() == 1)) {
+                    found = m;
+                }
+            }
+            if (found == null) {
+                // should never happen: the method exists in all versions of hibernate 5
+                throw new RuntimeException("No setCurrentSession method in "+PersistentCollection.class.getName());
+            }
+            collectionSetSessionMethod = found;
+        }
+
+        static boolean setSession(PersistentCollection coll, SessionImplementor session) {
+            try {
+                return ((Boolean) collectionSetSessionMethod.invoke(coll, session)).booleanValue();
+            } catch (InvocationTargetException e) {
+                // already attached to another open session: rethrow as is
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            } catch (IllegalAccessException e) {
+                // Should never happen
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Hibernate 5.2 changed the return type of {@code Session.close()} (from
+     * {@code Connection} to {@code void}), so with earlier versions the method
+     * must be called using reflection.
+     */
+    protected static class SessionCloser {
+        static void close(Session session) {
+            if (Hibernate5Version.isHibernate5_2_Plus()) {
+                session.close();
+            } else {
+                LegacySessionCloser.close(session);
+            }
+        }
+    }
+
+    /**
+     * Closer of sessions for Hibernate versions before 5.2; only loaded with
+     * such versions.
+     */
+    protected static class LegacySessionCloser {
+        protected static final Method sessionCloseMethod;
+        static {
+            try {
+                sessionCloseMethod = Session.class.getMethod("close");
+            } catch (NoSuchMethodException e) {
+                // should never happen: the method exists in all versions of hibernate 5
+                throw new RuntimeException(e);
+            }
+        }
+
+        static void close(Session session) {
+            try {
+                sessionCloseMethod.invoke(session);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            } catch (IllegalAccessException e) {
+                // Should never happen
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Hibernate 5.2 moved {@code TransactionCoordinatorBuilder} (to the {@code spi}
+     * package), so with earlier versions the service must be looked up and called
+     * using reflection.
+     */
+    protected static class TransactionCoordinatorReader {
+        static boolean isJta(SessionFactoryImplementor sessionFactory) {
+            if (Hibernate5Version.isHibernate5_2_Plus()) {
+                return sessionFactory.getServiceRegistry()
+                        .getService(TransactionCoordinatorBuilder.class)
+                        .isJta();
+            }
+            return LegacyTransactionCoordinatorReader.isJta(sessionFactory);
+        }
+    }
+
+    /**
+     * Reader of the transaction coordinator builder for Hibernate versions before
+     * 5.2; only loaded with such versions.
+     */
+    protected static class LegacyTransactionCoordinatorReader {
+        protected static final Class<? extends Service> builderClass;
+        protected static final Method builderIsJtaMethod;
+        static {
+            try {
+                builderClass = Class.forName("org.hibernate.resource.transaction.TransactionCoordinatorBuilder")
+                        .asSubclass(Service.class);
+                builderIsJtaMethod = builderClass.getMethod("isJta");
+            } catch (ClassNotFoundException | NoSuchMethodException e) {
+                // should never happen: the builder exists in all versions of hibernate 5
+                throw new RuntimeException(e);
+            }
+        }
+
+        static boolean isJta(SessionFactoryImplementor sessionFactory) {
+            Object builder = sessionFactory.getServiceRegistry().getService(builderClass);
+            try {
+                return ((Boolean) builderIsJtaMethod.invoke(builder)).booleanValue();
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            } catch (IllegalAccessException e) {
+                // Should never happen
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -1,27 +1,22 @@
 package com.fasterxml.jackson.datatype.hibernate5;
 
 import java.io.IOException;
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.lang.reflect.Member;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 import javax.persistence.ElementCollection;
-import javax.persistence.EntityManager;
 import javax.persistence.FetchType;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
 
+import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.collection.internal.PersistentArrayHolder;
@@ -32,27 +27,34 @@ import org.hibernate.collection.internal.PersistentMap;
 import org.hibernate.collection.internal.PersistentSet;
 import org.hibernate.collection.spi.PersistentCollection;
 import org.hibernate.engine.spi.Mapping;
-import org.hibernate.mapping.Bag;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
 import org.hibernate.proxy.HibernateProxy;
 import org.hibernate.proxy.LazyInitializer;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.WritableTypeId;
 import com.fasterxml.jackson.databind.BeanProperty;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.jsonFormatVisitors.JsonFormatVisitorWrapper;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
 import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
 import com.fasterxml.jackson.databind.ser.ContainerSerializer;
 import com.fasterxml.jackson.databind.ser.ContextualSerializer;
 import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
 import com.fasterxml.jackson.databind.util.NameTransformer;
+import com.fasterxml.jackson.datatype.hibernate5.CollectionBatchLoader.CollectionSessionReader;
+import com.fasterxml.jackson.datatype.hibernate5.CollectionElementLoader.ElementStream;
+import com.fasterxml.jackson.datatype.hibernate5.CollectionElementLoader.Elements;
+import com.fasterxml.jackson.datatype.hibernate5.CollectionIdentifierLoader.Identifiers;
+import com.fasterxml.jackson.datatype.hibernate5.EntityIdentifierRegistry.EntityIdentifier;
 import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module.Feature;
-import com.fasterxml.jackson.datatype.hibernate5.HibernateProxySerializer.ProxyReader;
-import com.fasterxml.jackson.datatype.hibernate5.HibernateProxySerializer.ProxySessionReader;
 
 /**
  * Wrapper serializer used to handle aspects of lazy loading that can be used
@@ -61,50 +63,162 @@ import com.fasterxml.jackson.datatype.hibernate5.HibernateProxySerializer.ProxyS
  */
 public class PersistentCollectionSerializer extends ContainerSerializer<Object> implements ContextualSerializer, ResolvableSerializer {
     private static final long              serialVersionUID = 1L;                                                           // since 2.7
-    private static final Logger            logger           = LoggerFactory.getLogger(PersistentCollectionSerializer.class);
     /**
      * Type for which underlying serializer was created.
      *
      * @since 2.7
      */
     protected final JavaType               _originalType;
-    protected Mapping                      _mapping;
+    protected final Mapping                _mapping;
     /**
      * Hibernate-module features set, if any.
      */
     protected final int                    _features;
+    /**
+     * Whether per-call {@link FeatureOverrides} apply to {@link #_features}; not
+     * for properties with their own mode ({@link JsonLazy}).
+     *
+     * @since 2.9.7
+     */
+    protected final boolean                _overridable;
+    /**
+     * Whether property is loaded eagerly: collections are then always written in
+     * full (uninitialized ones being initialized when accessed, as by the plain
+     * serializer), this serializer only making elements available for batch
+     * loading of their proxies.
+     *
+     * @since 2.9.7
+     */
+    protected final boolean                _eager;
     /**
      * Serializer that does actual value serialization when value is available
      * (either already or with forced access).
      */
     protected final JsonSerializer<Object> _serializer;
     protected final SessionFactory         _sessionFactory;
+    /**
+     * Identifier metadata of entity classes, for
+     * {@link Feature#SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS}.
+     *
+     * @since 2.9.7
+     */
+    protected final EntityIdentifierRegistry _identifiers;
+    /**
+     * Maximum number of elements to write, from {@link JsonLazyLimit}; -1 if
+     * not limited.
+     *
+     * @since 2.9.7
+     */
+    protected final int                    _maxElements;
+    /**
+     * Whether total number of elements is written along with limited elements.
+     *
+     * @since 2.9.7
+     */
+    protected final boolean                _writeTotal;
+    /**
+     * Laziness of collection properties as mapped in {@link #_sessionFactory}
+     * (or {@link #NOT_MAPPED}), keyed by property accessor. Shared by all
+     * serializers contextualized from the same instance, so that the mapping of
+     * each property is only looked up once.
+     *
+     * @since 2.9.7
+     */
+    protected final ConcurrentHashMap<Member, Object> _mappedLaziness;
+    /**
+     * Type serializer of the elements (if any), for elements written as their
+     * identifiers; resolved on first use, see {@link #_contentTypeSerializer(SerializerProvider)}.
+     *
+     * @since 2.9.7
+     */
+    protected volatile TypeSerializer       _contentTypeSerializer;
+    protected volatile boolean              _contentTypeSerializerResolved;
+
+    /**
+     * Marker for properties that are not mapped as collections of an entity.
+     */
+    protected final static Object NOT_MAPPED = new Object();
 
     /*
      * /**********************************************************************
      * /* Life cycle
      * /**********************************************************************
      */
-    @SuppressWarnings("unchecked")
     public PersistentCollectionSerializer(JavaType containerType, JsonSerializer<?> serializer, Mapping mapping, int features, SessionFactory sessionFactory) {
+        this(containerType, serializer, mapping, features, sessionFactory, EntityIdentifierRegistry.shared(mapping, sessionFactory));
+    }
+
+    /**
+     * @since 2.9.7
+     */
+    @SuppressWarnings("unchecked")
+    public PersistentCollectionSerializer(JavaType containerType, JsonSerializer<?> serializer, Mapping mapping, int features, SessionFactory sessionFactory,
+            EntityIdentifierRegistry identifiers) {
         super(containerType);
         _mapping = mapping;
         _originalType = containerType;
         _serializer = (JsonSerializer<Object>) serializer;
         _features = features;
+        _overridable = true;
+        _eager = false;
         _sessionFactory = sessionFactory;
+        _identifiers = identifiers;
+        _maxElements = -1;
+        _writeTotal = false;
+        _mappedLaziness = new ConcurrentHashMap<>();
     }
 
     /**
      * @since 2.7
      */
-    @SuppressWarnings("unchecked")
     protected PersistentCollectionSerializer(PersistentCollectionSerializer base, JsonSerializer<?> serializer) {
+        this(base, serializer, base._maxElements, base._writeTotal);
+    }
+
+    /**
+     * @since 2.9.7
+     */
+    protected PersistentCollectionSerializer(PersistentCollectionSerializer base, JsonSerializer<?> serializer,
+            int maxElements, boolean writeTotal) {
+        this(base, serializer, maxElements, writeTotal, base._features, base._overridable, base._eager);
+    }
+
+    /**
+     * Constructor for serializers of properties with their own features
+     * (see {@link JsonLazy}), that per-call overrides do not apply to.
+     *
+     * @since 2.9.7
+     */
+    protected PersistentCollectionSerializer(PersistentCollectionSerializer base, JsonSerializer<?> serializer,
+            int maxElements, boolean writeTotal, int features) {
+        this(base, serializer, maxElements, writeTotal, features, false, base._eager);
+    }
+
+    /**
+     * Constructor for serializers of eagerly loaded properties (see {@link #_eager}).
+     *
+     * @since 2.9.7
+     */
+    protected PersistentCollectionSerializer(PersistentCollectionSerializer base, JsonSerializer<?> serializer,
+            boolean eager) {
+        this(base, serializer, base._maxElements, base._writeTotal, base._features, base._overridable, eager);
+    }
+
+    @SuppressWarnings("unchecked")
+    private PersistentCollectionSerializer(PersistentCollectionSerializer base, JsonSerializer<?> serializer,
+            int maxElements, boolean writeTotal, int features, boolean overridable, boolean eager) {
         super(base);
+        _mapping = base._mapping;
         _originalType = base._originalType;
         _serializer = (JsonSerializer<Object>) serializer;
-        _features = base._features;
+        _features = features;
+        _overridable = overridable;
+        _eager = eager;
         _sessionFactory = base._sessionFactory;
+        _identifiers = base._identifiers;
+        _maxElements = maxElements;
+        _writeTotal = writeTotal;
+        _mappedLaziness = base._mappedLaziness;
     }
 
     @Override
@@ -119,6 +233,16 @@ public class PersistentCollectionSerializer extends ContainerSerializer<Object>
         return new PersistentCollectionSerializer(this, ser);
     }
 
+    /**
+     * Fluent factory for creating a serializer for a property with its own
+     * features (see {@link JsonLazy}); overridden by type-specific variants.
+     *
+     * @since 2.9.7
+     */
+    protected PersistentCollectionSerializer _withFeatures(JsonSerializer<?> ser, int features) {
+        return new PersistentCollectionSerializer(this, ser, _maxElements, _writeTotal, features);
+    }
+
     // from `ContainerSerializer`
     @Override
     protected ContainerSerializer<?> _withValueTypeSerializer(TypeSerializer vts) {
@@ -154,9 +278,35 @@ public class PersistentCollectionSerializer extends ContainerSerializer<Object>
         //   not quite certain; presume primary one for now.
         JsonSerializer<?> ser = provider.handlePrimaryContextualization(_serializer, property);
         // If we use eager loading, can just return underlying serializer as is
+        // (unless elements are to be available for batch loading of their proxies,
+        // which may also be enabled per call)
         if (!usesLazyLoading(property)) {
+            if (Feature.BATCH_LAZY_LOADING.enabledIn(_features)
+                    || (_overridable && FeatureOverrides.isOverridable(Feature.BATCH_LAZY_LOADING))) {
+                // contents accessed as is: no need for type-specialized variant
+                return new PersistentCollectionSerializer(this, ser, true);
+            }
             return ser;
         }
+        // Mode of the property, if any, is resolved once here instead of for each value
+        JsonLazy lazy = property.getAnnotation(JsonLazy.class);
+        JsonLazyLimit limit = property.getAnnotation(JsonLazyLimit.class);
+        if ((limit != null) && !_originalType.isMapLikeType()) {
+            if (limit.maxElements() <= 0) {
+                return provider.reportBadDefinition(property.getType(), String.format(
+                        "Invalid @JsonLazyLimit of property '%s': maxElements (%d) must be positive",
+                        property.getName(), limit.maxElements()));
+            }
+            // limited contents are copied anyway: no need for type-specialized variant
+            if (lazy != null) {
+                return new PersistentCollectionSerializer(this, ser, limit.maxElements(), limit.writeTotal(),
+                        lazy.mode().applyTo(_features));
+            }
+            return new PersistentCollectionSerializer(this, ser, limit.maxElements(), limit.writeTotal());
+        }
+        if (lazy != null) {
+            return _withFeatures(ser, lazy.mode().applyTo(_features));
+        }
         return _withSerializer(ser);
     }
 
@@ -171,7 +321,23 @@ public class PersistentCollectionSerializer extends ContainerSerializer<Object>
             return true;
         }
         if (value instanceof PersistentCollection) {
-            Object lazy = findLazyValue((PersistentCollection) value);
+            PersistentCollection coll = (PersistentCollection) value;
+            Object lazy = _resolveLazyValue(coll, provider, true);
+            if (lazy instanceof Identifiers) {
+                return ((Identifiers) lazy).isEmpty();
+            }
+            if (lazy instanceof Integer) { // element count
+                return ((Integer) lazy).intValue() == 0;
+            }
+            if (lazy instanceof Elements) {
+                return ((Elements) lazy).isEmpty();
+            }
+            if (lazy instanceof ElementStream) {
+                return ((ElementStream) lazy).isEmpty();
+            }
+            if (lazy == coll) {
+                lazy = _initializedContents(coll);
+            }
             return (lazy == null) || _serializer.isEmpty(provider, lazy);
         }
         return _serializer.isEmpty(provider, value);
@@ -235,39 +401,115 @@ public class PersistentCollectionSerializer extends ContainerSerializer<Object>
     @Override
     public void serialize(Object value, JsonGenerator g, SerializerProvider provider) throws IOException {
         if (value instanceof PersistentCollection) {
-            value = findLazyValue((PersistentCollection) value);
+            PersistentCollection coll = (PersistentCollection) value;
+            value = _resolveLazyValue(coll, provider, false);
             if (value == null) {
                 provider.defaultSerializeNull(g);
                 return;
             }
+            if (value instanceof Identifiers) {
+                ((Identifiers) value).serialize(g, provider, _contentTypeSerializer(provider));
+                return;
+            }
+            if (value instanceof Integer) { // element count
+                g.writeNumber(((Integer) value).intValue());
+                return;
+            }
+            if (value instanceof Elements) {
+                ((Elements) value).serialize(g, provider, _serializer);
+                return;
+            }
+            if (value instanceof ElementStream) {
+                ((ElementStream) value).serialize(g, provider, _serializer);
+                return;
+            }
+            if (value == coll) {
+                value = _initializedContents(coll);
+            }
         }
         if (_serializer == null) { // sanity check...
             throw JsonMappingException.from(g, "PersistentCollection does not have serializer set");
         }
         // 30-Jul-2016, tatu: wrt [datatype-hibernate#93], should NOT have to do anything here;
         //     only affects polymophic cases
-        _serializer.serialize(value, g, provider);
+        if (!_batchesProxies(value, provider)) {
+            _serializer.serialize(value, g, provider);
+            return;
+        }
+        Object outer = ProxyBatchLoader.setElements(provider, value);
+        try {
+            _serializer.serialize(value, g, provider);
+        } finally {
+            ProxyBatchLoader.setElements(provider, outer);
+        }
     }
 
     @Override
     public void serializeWithType(Object value, JsonGenerator g, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
         if (value instanceof PersistentCollection) {
-            value = findLazyValue((PersistentCollection) value);
-            if (value == null) {
+            // 30-Jul-2016, tatu: wrt [datatype-hibernate#93], type id replacement IS needed here;
+            //    only type id of the JDK container, collection itself is written as is
+            PersistentCollection coll = (PersistentCollection) value;
+            boolean replace = Feature.REPLACE_PERSISTENT_COLLECTIONS.enabledIn(_features);
+            if (replace) {
+                typeSer = PersistentCollectionTypeSerializer.construct(typeSer, value);
+            }
+            Object lazy = _resolveLazyValue(coll, provider, false);
+            if (lazy == null) {
                 provider.defaultSerializeNull(g);
                 return;
             }
+            if (lazy instanceof Identifiers) {
+                Identifiers ids = (Identifiers) lazy;
+                WritableTypeId typeIdDef = typeSer.writeTypePrefix(g,
+                        typeSer.typeId(value, ids.isMap() ? JsonToken.START_OBJECT : JsonToken.START_ARRAY));
+                ids.serializeContents(g, provider, _contentTypeSerializer(provider));
+                typeSer.writeTypeSuffix(g, typeIdDef);
+                return;
+            }
+            // element count is a scalar, not the collection: no type id for it
+            if (lazy instanceof Integer) {
+                g.writeNumber(((Integer) lazy).intValue());
+                return;
+            }
+            if (lazy instanceof Elements) {
+                Elements elements = (Elements) lazy;
+                if (!elements.isObject()) {
+                    _serializer.serializeWithType(elements.getElements(), g, provider, typeSer);
+                    return;
+                }
+                WritableTypeId typeIdDef = typeSer.writeTypePrefix(g,
+                        typeSer.typeId(value, JsonToken.START_OBJECT));
+                elements.serializeContents(g, provider, _serializer);
+                typeSer.writeTypeSuffix(g, typeIdDef);
+                return;
+            }
+            if (lazy instanceof ElementStream) {
+                WritableTypeId typeIdDef = typeSer.writeTypePrefix(g,
+                        typeSer.typeId(value, JsonToken.START_ARRAY));
+                ((ElementStream) lazy).serializeContents(g, provider, _serializer);
+                typeSer.writeTypeSuffix(g, typeIdDef);
+                return;
+            }
+            // without replacement, type id is that of the persistent collection itself
+            if (replace && (lazy == coll)) {
+                lazy = _initializedContents(coll);
+            }
+            value = lazy;
         }
         if (_serializer == null) { // sanity check...
             throw JsonMappingException.from(g, "PersistentCollection does not have serializer set");
         }
-        // 30-Jul-2016, tatu: wrt [datatype-hibernate#93], conversion IS needed here (or,
-        //    if we could figure out, type id)
-        // !!! TODO: figure out how to replace type id without having to replace collection
-        if (Feature.REPLACE_PERSISTENT_COLLECTIONS.enabledIn(_features)) {
-            value = convertToJavaCollection(value); // Strip PersistentCollection
+        if (!_batchesProxies(value, provider)) {
+            _serializer.serializeWithType(value, g, provider, typeSer);
+            return;
+        }
+        Object outer = ProxyBatchLoader.setElements(provider, value);
+        try {
+            _serializer.serializeWithType(value, g, provider, typeSer);
+        } finally {
+            ProxyBatchLoader.setElements(provider, outer);
         }
-        _serializer.serializeWithType(value, g, provider, typeSer);
     }
 
     /*
@@ -275,6 +517,37 @@ public class PersistentCollectionSerializer extends ContainerSerializer<Object>
      * /* Helper methods
      * /**********************************************************************
      */
+    /**
+     * Helper method for checking whether elements of given value are to be made
+     * available to {@link ProxyBatchLoader} while it is written, for
+     * {@link Feature#BATCH_LAZY_LOADING}.
+     *
+     * @since 2.9.7
+     */
+    protected boolean _batchesProxies(Object value, SerializerProvider provider) {
+        if (!(value instanceof Collection<?>)) {
+            return false;
+        }
+        final int features = _overridable ? FeatureOverrides.apply(_features, provider) : _features;
+        return Feature.BATCH_LAZY_LOADING.enabledIn(features);
+    }
+
+    /**
+     * Helper method for finding the type serializer of the elements, to write type
+     * ids of elements written as their identifiers the same way as those of loaded
+     * elements.
+     *
+     * @since 2.9.7
+     */
+    protected TypeSerializer _contentTypeSerializer(SerializerProvider provider) throws JsonMappingException {
+        if (!_contentTypeSerializerResolved) {
+            JavaType contentType = getContentType();
+            _contentTypeSerializer = (contentType == null) ? null : provider.findTypeSerializer(contentType);
+            _contentTypeSerializerResolved = true;
+        }
+        return _contentTypeSerializer;
+    }
+
     protected ContainerSerializer<?> _containerSerializer() {
         if (_serializer instanceof ContainerSerializer) {
             return (ContainerSerializer<?>) _serializer;
@@ -282,23 +555,134 @@ public class PersistentCollectionSerializer extends ContainerSerializer<Object>
         return null;
     }
 
-    @SuppressWarnings({ "unchecked", "rawtypes" })
+    /**
+     * Method for accessing contents to serialize for given initialized collection.
+     * Default implementation returns the collection itself; type-specialized variants
+     * (see {@link PersistentCollectionSerializers}) return the JDK collection backing it,
+     * access to which needs no initialization checks.
+     *
+     * @since 2.9.7
+     */
+    protected Object _initializedContents(PersistentCollection coll) {
+        return coll;
+    }
+
+    /**
+     * Helper method for resolving value to write for given collection, using
+     * {@link #findLazyValue(PersistentCollection, SerializerProvider)}. If collection
+     * remains uninitialized (value being its identifiers, or null), value resolved
+     * for the emptiness check is kept as a per-call attribute of the provider, and
+     * reused by the serialization call that follows it: this way identifiers are
+     * only loaded once per property, even with {@code JsonInclude.Include.NON_EMPTY}.
+     *
+     * @param emptyCheck Whether value is resolved by {@link #isEmpty}, and is to
+     *    be kept for the following serialization call
+     *
+     * @since 2.9.7
+     */
+    protected Object _resolveLazyValue(PersistentCollection coll, SerializerProvider provider, boolean emptyCheck) {
+        if ((provider == null) || coll.wasInitialized()) {
+            return findLazyValue(coll, provider);
+        }
+        ResolvedLazyValue resolved = (ResolvedLazyValue) provider.getAttribute(ResolvedLazyValue.class);
+        if ((resolved != null) && (resolved.collection == coll)) {
+            if (!emptyCheck) {
+                provider.setAttribute(ResolvedLazyValue.class, null);
+            }
+            return resolved.value;
+        }
+        Object value = findLazyValue(coll, provider);
+        if (emptyCheck && !coll.wasInitialized()) {
+            provider.setAttribute(ResolvedLazyValue.class, new ResolvedLazyValue(coll, value));
+        }
+        return value;
+    }
+
+    /**
+     * @deprecated Since 2.9.7 use {@link #findLazyValue(PersistentCollection, SerializerProvider)}
+     */
+    @Deprecated
     protected Object findLazyValue(PersistentCollection coll) {
+        return findLazyValue(coll, null);
+    }
+
+    /**
+     * Method for finding value to write for given collection: either the collection
+     * value itself (if initialized, or initialized by this method), or, for collections
+     * left uninitialized, its element count ({@link Integer}), element identifiers
+     * ({@link Identifiers} or a {@link java.util.List}), or null. For collections
+     * limited by {@link JsonLazyLimit}, first elements ({@link Elements}) may be
+     * returned instead of the collection value; and with {@link Feature#STREAM_LAZY_COLLECTIONS},
+     * a stream of the elements ({@link ElementStream}) instead of initializing it.
+     *
+     * @since 2.9.7
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected Object findLazyValue(PersistentCollection coll, SerializerProvider provider) {
         if (coll.wasInitialized()) {
-            return coll.getValue();
-        }
-        if (Feature.FORCE_LAZY_LOADING.enabledIn(_features)) {
+            return _limitedValue(coll.getValue());
+        }
+        if (_eager) {
+            // initialized when written, regardless of lazy-loading features
+            return coll;
+        }
+        final int features = _overridable ? FeatureOverrides.apply(_features, provider) : _features;
+        if (Feature.FORCE_LAZY_LOADING.enabledIn(features)) {
+            if (_maxElements >= 0) {
+                // Only select the elements to write, leaving collection uninitialized
+                Session session = _querySession(coll, provider);
+                List<Object> elements = CollectionElementLoader.load(coll, session, _maxElements);
+                if (elements != null) {
+                    int total = -1;
+                    if (_writeTotal) {
+                        total = (elements.size() < _maxElements) ? elements.size()
+                                : CollectionSizeLoader.load(coll, session);
+                    }
+                    return new Elements(elements, total);
+                }
+            }
+            if (Feature.STREAM_LAZY_COLLECTIONS.enabledIn(features) && ElementStream.canWrite(_serializer)) {
+                // Elements read while written, leaving collection uninitialized
+                ElementStream stream = CollectionElementLoader.stream(coll, _querySession(coll, provider));
+                if (stream != null) {
+                    return stream;
+                }
+            }
+            // Detached collections can only be loaded with the loading session of the call
+            if ((_sessionFactory != null) && LoadingSession.isDetached(coll)) {
+                LoadingSession loading = LoadingSession.find(provider, _sessionFactory);
+                if (loading != null) {
+                    loading.initialize(coll);
+                    return _limitedValue(coll.getValue());
+                }
+            }
+            if (Feature.BATCH_LAZY_LOADING.enabledIn(features)) {
+                // also initializes the other collections of the same role, if possible
+                CollectionBatchLoader.initialize(coll);
+            }
             coll.forceInitialization();
-            return coll.getValue();
+            return _limitedValue(coll.getValue());
+        }
+        if (Feature.SERIALIZE_SIZE_FOR_LAZY_NOT_LOADED_COLLECTIONS.enabledIn(features)) {
+            // Only count elements, leaving collection uninitialized
+            int size = CollectionSizeLoader.load(coll, _querySession(coll, provider));
+            if (size >= 0) {
+                return Integer.valueOf(size);
+            }
         }
-        if (Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS.enabledIn(_features)) {
-            //SharedSessionContractImplementor sessionImpl = ((AbstractPersistentCollection) coll).getSession();
+        if (Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS.enabledIn(features)) {
+            // Entity elements: only select their identifiers, leaving collection uninitialized
+            Session session = _querySession(coll, provider);
+            Identifiers ids = CollectionIdentifierLoader.load(coll, session, _identifiers);
+            if (ids != null) {
+                return ids;
+            }
             Iterable iterable = getIterable(coll);
             if (iterable != null) {
                 return StreamSupport.stream(iterable.spliterator(), false)//
                         .map(o -> {
                             if (o instanceof HibernateProxy) {
-                                return proxyToMinimalEntity((HibernateProxy) o);
+                                return proxyToMinimalEntity((HibernateProxy) o, features);
                             } else {
                                 return objectToMinimalEntity(o);
                             }
@@ -308,79 +692,49 @@ public class PersistentCollectionSerializer extends ContainerSerializer<Object>
         return null;
     }
 
-    private Object objectToMinimalEntity(Object o) {
-        String idName = findIdName(o.getClass());
-        try {
-            final Object obj = o.getClass().newInstance();
-            Object idValue = ReflectionUtil.getFieldValue(o, idName);
-            ReflectionUtil.setFieldValue(obj, idName, idValue);
-            return obj;
-        } catch (InstantiationException | IllegalAccessException | SecurityException e) {
-            logger.error("Unable to find proxied", e);
-            return null;
+    /**
+     * Helper method for applying {@link JsonLazyLimit} to the value of an initialized
+     * collection, if necessary.
+     */
+    private Object _limitedValue(Object value) {
+        if ((_maxElements < 0) || !(value instanceof Collection<?>)) {
+            return value;
+        }
+        Collection<?> coll = (Collection<?>) value;
+        if (!_writeTotal && (coll.size() <= _maxElements)) {
+            return value;
         }
+        return new Elements(CollectionElementLoader.first(coll, _maxElements), _writeTotal ? coll.size() : -1);
     }
 
-    @SuppressWarnings("deprecation")
-    private String findIdName(Class<?> cls) {
-        if (_sessionFactory != null) {
-            return _sessionFactory.getSessionFactory().getIdentifierPropertyName(cls.getName());
-        }
-        for (Field field : cls.getDeclaredFields()) {
-            for (Annotation anno : field.getDeclaredAnnotations()) {
-                if (anno.annotationType().getName().equals("javax.persistence.Id")) {
-                    return field.getName();
-                }
-            }
-        }
-        for (Method method : cls.getDeclaredMethods()) {
-            for (Annotation anno : method.getDeclaredAnnotations()) {
-                if (anno.annotationType().getName().equals("javax.persistence.Id")) {
-                    return getPropertyName(method);
-                }
-            }
-        }
-        Class<?> superClass = cls.getSuperclass();
-        if (superClass != null) {
-            return findIdName(superClass);
+    /**
+     * Helper method for finding session to use for queries about given uninitialized
+     * collection: either the session it is attached to, or the loading session of
+     * the call for detached collections.
+     */
+    private Session _querySession(PersistentCollection coll, SerializerProvider provider) {
+        if (LoadingSession.isDetached(coll)) {
+            LoadingSession loading = (_sessionFactory == null) ? null
+                    : LoadingSession.find(provider, _sessionFactory);
+            return (loading == null) ? null : loading.session();
         }
-        return null;
+        return CollectionSessionReader.getSession(coll);
     }
 
-    private String getPropertyName(Method method) {
-        String name = method.getName();
-        if (name.startsWith("get")) {
-            return Character.toLowerCase(name.charAt(3)) + name.substring(4);
+    private Object objectToMinimalEntity(Object o) {
+        EntityIdentifier id = _identifiers.find(o.getClass());
+        if (id == null) {
+            return null;
         }
-        return name;
+        return id.newInstance(id.getValue(o));
     }
 
-    private Object proxyToMinimalEntity(HibernateProxy proxy) {
+    private Object proxyToMinimalEntity(HibernateProxy proxy, int features) {
         LazyInitializer init = proxy.getHibernateLazyInitializer();
-        if (!Feature.FORCE_LAZY_LOADING.enabledIn(_features) && init.isUninitialized()) {
-            if (Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS.enabledIn(_features)) {
-                String idName;
-                if (_mapping != null) {
-                    idName = _mapping.getIdentifierPropertyName(init.getEntityName());
-                } else {
-                    idName = ProxySessionReader.getIdentifierPropertyName(init);
-                    if (idName == null) {
-                        idName = ProxyReader.getIdentifierPropertyName(init);
-                        if (idName == null) {
-                            idName = init.getEntityName();
-                        }
-                    }
-                }
-                final Object idValue = init.getIdentifier();
-                try {
-                    final Object obj = Class.forName(init.getEntityName()).newInstance();
-                    ReflectionUtil.setFieldValue(obj, idName, idValue);
-                    return obj;
-                } catch (InstantiationException | IllegalAccessException | ClassNotFoundException | SecurityException e) {
-                    logger.error("Unable to find proxied", e);
-                    return null;
-                }
-                //return ImmutableMap.of("type", init.getEntityName(), idName, idValue);
+        if (!Feature.FORCE_LAZY_LOADING.enabledIn(features) && init.isUninitialized()) {
+            if (Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS.enabledIn(features)) {
+                EntityIdentifier id = _identifiers.find(init.getPersistentClass());
+                return (id == null) ? null : id.newInstance(init.getIdentifier());
             }
             return null;
         }
@@ -412,10 +766,16 @@ public class PersistentCollectionSerializer extends ContainerSerializer<Object>
 
     /**
      * Method called to see whether given property indicates it uses lazy
-     * resolution of reference contained.
+     * resolution of reference contained. If a {@link SessionFactory} is available,
+     * laziness of the collection as mapped (by annotations, <code>orm.xml</code> or
+     * <code>hbm.xml</code>) is used; otherwise JPA annotations of the property.
      */
     protected boolean usesLazyLoading(BeanProperty property) {
         if (property != null) {
+            Boolean mapped = findMappedLaziness(property);
+            if (mapped != null) {
+                return mapped.booleanValue();
+            }
             // As per [Issue#36]
             ElementCollection ec = property.getAnnotation(ElementCollection.class);
             if (ec != null) {
@@ -437,51 +797,105 @@ public class PersistentCollectionSerializer extends ContainerSerializer<Object>
             if (ann4 != null) {
                 return (ann4.fetch() == FetchType.LAZY);
             }
-            // As per [Issue#53]
-            return !Feature.REQUIRE_EXPLICIT_LAZY_LOADING_MARKER.enabledIn(_features);
+            // As per [Issue#53]; mode of the property is an explicit marker as well
+            return !Feature.REQUIRE_EXPLICIT_LAZY_LOADING_MARKER.enabledIn(_features)
+                    || (property.getAnnotation(JsonLazy.class) != null);
         }
         return false;
     }
 
-    // since 2.8.2
-    private Object convertToJavaCollection(Object value) {
-        if (!(value instanceof PersistentCollection)) {
-            return value;
-        }
-        if (value instanceof Set) {
-            return convertToSet((Set<?>) value);
-        }
-        if (value instanceof List || value instanceof Bag) {
-            return convertToList((List<?>) value);
-        }
-        if (value instanceof Map) {
-            return convertToMap((Map<?, ?>) value);
-        }
-        throw new IllegalArgumentException("Unsupported PersistentCollection subtype: " + value.getClass());
-    }
-
-    private Object convertToList(List<?> value) {
-        return new ArrayList<>(value);
-    }
+    /**
+     * Value resolved for an uninitialized collection by {@link #isEmpty}; only the
+     * latest one is kept, since it is serialized right after the check.
+     *
+     * @since 2.9.7
+     */
+    protected final static class ResolvedLazyValue {
+        protected final PersistentCollection collection;
+        protected final Object value;
 
-    private Object convertToMap(Map<?, ?> value) {
-        return new HashMap<>(value);
+        protected ResolvedLazyValue(PersistentCollection collection, Object value) {
+            this.collection = collection;
+            this.value = value;
+        }
     }
 
-    private Object convertToSet(Set<?> value) {
-        return new HashSet<>(value);
+    /**
+     * Helper method for finding laziness of the collection given property accessor
+     * is mapped to, from the collection persister.
+     *
+     * @return Whether collection is lazy, or null if property is not known to be
+     *    mapped as a collection
+     *
+     * @since 2.9.7
+     */
+    @SuppressWarnings("deprecation")
+    protected Boolean findMappedLaziness(BeanProperty property) {
+        AnnotatedMember member = property.getMember();
+        if ((_sessionFactory == null) || (member == null) || (member.getMember() == null)) {
+            return null;
+        }
+        Member key = member.getMember();
+        Object lazy = _mappedLaziness.get(key);
+        if (lazy == null) {
+            lazy = NOT_MAPPED;
+            CollectionPersister persister = _findCollectionPersister(key.getDeclaringClass(),
+                    ReflectionUtil.getAttributeName(key));
+            if (persister != null) {
+                lazy = persister.isLazy();
+            }
+            _mappedLaziness.put(key, lazy);
+        }
+        return (lazy == NOT_MAPPED) ? null : (Boolean) lazy;
     }
 
-    protected static class SessionReader {
-        public static boolean isJTA(Session session) {
+    /**
+     * Helper method for finding the persister of the collection mapped to the
+     * attribute of given name of given class; class may be an entity, or a mapped
+     * superclass or an embeddable of entities. Only called once per property.
+     *
+     * @return Persister of the collection, or null if attribute is not mapped as
+     *    a collection
+     *
+     * @since 2.9.7
+     */
+    @SuppressWarnings("deprecation")
+    protected CollectionPersister _findCollectionPersister(Class<?> declaringClass, String name) {
+        final SessionFactoryImplementor factory = (SessionFactoryImplementor) _sessionFactory;
+        try {
+            ClassMetadata owner = _sessionFactory.getClassMetadata(declaringClass);
+            if (owner != null) {
+                return factory.getCollectionPersister(owner.getEntityName() + "." + name);
+            }
+        } catch (HibernateException e) { // not a collection of the entity itself
+        }
+        // otherwise, attribute of the class may be mapped in entities extending or embedding it
+        final String suffix = "." + name;
+        // 5.2 no longer supports `getAllCollectionMetadata()`, earlier versions have no metamodel
+        final Collection<String> roles = Hibernate5Version.isHibernate5_2_Plus()
+                ? factory.getMetamodel().collectionPersisters().keySet()
+                : _sessionFactory.getAllCollectionMetadata().keySet();
+        for (String role : roles) {
+            if (!role.endsWith(suffix)) {
+                continue;
+            }
             try {
-                EntityManager em = (EntityManager) session;
-                em.getTransaction();
-                return false;
-            } catch (IllegalStateException e) {
-                // EntityManager is required to throw an IllegalStateException if it's JTA-managed
-                return true;
+                CollectionPersister persister = factory.getCollectionPersister(role);
+                EntityPersister ownerPersister = persister.getOwnerEntityPersister();
+                String ownerName = ownerPersister.getEntityName();
+                if (!role.startsWith(ownerName + ".")) {
+                    continue;
+                }
+                // path of the embeddable holding the collection, if any
+                int end = role.length() - suffix.length();
+                Class<?> holder = (end == ownerName.length()) ? ownerPersister.getMappedClass()
+                        : ownerPersister.getPropertyType(role.substring(ownerName.length() + 1, end)).getReturnedClass();
+                if (declaringClass.isAssignableFrom(holder)) {
+                    return persister;
+                }
+            } catch (HibernateException e) { // should not happen: skip role
             }
         }
+        return null;
     }
 }
@@ -0,0 +1,354 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.collection.internal.PersistentBag;
+import org.hibernate.collection.internal.PersistentIdentifierBag;
+import org.hibernate.collection.internal.PersistentList;
+import org.hibernate.collection.internal.PersistentMap;
+import org.hibernate.collection.internal.PersistentSet;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.Mapping;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonSerializer;
+
+/**
+ * Container for {@link PersistentCollectionSerializer} variants specialized by
+ * declared container type ({@link List}, {@link Set}, other {@link Collection}s
+ * (bags) and {@link Map}), selected by {@link HibernateSerializerModifier}.
+ * <p>
+ * For collections that are already initialized, variants serialize the JDK
+ * collection backing the Hibernate collection, instead of the Hibernate collection
+ * itself: this way no initialization check is made (and no iterator wrapper is
+ * created) by the element accesses of the delegate serializer. Backing collections
+ * are read from (non-public) fields of Hibernate collection types, each with its
+ * own constant getter called with its exact type, so that no per-value dispatch
+ * is needed; if a field is missing or not accessible (like in a native image where
+ * it is not registered for reflection), the Hibernate collection itself is serialized.
+ *
+ * @since 2.9.7
+ */
+public class PersistentCollectionSerializers
+{
+    private static final Logger logger = LoggerFactory.getLogger(PersistentCollectionSerializers.class);
+
+    // Backing collections of Hibernate collection types, as (collection type)Object;
+    // null if not accessible
+    protected final static MethodHandle LIST_CONTENTS = _contentsGetter(PersistentList.class, "list");
+    protected final static MethodHandle BAG_CONTENTS = _contentsGetter(PersistentBag.class, "bag");
+    protected final static MethodHandle IDENTIFIER_BAG_CONTENTS = _contentsGetter(PersistentIdentifierBag.class, "values");
+    protected final static MethodHandle SET_CONTENTS = _contentsGetter(PersistentSet.class, "set");
+    protected final static MethodHandle MAP_CONTENTS = _contentsGetter(PersistentMap.class, "map");
+
+    private PersistentCollectionSerializers() { }
+
+    /**
+     * Factory method for constructing serializer variant to use for given declared
+     * container type.
+     */
+    public static PersistentCollectionSerializer construct(JavaType containerType, JsonSerializer<?> serializer,
+            Mapping mapping, int features, SessionFactory sessionFactory, EntityIdentifierRegistry identifiers)
+    {
+        Class<?> raw = containerType.getRawClass();
+        if (Map.class.isAssignableFrom(raw)) {
+            return new MapSerializer(containerType, serializer, mapping, features, sessionFactory, identifiers);
+        }
+        if (Set.class.isAssignableFrom(raw)) {
+            return new SetSerializer(containerType, serializer, mapping, features, sessionFactory, identifiers);
+        }
+        if (List.class.isAssignableFrom(raw)) {
+            return new ListSerializer(containerType, serializer, mapping, features, sessionFactory, identifiers);
+        }
+        if (Collection.class.isAssignableFrom(raw)) {
+            return new BagSerializer(containerType, serializer, mapping, features, sessionFactory, identifiers);
+        }
+        return new PersistentCollectionSerializer(containerType, serializer, mapping, features, sessionFactory, identifiers);
+    }
+
+    /*
+    /**********************************************************************
+    /* Variants
+    /**********************************************************************
+     */
+
+    /**
+     * Variant for {@link List}s: either {@link PersistentList}s (indexed) or
+     * {@link PersistentBag}s.
+     */
+    public static class ListSerializer extends PersistentCollectionSerializer
+    {
+        private static final long serialVersionUID = 1L;
+
+        public ListSerializer(JavaType containerType, JsonSerializer<?> serializer, Mapping mapping, int features,
+                SessionFactory sessionFactory, EntityIdentifierRegistry identifiers) {
+            super(containerType, serializer, mapping, features, sessionFactory, identifiers);
+        }
+
+        protected ListSerializer(ListSerializer base, JsonSerializer<?> serializer) {
+            super(base, serializer);
+        }
+
+        protected ListSerializer(ListSerializer base, JsonSerializer<?> serializer, int features) {
+            super(base, serializer, base._maxElements, base._writeTotal, features);
+        }
+
+        @Override
+        protected PersistentCollectionSerializer _withSerializer(JsonSerializer<?> ser) {
+            if ((ser == _serializer) || (ser == null)) {
+                return this;
+            }
+            return new ListSerializer(this, ser);
+        }
+
+        @Override
+        protected PersistentCollectionSerializer _withFeatures(JsonSerializer<?> ser, int features) {
+            return new ListSerializer(this, ser, features);
+        }
+
+        @Override
+        protected Object _initializedContents(PersistentCollection coll) {
+            if (coll instanceof PersistentList) {
+                return _listContents((PersistentList) coll);
+            }
+            if (coll instanceof PersistentBag) {
+                return _bagContents((PersistentBag) coll);
+            }
+            return coll;
+        }
+    }
+
+    /**
+     * Variant for {@link Set}s, that is, {@link PersistentSet}s (including sorted ones).
+     */
+    public static class SetSerializer extends PersistentCollectionSerializer
+    {
+        private static final long serialVersionUID = 1L;
+
+        public SetSerializer(JavaType containerType, JsonSerializer<?> serializer, Mapping mapping, int features,
+                SessionFactory sessionFactory, EntityIdentifierRegistry identifiers) {
+            super(containerType, serializer, mapping, features, sessionFactory, identifiers);
+        }
+
+        protected SetSerializer(SetSerializer base, JsonSerializer<?> serializer) {
+            super(base, serializer);
+        }
+
+        protected SetSerializer(SetSerializer base, JsonSerializer<?> serializer, int features) {
+            super(base, serializer, base._maxElements, base._writeTotal, features);
+        }
+
+        @Override
+        protected PersistentCollectionSerializer _withSerializer(JsonSerializer<?> ser) {
+            if ((ser == _serializer) || (ser == null)) {
+                return this;
+            }
+            return new SetSerializer(this, ser);
+        }
+
+        @Override
+        protected PersistentCollectionSerializer _withFeatures(JsonSerializer<?> ser, int features) {
+            return new SetSerializer(this, ser, features);
+        }
+
+        @Override
+        protected Object _initializedContents(PersistentCollection coll) {
+            if (coll instanceof PersistentSet) {
+                return _setContents((PersistentSet) coll);
+            }
+            return coll;
+        }
+    }
+
+    /**
+     * Variant for {@link Collection}s that are neither {@link List}s nor {@link Set}s:
+     * {@link PersistentBag}s and {@link PersistentIdentifierBag}s.
+     */
+    public static class BagSerializer extends PersistentCollectionSerializer
+    {
+        private static final long serialVersionUID = 1L;
+
+        public BagSerializer(JavaType containerType, JsonSerializer<?> serializer, Mapping mapping, int features,
+                SessionFactory sessionFactory, EntityIdentifierRegistry identifiers) {
+            super(containerType, serializer, mapping, features, sessionFactory, identifiers);
+        }
+
+        protected BagSerializer(BagSerializer base, JsonSerializer<?> serializer) {
+            super(base, serializer);
+        }
+
+        protected BagSerializer(BagSerializer base, JsonSerializer<?> serializer, int features) {
+            super(base, serializer, base._maxElements, base._writeTotal, features);
+        }
+
+        @Override
+        protected PersistentCollectionSerializer _withSerializer(JsonSerializer<?> ser) {
+            if ((ser == _serializer) || (ser == null)) {
+                return this;
+            }
+            return new BagSerializer(this, ser);
+        }
+
+        @Override
+        protected PersistentCollectionSerializer _withFeatures(JsonSerializer<?> ser, int features) {
+            return new BagSerializer(this, ser, features);
+        }
+
+        @Override
+        protected Object _initializedContents(PersistentCollection coll) {
+            if (coll instanceof PersistentBag) {
+                return _bagContents((PersistentBag) coll);
+            }
+            if (coll instanceof PersistentIdentifierBag) {
+                return _identifierBagContents((PersistentIdentifierBag) coll);
+            }
+            return coll;
+        }
+    }
+
+    /**
+     * Variant for {@link Map}s, that is, {@link PersistentMap}s (including sorted ones).
+     */
+    public static class MapSerializer extends PersistentCollectionSerializer
+    {
+        private static final long serialVersionUID = 1L;
+
+        public MapSerializer(JavaType containerType, JsonSerializer<?> serializer, Mapping mapping, int features,
+                SessionFactory sessionFactory, EntityIdentifierRegistry identifiers) {
+            super(containerType, serializer, mapping, features, sessionFactory, identifiers);
+        }
+
+        protected MapSerializer(MapSerializer base, JsonSerializer<?> serializer) {
+            super(base, serializer);
+        }
+
+        protected MapSerializer(MapSerializer base, JsonSerializer<?> serializer, int features) {
+            super(base, serializer, base._maxElements, base._writeTotal, features);
+        }
+
+        @Override
+        protected PersistentCollectionSerializer _withSerializer(JsonSerializer<?> ser) {
+            if ((ser == _serializer) || (ser == null)) {
+                return this;
+            }
+            return new MapSerializer(this, ser);
+        }
+
+        @Override
+        protected PersistentCollectionSerializer _withFeatures(JsonSerializer<?> ser, int features) {
+            return new MapSerializer(this, ser, features);
+        }
+
+        @Override
+        protected Object _initializedContents(PersistentCollection coll) {
+            if (coll instanceof PersistentMap) {
+                return _mapContents((PersistentMap) coll);
+            }
+            return coll;
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper methods
+    /**********************************************************************
+     */
+
+    /*
+     * Getters are called with invokeExact (and so need one accessor per collection
+     * type): their type is fixed by _contentsGetter(), whatever the declared type
+     * of the field in this version of Hibernate.
+     */
+
+    protected static Object _listContents(PersistentList coll)
+    {
+        if (LIST_CONTENTS != null) {
+            try {
+                return _contentsOrSelf((Object) LIST_CONTENTS.invokeExact(coll), coll);
+            } catch (Throwable t) { // should never happen
+                _reportFailure(coll, t);
+            }
+        }
+        return coll;
+    }
+
+    protected static Object _bagContents(PersistentBag coll)
+    {
+        if (BAG_CONTENTS != null) {
+            try {
+                return _contentsOrSelf((Object) BAG_CONTENTS.invokeExact(coll), coll);
+            } catch (Throwable t) { // should never happen
+                _reportFailure(coll, t);
+            }
+        }
+        return coll;
+    }
+
+    protected static Object _identifierBagContents(PersistentIdentifierBag coll)
+    {
+        if (IDENTIFIER_BAG_CONTENTS != null) {
+            try {
+                return _contentsOrSelf((Object) IDENTIFIER_BAG_CONTENTS.invokeExact(coll), coll);
+            } catch (Throwable t) { // should never happen
+                _reportFailure(coll, t);
+            }
+        }
+        return coll;
+    }
+
+    protected static Object _setContents(PersistentSet coll)
+    {
+        if (SET_CONTENTS != null) {
+            try {
+                return _contentsOrSelf((Object) SET_CONTENTS.invokeExact(coll), coll);
+            } catch (Throwable t) { // should never happen
+                _reportFailure(coll, t);
+            }
+        }
+        return coll;
+    }
+
+    protected static Object _mapContents(PersistentMap coll)
+    {
+        if (MAP_CONTENTS != null) {
+            try {
+                return _contentsOrSelf((Object) MAP_CONTENTS.invokeExact(coll), coll);
+            } catch (Throwable t) { // should never happen
+                _reportFailure(coll, t);
+            }
+        }
+        return coll;
+    }
+
+    private static Object _contentsOrSelf(Object contents, PersistentCollection coll) {
+        return (contents == null) ? coll : contents;
+    }
+
+    private static void _reportFailure(PersistentCollection coll, Throwable t) {
+        logger.warn("Unable to access contents of " + coll.getClass().getName(), t);
+    }
+
+    private static MethodHandle _contentsGetter(Class<?> cls, String fieldName)
+    {
+        try {
+            Field field = cls.getDeclaredField(fieldName);
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectGetter(field)
+                    .asType(MethodType.methodType(Object.class, cls));
+        } catch (Exception e) {
+            // field not in this version of Hibernate: collection itself is used
+            logger.debug("No contents field '{}' in {}", fieldName, cls.getName());
+            return null;
+        }
+    }
+}
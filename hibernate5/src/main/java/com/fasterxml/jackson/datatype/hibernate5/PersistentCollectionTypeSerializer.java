@@ -0,0 +1,102 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.WritableTypeId;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.jsontype.TypeIdResolver;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+/**
+ * {@link TypeSerializer} used for {@link Hibernate5Module.Feature#REPLACE_PERSISTENT_COLLECTIONS}:
+ * delegates to the actual type serializer, but has type id written for the standard
+ * JDK container ({@link HashSet}, {@link ArrayList} or {@link HashMap}) instead of the
+ * Hibernate collection type, so that the persistent collection can be serialized
+ * as is, instead of being copied into such container first.
+ *
+ * @since 2.9.7
+ */
+public class PersistentCollectionTypeSerializer extends TypeSerializer
+{
+    /**
+     * Empty JDK containers, used as the values type ids are generated from; never
+     * modified nor exposed otherwise.
+     */
+    private final static Set<?> EMPTY_SET = new HashSet<Object>();
+    private final static List<?> EMPTY_LIST = new ArrayList<Object>();
+    private final static Map<?,?> EMPTY_MAP = new HashMap<Object,Object>();
+
+    protected final TypeSerializer _delegate;
+
+    /**
+     * Container type id is to be generated for.
+     */
+    protected final Object _container;
+
+    protected PersistentCollectionTypeSerializer(TypeSerializer delegate, Object container) {
+        _delegate = delegate;
+        _container = container;
+    }
+
+    /**
+     * Factory method for constructing type serializer to use for given
+     * persistent collection (which must be a {@link Set}, {@link List} or {@link Map}).
+     */
+    public static TypeSerializer construct(TypeSerializer delegate, Object value)
+    {
+        if (value instanceof Set) {
+            return new PersistentCollectionTypeSerializer(delegate, EMPTY_SET);
+        }
+        if (value instanceof List) {
+            return new PersistentCollectionTypeSerializer(delegate, EMPTY_LIST);
+        }
+        if (value instanceof Map) {
+            return new PersistentCollectionTypeSerializer(delegate, EMPTY_MAP);
+        }
+        throw new IllegalArgumentException("Unsupported PersistentCollection subtype: " + value.getClass());
+    }
+
+    @Override
+    public TypeSerializer forProperty(BeanProperty prop) {
+        TypeSerializer delegate = _delegate.forProperty(prop);
+        return (delegate == _delegate) ? this : new PersistentCollectionTypeSerializer(delegate, _container);
+    }
+
+    @Override
+    public JsonTypeInfo.As getTypeInclusion() {
+        return _delegate.getTypeInclusion();
+    }
+
+    @Override
+    public String getPropertyName() {
+        return _delegate.getPropertyName();
+    }
+
+    @Override
+    public TypeIdResolver getTypeIdResolver() {
+        return _delegate.getTypeIdResolver();
+    }
+
+    @Override
+    public WritableTypeId writeTypePrefix(JsonGenerator g, WritableTypeId typeId) throws IOException {
+        if (typeId.id == null) {
+            // type id is generated from the value: substitute the JDK container
+            typeId.forValue = _container;
+            typeId.forValueType = _container.getClass();
+        }
+        return _delegate.writeTypePrefix(g, typeId);
+    }
+
+    @Override
+    public WritableTypeId writeTypeSuffix(JsonGenerator g, WritableTypeId typeId) throws IOException {
+        return _delegate.writeTypeSuffix(g, typeId);
+    }
+}
@@ -0,0 +1,339 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.EntityMode;
+import org.hibernate.HibernateException;
+import org.hibernate.MultiIdentifierLoadAccess;
+import org.hibernate.Session;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+import org.hibernate.type.CompositeType;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.datatype.hibernate5.HibernateProxySerializer.ProxySessionReader;
+
+/**
+ * Helper for initializing uninitialized {@link HibernateProxy} instances using one
+ * multi-id load ({@link Session#byMultipleIds}) per entity name, instead of
+ * letting {@link HibernateProxySerializer} initialize them one by one.
+ * <p>
+ * With {@link Hibernate5Module.Feature#BATCH_LAZY_LOADING}, this is done during
+ * serialization: when a proxy that is the value of a property of an element of a
+ * collection being written has to be initialized, uninitialized proxies of the
+ * same entity that are values of the same property of the other elements are
+ * initialized along with it (see {@link #initialize(LazyInitializer, SerializerProvider, BeanProperty)}).
+ * <p>
+ * It can also be called explicitly before serializing a value, to initialize all
+ * uninitialized proxies reachable from it. The value graph is walked level by
+ * level: at each level, uninitialized proxies attached to given session are
+ * grouped by entity name and loaded together, and their implementations are then
+ * walked as part of the next level. Uninitialized collections are not walked (nor
+ * initialized).
+ *<pre>
+ *   ProxyBatchLoader.initialize(session, orders);
+ *   String json = mapper.writeValueAsString(orders);
+ *</pre>
+ * Multi-id loading requires Hibernate 5.1 or later; with earlier versions, proxies
+ * are initialized one by one.
+ *
+ * @since 2.9.7
+ */
+public class ProxyBatchLoader
+{
+    private static final Logger logger = LoggerFactory.getLogger(ProxyBatchLoader.class);
+
+    /**
+     * Maximum number of identifiers loaded by a single query.
+     */
+    public final static int DEFAULT_BATCH_SIZE = 500;
+
+    protected final SessionImplementor _session;
+
+    protected final Set<Object> _seen = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+    protected ProxyBatchLoader(SessionImplementor session) {
+        _session = session;
+    }
+
+    /**
+     * Initializes all uninitialized proxies reachable from given value that are
+     * attached to given session.
+     *
+     * @return Number of proxies initialized
+     */
+    public static int initialize(Session session, Object value)
+    {
+        if ((value == null) || !session.isOpen()) {
+            return 0;
+        }
+        return new ProxyBatchLoader((SessionImplementor) session).initializeFrom(value);
+    }
+
+    /**
+     * Initializes given uninitialized proxy, value of given property, along with
+     * uninitialized proxies of the same entity (and session) that are values of the
+     * same property of the other elements of the collection being written, if any
+     * (see {@link #setElements}). Elements are only scanned once per property and
+     * entity: proxies left uninitialized by that batch (like those of missing
+     * entities), or found afterwards, are left for the caller to initialize.
+     *
+     * @return Number of proxies initialized, or 0 if proxy is left for the caller
+     *    to initialize
+     */
+    public static int initialize(LazyInitializer init, SerializerProvider provider, BeanProperty property)
+    {
+        final Object scope = provider.getAttribute(ProxyBatchLoader.class);
+        final AnnotatedMember member = (property == null) ? null : property.getMember();
+        if (!(scope instanceof ElementScope) || (member == null)) {
+            return 0;
+        }
+        // (not batchable with sessions other than SessionImplementors)
+        final SessionImplementor session = ProxySessionReader.findSessionImplementor(init);
+        if ((session == null) || !session.isOpen()) {
+            return 0;
+        }
+        final String entityName = init.getEntityName();
+        if (!((ElementScope) scope).markBatched(member, entityName)) {
+            return 0;
+        }
+        final Class<?> ownerClass = member.getDeclaringClass();
+        ProxyBatchLoader loader = new ProxyBatchLoader(session);
+        List<LazyInitializer> group = new ArrayList<>();
+        group.add(init);
+        loader._seen.add(init);
+        for (Object element : ((ElementScope) scope)._elements) {
+            if (element instanceof HibernateProxy) {
+                LazyInitializer elementInit = ((HibernateProxy) element).getHibernateLazyInitializer();
+                // (uninitialized elements are written later, their properties are not known yet)
+                element = elementInit.isUninitialized() ? null : elementInit.getImplementation();
+            }
+            if (!ownerClass.isInstance(element)) {
+                continue;
+            }
+            final Object value;
+            try {
+                value = member.getValue(element);
+            } catch (IllegalArgumentException e) {
+                // value will be read (and fail) when element is written
+                continue;
+            }
+            if (value instanceof HibernateProxy) {
+                LazyInitializer other = ((HibernateProxy) value).getHibernateLazyInitializer();
+                if (other.isUninitialized() && entityName.equals(other.getEntityName())
+                        && (ProxySessionReader.findSessionImplementor(other) == session) && loader._seen.add(other)) {
+                    group.add(other);
+                }
+            }
+        }
+        if (group.size() < 2) {
+            return 0;
+        }
+        return loader._load(entityName, group, new ArrayList<Object>());
+    }
+
+    /**
+     * Method called by serializers of collections to make elements of the collection
+     * being written available to {@link #initialize(LazyInitializer, SerializerProvider, BeanProperty)}
+     * (or, once written, those of the enclosing collection again, by passing the
+     * value returned by the first call).
+     *
+     * @param elements Collection being written, or value returned by a previous call
+     *
+     * @return Elements of the collection that were set before (along with what was
+     *    already batched for them), if any
+     */
+    public static Object setElements(SerializerProvider provider, Object elements)
+    {
+        Object old = provider.getAttribute(ProxyBatchLoader.class);
+        provider.setAttribute(ProxyBatchLoader.class, (elements instanceof Collection<?>)
+                ? new ElementScope((Collection<?>) elements) : elements);
+        return old;
+    }
+
+    protected int initializeFrom(Object root)
+    {
+        int count = 0;
+        List<Object> level = new ArrayList<>();
+        level.add(root);
+        while (!level.isEmpty()) {
+            List<Object> next = new ArrayList<>();
+            Map<String, List<LazyInitializer>> pending = new LinkedHashMap<>();
+            for (Object value : level) {
+                _collect(value, next, pending);
+            }
+            for (Map.Entry<String, List<LazyInitializer>> entry : pending.entrySet()) {
+                count += _load(entry.getKey(), entry.getValue(), next);
+            }
+            level = next;
+        }
+        return count;
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper methods
+    /**********************************************************************
+     */
+
+    @SuppressWarnings("deprecation")
+    protected void _collect(Object value, List<Object> next, Map<String, List<LazyInitializer>> pending)
+    {
+        if ((value == null) || !_seen.add(value)) {
+            return;
+        }
+        if (value instanceof HibernateProxy) {
+            LazyInitializer init = ((HibernateProxy) value).getHibernateLazyInitializer();
+            if (!init.isUninitialized()) {
+                next.add(init.getImplementation());
+            } else if (ProxySessionReader.findSessionImplementor(init) == _session) {
+                List<LazyInitializer> group = pending.get(init.getEntityName());
+                if (group == null) {
+                    group = new ArrayList<>();
+                    pending.put(init.getEntityName(), group);
+                }
+                group.add(init);
+            }
+            return;
+        }
+        if (value instanceof PersistentCollection) {
+            if (!((PersistentCollection) value).wasInitialized()) {
+                return;
+            }
+        }
+        if (value instanceof Collection<?>) {
+            next.addAll((Collection<?>) value);
+            return;
+        }
+        if (value instanceof Map<?,?>) {
+            next.addAll(((Map<?,?>) value).keySet());
+            next.addAll(((Map<?,?>) value).values());
+            return;
+        }
+        if (value instanceof Object[]) {
+            Collections.addAll(next, (Object[]) value);
+            return;
+        }
+        ClassMetadata metadata = _session.getFactory().getClassMetadata(value.getClass());
+        if (metadata != null) {
+            _collectProperties(metadata.getPropertyTypes(), metadata.getPropertyValues(value), next);
+        }
+    }
+
+    protected void _collectProperties(Type[] types, Object[] values, List<Object> next)
+    {
+        for (int i = 0, len = types.length; i < len; ++i) {
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            Type type = types[i];
+            if (type.isAssociationType()) {
+                next.add(value);
+            } else if (type.isComponentType()) {
+                CompositeType compType = (CompositeType) type;
+                _collectProperties(compType.getSubtypes(), compType.getPropertyValues(value, EntityMode.POJO), next);
+            }
+        }
+    }
+
+    protected int _load(String entityName, List<LazyInitializer> inits, List<Object> next)
+    {
+        List<Serializable> ids = new ArrayList<>(inits.size());
+        for (LazyInitializer init : inits) {
+            ids.add(init.getIdentifier());
+        }
+        if (!Hibernate5Version.isHibernate5_1_Plus() || !(_session instanceof Session)) {
+            // no multi-id loading: initialize one by one
+            return _initializeEach(inits, next);
+        }
+        logger.debug("Batch loading {} proxies of entity {}", ids.size(), entityName);
+        final List<?> loaded;
+        try {
+            // (SessionImplementor only extends Session since 5.2)
+            MultiIdentifierLoadAccess<?> access = ((Session) _session).byMultipleIds(entityName);
+            loaded = access.withBatchSize(DEFAULT_BATCH_SIZE)
+                .enableOrderedReturn(true)
+                .multiLoad(ids);
+        } catch (HibernateException | IllegalArgumentException e) {
+            // proxies will be initialized one by one during serialization
+            logger.warn("Unable to batch load proxies of entity " + entityName, e);
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0, len = inits.size(); i < len; ++i) {
+            // missing entities are left for the serializer to deal with
+            if (loaded.get(i) == null) {
+                continue;
+            }
+            LazyInitializer init = inits.get(i);
+            // entity is now in the persistence context, so this does not hit the database
+            init.initialize();
+            next.add(init.getImplementation());
+            ++count;
+        }
+        return count;
+    }
+
+    protected int _initializeEach(List<LazyInitializer> inits, List<Object> next)
+    {
+        int count = 0;
+        for (LazyInitializer init : inits) {
+            try {
+                init.initialize();
+            } catch (HibernateException e) {
+                // missing entities are left for the serializer to deal with
+                continue;
+            }
+            next.add(init.getImplementation());
+            ++count;
+        }
+        return count;
+    }
+
+    /**
+     * Elements of the collection being written, along with the properties (and
+     * entities) their proxies were already batched for.
+     */
+    protected final static class ElementScope
+    {
+        protected final Collection<?> _elements;
+
+        protected final Map<AnnotatedMember, Set<String>> _batched = new HashMap<>();
+
+        protected ElementScope(Collection<?> elements) {
+            _elements = elements;
+        }
+
+        /**
+         * @return True if proxies of given entity, values of given property, were not
+         *    batched yet (and are now considered batched)
+         */
+        protected boolean markBatched(AnnotatedMember member, String entityName) {
+            Set<String> entityNames = _batched.get(member);
+            if (entityNames == null) {
+                entityNames = new HashSet<>();
+                _batched.put(member, entityNames);
+            }
+            return entityNames.add(entityName);
+        }
+    }
+}
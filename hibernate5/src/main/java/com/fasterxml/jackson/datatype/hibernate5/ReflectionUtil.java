@@ -1,6 +1,9 @@
 package com.fasterxml.jackson.datatype.hibernate5;
 
+import java.beans.Introspector;
 import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
 
 public class ReflectionUtil {
     public static Object getFieldValue(Object obj, String fieldName) throws IllegalArgumentException, IllegalAccessException {
@@ -28,6 +31,25 @@ public class ReflectionUtil {
         }
     }
 
+    /**
+     * Returns name of the persistent attribute given field or getter method
+     * gives access to.
+     *
+     * @since 2.9.7
+     */
+    public static String getAttributeName(Member member) {
+        String name = member.getName();
+        if (member instanceof Method) {
+            if (name.startsWith("get")) {
+                return Introspector.decapitalize(name.substring(3));
+            }
+            if (name.startsWith("is")) {
+                return Introspector.decapitalize(name.substring(2));
+            }
+        }
+        return name;
+    }
+
     private static Field findField(Class<?> cls, String fieldName) {
         if (cls == null) {
             return null;
@@ -0,0 +1,296 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.CollectionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+/**
+ * Helper used for resolving serializers of all entities mapped by a
+ * {@link SessionFactory} ahead of time (usually during application startup),
+ * so that the first serialization calls do not pay for bean introspection and
+ * serializer construction: serializers are built and cached by the
+ * {@link SerializerProvider} of the {@link ObjectMapper} for
+ *<ul>
+ * <li>every mapped entity class, and the generated proxy class of every entity
+ *   that has one, as root values (which also resolves the serializers of their
+ *   properties with final types, kept by the entity serializers), and</li>
+ * <li>the persistent collection type of every collection role (like
+ *   <code>PersistentSet</code>).</li>
+ *</ul>
+ * Collection serializers are also contextualized for the owning property (see
+ * {@link PersistentCollectionSerializer#createContextual}), so that invalid
+ * property configuration is reported by the warm-up. Contextual instances are not
+ * cached by the provider though: they are created again, from the cached
+ * serializer, when a property is first serialized, and then kept by its
+ * property writer.
+ *<p>
+ * Failures to resolve a serializer are logged and counted, but do not stop the
+ * warm-up: the same failure will happen when such a type is serialized.
+ *
+ * @see Hibernate5Module#warmUp(ObjectMapper, SessionFactory)
+ *
+ * @since 2.9.7
+ */
+public class SerializerWarmUp
+{
+    private static final Logger logger = LoggerFactory.getLogger(SerializerWarmUp.class);
+
+    /**
+     * Hibernate 5.2 changed the session parameter type of
+     * {@code EntityPersister.createProxy()} and {@code CollectionType.instantiate()}
+     * (see {@link CollectionSizeLoader.PersisterSizeReader}), so they must be
+     * called using reflection.
+     */
+    protected static final Method persisterCreateProxyMethod = _findMethod(EntityPersister.class, "createProxy", 2);
+
+    protected static final Method collectionTypeInstantiateMethod = _findMethod(CollectionType.class, "instantiate", 3);
+
+    private SerializerWarmUp() { }
+
+    /**
+     * Resolves serializers of all entities and collection roles of given session
+     * factory, caching them in the serializer provider of given mapper.
+     *
+     * @return Summary of what was resolved, and how long it took
+     */
+    @SuppressWarnings("deprecation")
+    public static Result warmUp(ObjectMapper mapper, SessionFactory sessionFactory)
+    {
+        final long start = System.nanoTime();
+        final SessionFactoryImplementor factory = (SessionFactoryImplementor) sessionFactory;
+        final SerializerProvider provider = mapper.getSerializerProviderInstance();
+        final TypeFactory typeFactory = mapper.getTypeFactory();
+        int entities = 0, proxies = 0, collections = 0, failures = 0;
+
+        for (EntityPersister persister : factory.getEntityPersisters().values()) {
+            final Class<?> mappedClass = persister.getMappedClass();
+            if (mappedClass == null) { // dynamic-map entity
+                continue;
+            }
+            if (_resolve(provider, typeFactory.constructType(mappedClass), null)) {
+                ++entities;
+            } else {
+                ++failures;
+            }
+            final Class<?> proxyClass = _proxyClass(persister);
+            if (proxyClass != null) {
+                if (_resolve(provider, typeFactory.constructType(proxyClass), null)) {
+                    ++proxies;
+                } else {
+                    ++failures;
+                }
+            }
+        }
+
+        for (CollectionPersister persister : factory.getCollectionPersisters().values()) {
+            final BeanProperty property = _ownerProperty(provider, persister);
+            final JavaType type = _collectionType(typeFactory, persister, property);
+            if (type == null) {
+                continue;
+            }
+            if (_resolve(provider, type, property)) {
+                ++collections;
+            } else {
+                ++failures;
+            }
+        }
+
+        Result result = new Result(entities, proxies, collections, failures, System.nanoTime() - start);
+        logger.info("Resolved serializers of Hibernate mappings: {}", result);
+        return result;
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper methods
+    /**********************************************************************
+     */
+
+    /**
+     * Helper method for resolving serializer of given type, the same way it is
+     * resolved when serialized: as a root value for entity types (looked up by
+     * class, like values passed to {@link ObjectMapper#writeValue}), or for given
+     * property for collection types (like property writers do).
+     *
+     * @return True if serializer was resolved; false if resolution failed
+     */
+    protected static boolean _resolve(SerializerProvider provider, JavaType type, BeanProperty property)
+    {
+        try {
+            if (property == null) {
+                provider.findTypedValueSerializer(type.getRawClass(), true, null);
+            } else {
+                provider.findPrimaryPropertySerializer(type, property);
+            }
+            return true;
+        } catch (Exception e) {
+            logger.warn("Unable to resolve serializer for type " + type, e);
+            return false;
+        }
+    }
+
+    /**
+     * Helper method for finding the class of the proxies Hibernate generates for
+     * given entity, if any. Class is found by creating an empty proxy, not attached
+     * to any session, that is only used for getting its class.
+     */
+    protected static Class<?> _proxyClass(EntityPersister persister)
+    {
+        if (!persister.hasProxy() || (persisterCreateProxyMethod == null)) {
+            return null;
+        }
+        try {
+            Object proxy = persisterCreateProxyMethod.invoke(persister, null, null);
+            return (proxy == null) ? null : proxy.getClass();
+        } catch (InvocationTargetException | IllegalAccessException e) {
+            logger.debug("Unable to create proxy of entity " + persister.getEntityName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Helper method for constructing the type of the persistent collections of
+     * given role (like <code>PersistentSet</code>), specialized from the declared
+     * type of given owner property, if any, the same way it is at runtime.
+     */
+    protected static JavaType _collectionType(TypeFactory typeFactory, CollectionPersister persister,
+            BeanProperty property)
+    {
+        Class<?> collClass = null;
+        if (collectionTypeInstantiateMethod != null) {
+            try {
+                Object coll = collectionTypeInstantiateMethod.invoke(persister.getCollectionType(),
+                        null, persister, null);
+                if (coll != null) {
+                    collClass = coll.getClass();
+                }
+            } catch (InvocationTargetException | IllegalAccessException e) {
+                logger.debug("Unable to instantiate collection of role " + persister.getRole(), e);
+            }
+        }
+        // arrays are not serialized as persistent collections
+        if ((collClass == null) || !(Collection.class.isAssignableFrom(collClass)
+                || Map.class.isAssignableFrom(collClass))) {
+            return null;
+        }
+        if ((property != null) && property.getType().getRawClass().isAssignableFrom(collClass)) {
+            return typeFactory.constructSpecializedType(property.getType(), collClass);
+        }
+        return typeFactory.constructType(collClass);
+    }
+
+    /**
+     * Helper method for finding the property of the owner entity serializer that
+     * holds collections of given role, if it is a direct property of the owner.
+     */
+    protected static BeanProperty _ownerProperty(SerializerProvider provider, CollectionPersister persister)
+    {
+        final EntityPersister owner = persister.getOwnerEntityPersister();
+        final String prefix = owner.getEntityName() + ".";
+        final String role = persister.getRole();
+        if ((owner.getMappedClass() == null) || !role.startsWith(prefix)) {
+            return null;
+        }
+        final String attributeName = role.substring(prefix.length());
+        try {
+            JsonSerializer<Object> ser = provider.findValueSerializer(owner.getMappedClass());
+            for (Iterator<PropertyWriter> it = ser.properties(); it.hasNext(); ) {
+                PropertyWriter prop = it.next();
+                if ((prop.getMember() != null) && (prop.getMember().getMember() != null)
+                        && attributeName.equals(ReflectionUtil.getAttributeName(prop.getMember().getMember()))) {
+                    return prop;
+                }
+            }
+        } catch (Exception e) {
+            // already reported when resolving owner
+        }
+        return null;
+    }
+
+    private static Method _findMethod(Class<?> cls, String name, int paramCount)
+    {
+        for (Method m : cls.getMethods()) {
+            if (name.equals(m.getName()) && (m.getParameterCount() == paramCount)) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    /**
+     * Summary of a warm-up: number of serializers resolved, and time taken.
+     */
+    public static class Result
+    {
+        protected final int _entityCount;
+        protected final int _proxyCount;
+        protected final int _collectionCount;
+        protected final int _failureCount;
+        protected final long _durationNanos;
+
+        public Result(int entityCount, int proxyCount, int collectionCount,
+                int failureCount, long durationNanos) {
+            _entityCount = entityCount;
+            _proxyCount = proxyCount;
+            _collectionCount = collectionCount;
+            _failureCount = failureCount;
+            _durationNanos = durationNanos;
+        }
+
+        /**
+         * Number of entity classes serializers were resolved for.
+         */
+        public int getEntityCount() { return _entityCount; }
+
+        /**
+         * Number of proxy classes serializers were resolved for.
+         */
+        public int getProxyCount() { return _proxyCount; }
+
+        /**
+         * Number of collection roles serializers were resolved for.
+         */
+        public int getCollectionCount() { return _collectionCount; }
+
+        /**
+         * Number of types serializer resolution failed for.
+         */
+        public int getFailureCount() { return _failureCount; }
+
+        public long getDuration(TimeUnit unit) {
+            return unit.convert(_durationNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d entities, %d proxies, %d collection roles (%d failures) in %d ms",
+                    _entityCount, _proxyCount, _collectionCount, _failureCount,
+                    getDuration(TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.Hibernate;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module.Feature;
+import com.fasterxml.jackson.datatype.hibernate5.data.Customer;
+import com.fasterxml.jackson.datatype.hibernate5.data.Order;
+
+public class BatchLazyLoadingTest extends BaseTest
+{
+    @Test
+    public void testBatchLoadingOfCollections() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+            stats.setStatisticsEnabled(true);
+
+            EntityManager em = emf.createEntityManager();
+            List<Customer> customers = em.createQuery("select c from Customer c", Customer.class).getResultList();
+            assertTrue(customers.size() > 100);
+            for (Customer customer : customers) {
+                assertFalse(Hibernate.isInitialized(customer.getOrders()));
+                assertFalse(Hibernate.isInitialized(customer.getPayments()));
+            }
+
+            ObjectMapper mapper = new ObjectMapper().registerModule(hibernateModule(true)
+                    .enable(Feature.BATCH_LAZY_LOADING));
+            stats.clear();
+            String json = mapper.writeValueAsString(customers);
+            assertNotNull(json);
+
+            for (Customer customer : customers) {
+                assertTrue(Hibernate.isInitialized(customer.getOrders()));
+                assertTrue(Hibernate.isInitialized(customer.getPayments()));
+                for (Order order : customer.getOrders()) {
+                    assertTrue(Hibernate.isInitialized(order.getOrderDetails()));
+                }
+            }
+            // one query per role (orders, payments, order details), instead of one per collection
+            assertEquals(3L, stats.getPrepareStatementCount());
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    // Queries are created the same way with versions before 5.2
+    @Test
+    public void testLegacyQueryCreator() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Session session = em.unwrap(Session.class);
+            List<?> rows = CollectionBatchLoader.LegacyQueryCreator
+                    .createQuery(session, "select c.customerName from Customer c where c.customerNumber = 103")
+                    .list();
+            assertEquals(1, rows.size());
+            try {
+                CollectionBatchLoader.LegacyQueryCreator.createQuery(session, "select c from NoSuchEntity c");
+                fail("Should not pass");
+            } catch (HibernateException | IllegalArgumentException e) {
+                // expected: query failure itself, not a reflection one
+            }
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.resource.transaction.spi.TransactionCoordinatorBuilder;
+import org.hibernate.service.spi.ServiceRegistryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.DefaultSerializerProvider;
+import com.fasterxml.jackson.datatype.hibernate5.data.Customer;
+
+public class DetachedLazyLoadingTest extends BaseTest
+{
+    @Test
+    public void testSingleLoadingSessionPerCall() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            SessionFactory sf = emf.unwrap(SessionFactory.class);
+            Statistics stats = sf.getStatistics();
+            stats.setStatisticsEnabled(true);
+
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 103);
+            em.close();
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+            assertFalse(Hibernate.isInitialized(customer.getPayments()));
+
+            Hibernate5Module module = new Hibernate5Module(sf);
+            module.enable(Hibernate5Module.Feature.FORCE_LAZY_LOADING);
+            ObjectMapper mapper = new ObjectMapper().registerModule(module);
+            // provider is not changed by the module
+            assertEquals(DefaultSerializerProvider.Impl.class, mapper.getSerializerProvider().getClass());
+            mapper.setSerializerProvider(new HibernateSerializerProvider());
+
+            stats.clear();
+            String json = mapper.writeValueAsString(customer);
+            // orders, payments and details of every order, all loaded with one session
+            assertEquals(1L, stats.getSessionOpenCount());
+            assertEquals(1L, stats.getSessionCloseCount());
+            assertEquals(1L, stats.getTransactionCount());
+            assertTrue(Hibernate.isInitialized(customer.getOrders()));
+            assertTrue(Hibernate.isInitialized(customer.getPayments()));
+
+            Map<?,?> stuff = mapper.readValue(json, Map.class);
+            assertTrue(stuff.containsKey("orders"));
+            assertTrue(stuff.containsKey("payments"));
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testLegacyCollectionSessionWriter() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 103);
+            em.close();
+
+            // attaching detached collection the way versions before 5.2 have to
+            Session session = emf.unwrap(SessionFactory.class).openSession();
+            try {
+                PersistentCollection orders = (PersistentCollection) customer.getOrders();
+                assertTrue(LoadingSession.LegacyCollectionSessionWriter.setSession(orders,
+                        (SessionImplementor) session));
+                assertFalse(LoadingSession.isDetached(orders));
+            } finally {
+                session.close();
+            }
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testLegacySessionCloser() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            // closing session the way versions before 5.2 have to
+            Session session = emf.unwrap(SessionFactory.class).openSession();
+            LoadingSession.LegacySessionCloser.close(session);
+            assertFalse(session.isOpen());
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testTransactionStartedWithoutJTA() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            // resource-local persistence unit: loading session has to start a transaction
+            assertFalse(LoadingSession.isJTA(emf.unwrap(SessionFactory.class)));
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testNoTransactionStartedWithJTA() throws Exception
+    {
+        // decided by the transaction coordinator of the factory, whatever its bootstrap
+        TransactionCoordinatorBuilder builder = Mockito.mock(TransactionCoordinatorBuilder.class);
+        Mockito.when(builder.isJta()).thenReturn(true);
+        ServiceRegistryImplementor registry = Mockito.mock(ServiceRegistryImplementor.class);
+        Mockito.when(registry.getService(TransactionCoordinatorBuilder.class)).thenReturn(builder);
+        SessionFactoryImplementor sf = Mockito.mock(SessionFactoryImplementor.class);
+        Mockito.when(sf.getServiceRegistry()).thenReturn(registry);
+
+        assertTrue(LoadingSession.isJTA(sf));
+        // only looked up once per factory
+        assertTrue(LoadingSession.isJTA(sf));
+        Mockito.verify(registry, Mockito.times(1)).getService(TransactionCoordinatorBuilder.class);
+    }
+}
@@ -0,0 +1,87 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.util.Collections;
+
+import org.hibernate.bytecode.enhance.spi.interceptor.LazyAttributeLoadingInterceptor;
+import org.hibernate.engine.spi.PersistentAttributeInterceptable;
+import org.hibernate.engine.spi.PersistentAttributeInterceptor;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonAppend;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module.Feature;
+
+public class EnhancedEntityTest extends BaseTest
+{
+    // What bytecode enhancement produces, for an entity with lazy "text"
+    @JsonPropertyOrder({ "id", "text" })
+    static class EnhancedNote implements PersistentAttributeInterceptable
+    {
+        private transient PersistentAttributeInterceptor interceptor;
+
+        private int id = 1;
+
+        private String text = "note";
+
+        int textReads;
+
+        public int getId() { return id; }
+
+        public String getText() {
+            ++textReads;
+            return text;
+        }
+
+        @Override
+        public PersistentAttributeInterceptor $$_hibernate_getInterceptor() { return interceptor; }
+
+        @Override
+        public void $$_hibernate_setInterceptor(PersistentAttributeInterceptor interceptor) {
+            this.interceptor = interceptor;
+        }
+    }
+
+    // Virtual properties are written by writers of their own
+    @JsonAppend(attrs = @JsonAppend.Attr("version"))
+    static class VersionedNote extends EnhancedNote { }
+
+    @Test
+    public void testUnloadedAttribute() throws Exception
+    {
+        EnhancedNote note = new EnhancedNote();
+        LazyAttributeLoadingInterceptor interceptor = new LazyAttributeLoadingInterceptor("EnhancedNote",
+                Collections.singleton("text"), null);
+        note.$$_hibernate_setInterceptor(interceptor);
+
+        ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module());
+        assertEquals("{\"id\":1,\"text\":null}", mapper.writeValueAsString(note));
+        assertEquals(0, note.textReads);
+        assertEquals("{\"id\":1}", new ObjectMapper().registerModule(new Hibernate5Module())
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .writeValueAsString(note));
+
+        // loaded attributes, or forced loading: accessor is used
+        interceptor.attributeInitialized("text");
+        assertEquals("{\"id\":1,\"text\":\"note\"}", mapper.writeValueAsString(note));
+        assertEquals(1, note.textReads);
+        interceptor = new LazyAttributeLoadingInterceptor("EnhancedNote", Collections.singleton("text"), null);
+        note.$$_hibernate_setInterceptor(interceptor);
+        assertEquals("{\"id\":1,\"text\":\"note\"}", new ObjectMapper().registerModule(new Hibernate5Module()
+                .enable(Feature.FORCE_LAZY_LOADING)).writeValueAsString(note));
+    }
+
+    @Test
+    public void testVirtualProperty() throws Exception
+    {
+        VersionedNote note = new VersionedNote();
+        note.$$_hibernate_setInterceptor(new LazyAttributeLoadingInterceptor("VersionedNote",
+                Collections.singleton("text"), null));
+
+        ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module());
+        assertEquals("{\"id\":1,\"text\":null,\"version\":3}",
+                mapper.writer().withAttribute("version", 3).writeValueAsString(note));
+        assertEquals(0, note.textReads);
+    }
+}
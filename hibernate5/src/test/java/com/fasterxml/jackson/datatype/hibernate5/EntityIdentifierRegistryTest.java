@@ -0,0 +1,80 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.SessionFactory;
+import org.junit.Test;
+
+import com.fasterxml.jackson.datatype.hibernate5.EntityIdentifierRegistry.EntityIdentifier;
+import com.fasterxml.jackson.datatype.hibernate5.data.Customer;
+import com.fasterxml.jackson.datatype.hibernate5.data.Payment;
+import com.fasterxml.jackson.datatype.hibernate5.data.PaymentId;
+
+public class EntityIdentifierRegistryTest extends BaseTest
+{
+    @Test
+    public void testAnnotatedIdentifiers() throws Exception
+    {
+        EntityIdentifierRegistry registry = new EntityIdentifierRegistry(null, null);
+        EntityIdentifier id = registry.find(Customer.class);
+        assertNotNull(id);
+        assertEquals("customerNumber", id.getName());
+        assertEquals(Integer.class, id.getType());
+        assertSame(id, registry.find(Customer.class));
+
+        Customer customer = (Customer) id.newInstance(103);
+        assertEquals(Integer.valueOf(103), customer.getCustomerNumber());
+        assertEquals(Integer.valueOf(103), id.getValue(customer));
+
+        // embedded identifiers
+        EntityIdentifier paymentId = registry.find(Payment.class);
+        assertNotNull(paymentId);
+        assertEquals("id", paymentId.getName());
+        assertEquals(PaymentId.class, paymentId.getType());
+
+        assertNull(registry.find(String.class));
+    }
+
+    @Test
+    public void testMetamodelIdentifiers() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityIdentifierRegistry registry = new EntityIdentifierRegistry(null, emf.unwrap(SessionFactory.class));
+            EntityIdentifier id = registry.find(Customer.class);
+            assertNotNull(id);
+            assertEquals("customerNumber", id.getName());
+            assertEquals(Integer.class, id.getType());
+            assertNull(registry.find(String.class));
+
+            // identifier names of all entities are registered on first lookup
+            IdentifierStub stub = registry.findStub(Customer.class.getName());
+            assertNotNull(stub);
+            assertEquals("customerNumber", stub.getName());
+            assertEquals("id", registry.findStub(Payment.class.getName()).getName());
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testSharedRegistry() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            SessionFactory sf = emf.unwrap(SessionFactory.class);
+            EntityIdentifierRegistry registry = EntityIdentifierRegistry.shared(null, sf);
+            assertSame(registry, EntityIdentifierRegistry.shared(null, sf));
+            // legacy constructors share the registry of the factory too
+            assertSame(registry, new HibernateSerializerModifier(null, 0, sf)._identifiers);
+            assertFalse(registry._entitiesAdded);
+            assertEquals("customerNumber", registry.findStub(Customer.class.getName()).getName());
+            assertTrue(registry._entitiesAdded);
+
+            assertNotSame(EntityIdentifierRegistry.shared(null, null), EntityIdentifierRegistry.shared(null, null));
+        } finally {
+            emf.close();
+        }
+    }
+}
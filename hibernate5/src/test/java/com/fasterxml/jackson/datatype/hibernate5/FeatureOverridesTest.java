@@ -0,0 +1,160 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.FetchType;
+import javax.persistence.OneToMany;
+import javax.persistence.Persistence;
+
+import org.hibernate.Hibernate;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module.Feature;
+import com.fasterxml.jackson.datatype.hibernate5.data.Customer;
+import com.fasterxml.jackson.datatype.hibernate5.data.Order;
+
+public class FeatureOverridesTest extends BaseTest
+{
+    @Test
+    public void testForceLazyLoadingPerCall() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            ObjectMapper mapper = mapperWithModule(false);
+            ObjectWriter forcing = mapper.writer().withAttribute(FeatureOverrides.class,
+                    FeatureOverrides.empty().with(Feature.FORCE_LAZY_LOADING));
+
+            Customer customer = em.find(Customer.class, 103);
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+
+            // default features of the mapper: not loaded
+            Map<?,?> stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+            assertNull(stuff.get("orders"));
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+
+            // overridden for a single call, with the same (cached) serializers
+            stuff = mapper.readValue(forcing.writeValueAsString(customer), Map.class);
+            assertTrue(stuff.get("orders") instanceof List); // sets read as lists
+            assertTrue(Hibernate.isInitialized(customer.getOrders()));
+            em.close();
+
+            // and overrides do not leak to calls without them
+            em = emf.createEntityManager();
+            customer = em.find(Customer.class, 103);
+            stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+            assertNull(stuff.get("orders"));
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testSerializeIdentifierPerCall() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .enable(Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS));
+            Customer customer = em.getReference(Customer.class, 103);
+
+            assertEquals("{\"customerNumber\":103}", mapper.writeValueAsString(customer));
+            assertEquals("null", mapper.writer()
+                    .withAttribute(FeatureOverrides.class, FeatureOverrides.empty()
+                            .without(Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS))
+                    .writeValueAsString(customer));
+            assertFalse(Hibernate.isInitialized(customer));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    // eager collections are still wrapped: batch loading of proxies of their elements
+    // may be enabled per call
+    @Test
+    public void testBatchLazyLoadingForEagerCollections() throws Exception
+    {
+        ObjectMapper mapper = new ObjectMapper();
+        SerializerProvider provider = mapper.getSerializerProviderInstance();
+        JavaType type = mapper.getTypeFactory().constructCollectionType(List.class, Object.class);
+        PersistentCollectionSerializer ser = new PersistentCollectionSerializer(type,
+                provider.findValueSerializer(type), null,
+                Feature.REQUIRE_EXPLICIT_LAZY_LOADING_MARKER.getMask(), null);
+        assertFalse(ser.usesLazyLoading(new BeanProperty.Bogus()));
+        assertTrue(ser.createContextual(provider, new BeanProperty.Bogus()) instanceof PersistentCollectionSerializer);
+    }
+
+    // Annotation seen by Jackson (no mapping given to the module)
+    static abstract class EagerOrdersMixin {
+        @OneToMany(fetch = FetchType.EAGER)
+        public abstract Set<Order> getOrders();
+    }
+
+    // ... and uninitialized collections of eager properties are still written in full,
+    // with or without batch loading
+    @Test
+    public void testEagerCollectionsLoadedWithBatchLazyLoading() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module())
+                    .addMixIn(Customer.class, EagerOrdersMixin.class);
+            ObjectWriter batching = mapper.writer().withAttribute(FeatureOverrides.class,
+                    FeatureOverrides.empty().with(Feature.BATCH_LAZY_LOADING));
+
+            Customer customer = em.find(Customer.class, 103);
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+            Map<?,?> stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+            assertTrue(Hibernate.isInitialized(customer.getOrders()));
+            assertEquals(customer.getOrders().size(), ((List<?>) stuff.get("orders")).size());
+            em.clear();
+
+            customer = em.find(Customer.class, 103);
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+            stuff = mapper.readValue(batching.writeValueAsString(customer), Map.class);
+            assertTrue(Hibernate.isInitialized(customer.getOrders()));
+            assertEquals(customer.getOrders().size(), ((List<?>) stuff.get("orders")).size());
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testOverrides() throws Exception
+    {
+        FeatureOverrides overrides = FeatureOverrides.empty()
+                .with(Feature.FORCE_LAZY_LOADING)
+                .without(Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS);
+        int features = overrides.applyTo(Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS.getMask()
+                | Feature.USE_TRANSIENT_ANNOTATION.getMask());
+        assertTrue(Feature.FORCE_LAZY_LOADING.enabledIn(features));
+        assertFalse(Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS.enabledIn(features));
+        assertTrue(Feature.USE_TRANSIENT_ANNOTATION.enabledIn(features));
+
+        // later settings win
+        features = overrides.configure(Feature.FORCE_LAZY_LOADING, false).applyTo(features);
+        assertFalse(Feature.FORCE_LAZY_LOADING.enabledIn(features));
+
+        try {
+            FeatureOverrides.empty().with(Feature.USE_TRANSIENT_ANNOTATION);
+            fail("Should not pass");
+        } catch (IllegalArgumentException e) {
+            verifyException(e, "can not be overridden");
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module.Feature;
+import com.fasterxml.jackson.datatype.hibernate5.data.Branch;
+import com.fasterxml.jackson.datatype.hibernate5.data.Customer;
+
+public class FieldSelectionTest extends BaseTest
+{
+    @Test
+    public void testSelectedOnlyLoaded() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            ObjectMapper mapper = new ObjectMapper().registerModule(hibernateModule(true)
+                    .enable(Feature.APPLY_FIELD_SELECTION));
+            ObjectWriter w = mapper.writer().withAttribute(FieldSelection.class,
+                    FieldSelection.parse("customerName,orders.orderNumber"));
+            Customer customer = em.find(Customer.class, 103);
+
+            Map<?,?> stuff = mapper.readValue(w.writeValueAsString(customer), Map.class);
+            assertEquals(new HashSet<>(Arrays.asList("customerName", "orders")), stuff.keySet());
+            List<?> orders = (List<?>) stuff.get("orders");
+            assertFalse(orders.isEmpty());
+            for (Object order : orders) {
+                assertEquals(Arrays.asList("orderNumber"), Arrays.asList(((Map<?,?>) order).keySet().toArray()));
+            }
+            // not selected: not loaded, even if forced
+            assertTrue(Hibernate.isInitialized(customer.getOrders()));
+            assertFalse(Hibernate.isInitialized(customer.getPayments()));
+            assertFalse(Hibernate.isInitialized(customer.getEmployee()));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testWholeValues() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .enable(Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS)
+                    .enable(Feature.APPLY_FIELD_SELECTION));
+            Customer customer = em.find(Customer.class, 103);
+
+            // selected as a whole: all properties of orders
+            String json = mapper.writer().withAttribute(FieldSelection.class, FieldSelection.of("orders"))
+                    .writeValueAsString(customer);
+            Map<?,?> stuff = mapper.readValue(json, Map.class);
+            assertEquals(Arrays.asList("orders"), Arrays.asList(stuff.keySet().toArray()));
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+
+            // and without selection, all as usual
+            stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+            assertTrue(stuff.containsKey("customerName"));
+            assertTrue(stuff.containsKey("orders"));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testNotAppliedByDefault() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module());
+            Customer customer = em.find(Customer.class, 103);
+
+            String json = mapper.writer().withAttribute(FieldSelection.class, FieldSelection.of("customerName"))
+                    .writeValueAsString(customer);
+            Map<?,?> stuff = mapper.readValue(json, Map.class);
+            assertTrue(stuff.containsKey("customerName"));
+            assertTrue(stuff.containsKey("customerNumber"));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testXmlMappedEntity() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("xmlPersistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            // neither annotated: only known as persistent from the session factory
+            ObjectMapper mapper = new ObjectMapper().registerModule(
+                    new Hibernate5Module(emf.unwrap(SessionFactory.class))
+                            .enable(Feature.APPLY_FIELD_SELECTION));
+            Branch branch = em.find(Branch.class, "4");
+
+            String json = mapper.writer().withAttribute(FieldSelection.class,
+                    FieldSelection.parse("city,address.country"))
+                    .writeValueAsString(branch);
+            assertEquals(aposToQuotes("{'city':'Paris','address':{'country':'France'}}"), json);
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testParse() throws Exception
+    {
+        FieldSelection selection = FieldSelection.parse("a, b.c,b.d.e , d.x,d");
+        assertEquals(FieldSelection.ALL, selection.select("a"));
+        assertNull(selection.select("c"));
+        FieldSelection b = selection.select("b");
+        assertFalse(b.isAll());
+        assertEquals(FieldSelection.ALL, b.select("c"));
+        assertNull(b.select("e"));
+        assertEquals(FieldSelection.ALL, b.select("d").select("e"));
+        // whole value selected as well
+        assertEquals(FieldSelection.ALL, selection.select("d"));
+
+        try {
+            FieldSelection.parse("a..b");
+            fail("Should not pass");
+        } catch (IllegalArgumentException e) {
+            verifyException(e, "Empty property name");
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.Hibernate;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module.Feature;
+import com.fasterxml.jackson.datatype.hibernate5.data.Customer;
+import com.fasterxml.jackson.datatype.hibernate5.data.OrderDetail;
+import com.fasterxml.jackson.datatype.hibernate5.data.OrderDetailId;
+
+public class IdentifierStubTest extends BaseTest
+{
+    @Test
+    public void testIdentifierStubs() throws Exception
+    {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                .enable(Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS));
+
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.getReference(Customer.class, 103);
+            OrderDetail detail = em.getReference(OrderDetail.class, new OrderDetailId(10100, "S18_1749"));
+            em.close();
+
+            // only identifier is written, no other (null) properties
+            assertEquals("{\"customerNumber\":103}", mapper.writeValueAsString(customer));
+            assertFalse(Hibernate.isInitialized(customer));
+
+            Map<?,?> stub = mapper.readValue(mapper.writeValueAsString(detail), Map.class);
+            assertEquals(1, stub.size());
+            Map<?,?> id = (Map<?,?>) stub.get("id");
+            assertEquals(Integer.valueOf(10100), id.get("orderNumber"));
+            assertEquals("S18_1749", id.get("productCode"));
+            assertFalse(Hibernate.isInitialized(detail));
+        } finally {
+            emf.close();
+        }
+    }
+
+    // name of identifier property is the one written for loaded entities
+    @Test
+    public void testRenamedIdentifier() throws Exception
+    {
+        Hibernate5Module module = new Hibernate5Module()
+                .enable(Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS);
+        ObjectMapper mapper = new ObjectMapper().registerModule(module);
+        ObjectMapper snakeMapper = new ObjectMapper().registerModule(module)
+                .setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.getReference(Customer.class, 103);
+            em.close();
+
+            assertEquals("{\"customer_number\":103}", snakeMapper.writeValueAsString(customer));
+            // same stub, used by another mapper
+            assertEquals("{\"customerNumber\":103}", mapper.writeValueAsString(customer));
+            assertEquals("{\"customer_number\":103}", snakeMapper.writeValueAsString(customer));
+            assertFalse(Hibernate.isInitialized(customer));
+        } finally {
+            emf.close();
+        }
+    }
+
+    // names are introspected once per mapper, even when mappers write stubs alternately
+    @Test
+    public void testWrittenNamePerMapper() throws Exception
+    {
+        final int[] introspections = new int[1];
+        IdentifierStub stub = new IdentifierStub("customerNumber", Customer.class) {
+            @Override
+            protected SerializableString _findWrittenName(SerializerProvider provider) {
+                ++introspections[0];
+                return super._findWrittenName(provider);
+            }
+        };
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectMapper snakeMapper = new ObjectMapper()
+                .setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+        for (int i = 0; i < 3; ++i) {
+            assertEquals("customerNumber", stub._writtenName(mapper.getSerializerProviderInstance()).getValue());
+            assertEquals("customer_number", stub._writtenName(snakeMapper.getSerializerProviderInstance()).getValue());
+        }
+        assertEquals(2, introspections[0]);
+    }
+}
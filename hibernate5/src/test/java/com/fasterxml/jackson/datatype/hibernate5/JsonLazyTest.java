@@ -0,0 +1,94 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.Hibernate;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module.Feature;
+import com.fasterxml.jackson.datatype.hibernate5.JsonLazy.Mode;
+import com.fasterxml.jackson.datatype.hibernate5.data.Customer;
+import com.fasterxml.jackson.datatype.hibernate5.data.Employee;
+import com.fasterxml.jackson.datatype.hibernate5.data.Office;
+
+public class JsonLazyTest extends BaseTest
+{
+    static abstract class IdentifierOfficeMixin {
+        @JsonLazy(mode = Mode.IDENTIFIER)
+        public abstract Office getOffice();
+
+        @JsonLazy(mode = Mode.SIZE)
+        public abstract Set<Customer> getCustomers();
+    }
+
+    static abstract class ForcedCustomersMixin {
+        @JsonLazy(mode = Mode.NULL)
+        public abstract Office getOffice();
+
+        @JsonLazy(mode = Mode.FORCE)
+        public abstract Set<Customer> getCustomers();
+    }
+
+    @Test
+    public void testIdentifierAndSize() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Employee employee = em.find(Employee.class, 1370);
+            ObjectMapper mapper = new ObjectMapper()
+                    .registerModule(new Hibernate5Module())
+                    .addMixIn(Employee.class, IdentifierOfficeMixin.class);
+            Map<?,?> stuff = mapper.readValue(mapper.writeValueAsString(employee), Map.class);
+
+            assertEquals("4", ((Map<?,?>) stuff.get("office")).get("officeCode"));
+            assertEquals(Integer.valueOf(7), stuff.get("customers"));
+            assertFalse(Hibernate.isInitialized(employee.getOffice()));
+            assertFalse(Hibernate.isInitialized(employee.getCustomers()));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testForceAndNull() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Employee employee = em.find(Employee.class, 1370);
+            // module features apply to other properties only
+            ObjectMapper mapper = new ObjectMapper()
+                    .registerModule(new Hibernate5Module()
+                            .enable(Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS))
+                    .addMixIn(Employee.class, ForcedCustomersMixin.class);
+            Map<?,?> stuff = mapper.readValue(mapper.writeValueAsString(employee), Map.class);
+
+            assertTrue(stuff.containsKey("office"));
+            assertNull(stuff.get("office"));
+            assertEquals(7, ((List<?>) stuff.get("customers")).size());
+            assertFalse(Hibernate.isInitialized(employee.getOffice()));
+            em.close();
+
+            // nor do per-call overrides
+            em = emf.createEntityManager();
+            employee = em.find(Employee.class, 1370);
+            stuff = mapper.readValue(mapper.writer()
+                    .withAttribute(FeatureOverrides.class, FeatureOverrides.empty().with(Feature.FORCE_LAZY_LOADING))
+                    .writeValueAsString(employee), Map.class);
+            assertNull(stuff.get("office"));
+            assertFalse(Hibernate.isInitialized(employee.getOffice()));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module.Feature;
+import com.fasterxml.jackson.datatype.hibernate5.data.Customer;
+import com.fasterxml.jackson.datatype.hibernate5.data.Order;
+import com.fasterxml.jackson.datatype.hibernate5.data.OrderedCustomer;
+
+public class LazyCollectionIdentifierTest extends BaseTest
+{
+    @Test
+    public void testIdentifiersOfUninitializedCollection() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+            stats.setStatisticsEnabled(true);
+
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 103);
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+            assertFalse(Hibernate.isInitialized(customer.getPayments()));
+
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .enable(Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS));
+            stats.clear();
+            String json = mapper.writeValueAsString(customer);
+
+            // only identifiers are selected: no element entity is loaded
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+            assertFalse(Hibernate.isInitialized(customer.getPayments()));
+            assertEquals(0L, stats.getEntityLoadCount());
+            assertEquals(0L, stats.getCollectionLoadCount());
+
+            Map<?,?> stuff = mapper.readValue(json, Map.class);
+            List<?> orders = (List<?>) stuff.get("orders");
+            assertEquals(customer.getOrders().size(), orders.size());
+            for (Object order : orders) {
+                Map<?,?> stub = (Map<?,?>) order;
+                assertEquals(1, stub.size());
+                assertTrue(stub.get("orderNumber") instanceof Integer);
+            }
+            // embedded identifiers are written as Objects
+            List<?> payments = (List<?>) stuff.get("payments");
+            assertEquals(customer.getPayments().size(), payments.size());
+            Map<?,?> payment = (Map<?,?>) payments.get(0);
+            Map<?,?> paymentId = (Map<?,?>) payment.get("id");
+            assertEquals(Integer.valueOf(103), paymentId.get("customerNumber"));
+            // with the type id of the element entity, as for loaded payments
+            assertEquals("Payment", payment.get("@type"));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    // identifiers are in the order of the loaded collection
+    @Test
+    public void testIdentifiersOfOrderedCollection() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            OrderedCustomer customer = em.find(OrderedCustomer.class, 103);
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .enable(Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS));
+            Map<?,?> stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+
+            List<?> orders = (List<?>) stuff.get("orders");
+            assertTrue(orders.size() > 1);
+            int i = 0;
+            for (Order order : customer.getOrders()) {
+                assertEquals(order.getOrderNumber(), ((Map<?,?>) orders.get(i++)).get("orderNumber"));
+            }
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testIdentifiersLoadedOncePerProperty() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+            stats.setStatisticsEnabled(true);
+
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 103);
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .enable(Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS));
+            stats.clear();
+            mapper.writeValueAsString(customer);
+
+            // "payments" is NON_EMPTY: its identifiers are still only selected once
+            assertEquals(2L, stats.getQueryExecutionCount());
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module.Feature;
+import com.fasterxml.jackson.datatype.hibernate5.data.Customer;
+
+public class LazyCollectionSizeTest extends BaseTest
+{
+    @Test
+    public void testSizeOfUninitializedCollection() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+            stats.setStatisticsEnabled(true);
+
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 103);
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .enable(Feature.SERIALIZE_SIZE_FOR_LAZY_NOT_LOADED_COLLECTIONS));
+            stats.clear();
+            Map<?,?> stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+
+            // only counted: no element loaded
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+            assertFalse(Hibernate.isInitialized(customer.getPayments()));
+            assertEquals(0L, stats.getEntityLoadCount());
+            assertEquals(0L, stats.getCollectionLoadCount());
+            assertEquals(Integer.valueOf(customer.getOrders().size()), stuff.get("orders"));
+            assertEquals(Integer.valueOf(customer.getPayments().size()), stuff.get("payments"));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testDetachedCollection() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 103);
+            em.close();
+
+            // detached collections are counted with the loading session of the call
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module(
+                    emf.unwrap(SessionFactory.class))
+                    .enable(Feature.SERIALIZE_SIZE_FOR_LAZY_NOT_LOADED_COLLECTIONS));
+            mapper.setSerializerProvider(new HibernateSerializerProvider());
+            Map<?,?> stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+            assertTrue(stuff.get("orders") instanceof Integer);
+            assertTrue(((Integer) stuff.get("orders")).intValue() > 0);
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testLegacyPersisterSizeReader() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 103);
+            PersistentCollection orders = (PersistentCollection) customer.getOrders();
+            SessionImplementor session = em.unwrap(SessionImplementor.class);
+            CollectionPersister persister = session.getFactory().getMetamodel()
+                    .collectionPersister(orders.getRole());
+
+            // counting the way versions before 5.2 have to
+            int size = CollectionSizeLoader.LegacyPersisterSizeReader.getSize(persister, orders.getKey(), session);
+            assertEquals(CollectionSizeLoader.load(orders, session), size);
+            assertFalse(Hibernate.isInitialized(orders));
+            assertEquals(customer.getOrders().size(), size);
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+}
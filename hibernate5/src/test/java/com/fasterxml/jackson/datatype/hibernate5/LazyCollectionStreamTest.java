@@ -0,0 +1,238 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.datatype.hibernate5.CollectionElementLoader.ElementStream;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module.Feature;
+import com.fasterxml.jackson.datatype.hibernate5.data.Customer;
+import com.fasterxml.jackson.datatype.hibernate5.data.Order;
+import com.fasterxml.jackson.datatype.hibernate5.data.OrderDetail;
+
+public class LazyCollectionStreamTest extends BaseTest
+{
+    @SuppressWarnings("serial")
+    static class OrderNumberSerializer extends StdSerializer<Order> {
+        public OrderNumberSerializer() {
+            super(Order.class);
+        }
+
+        @Override
+        public void serialize(Order value, JsonGenerator g, SerializerProvider provider) throws IOException {
+            g.writeNumber(value.getOrderNumber());
+        }
+    }
+
+    static abstract class OrderNumbersMixin {
+        @JsonSerialize(contentUsing = OrderNumberSerializer.class)
+        public abstract Set<Order> getOrders();
+    }
+
+    @SuppressWarnings("serial")
+    static class OrderStreamSerializer extends StdSerializer<ElementStream> {
+        public OrderStreamSerializer() {
+            super(ElementStream.class);
+        }
+
+        @Override
+        public void serialize(ElementStream value, JsonGenerator g, SerializerProvider provider) throws IOException {
+            JavaType type = provider.getTypeFactory().constructCollectionType(List.class, Order.class);
+            value.serialize(g, provider, provider.findValueSerializer(type));
+        }
+    }
+
+    @Test
+    public void testStreamedCollection() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 141);
+            Set<Object> managed = _managedEntities(em);
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .enable(Feature.FORCE_LAZY_LOADING)
+                    .enable(Feature.STREAM_LAZY_COLLECTIONS));
+            Map<?,?> stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+
+            // elements (and entities loaded to write them) are evicted, collection stays uninitialized
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+            assertEquals(managed, _managedEntities(em));
+            List<?> orders = (List<?>) stuff.get("orders");
+            assertEquals(customer.getOrders().size(), orders.size());
+            assertTrue(((Map<?,?>) orders.get(0)).containsKey("orderNumber"));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @JsonIgnoreProperties({ "orders", "employee" })
+    static abstract class PaymentsOnlyMixin { }
+
+    static abstract class LimitedDetailsMixin {
+        @JsonLazyLimit(maxElements = 2)
+        public abstract Set<OrderDetail> getOrderDetails();
+    }
+
+    // entities loaded while writing elements are evicted too, not only the elements
+    @Test
+    public void testEvictionOfLoadedEntities() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 141);
+            Set<Object> managed = _managedEntities(em);
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .enable(Feature.FORCE_LAZY_LOADING)
+                    .enable(Feature.STREAM_LAZY_COLLECTIONS))
+                    .addMixIn(Order.class, LimitedDetailsMixin.class);
+            Map<?,?> stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+
+            List<?> orders = (List<?>) stuff.get("orders");
+            assertEquals(2, ((List<?>) ((Map<?,?>) orders.get(0)).get("orderDetails")).size());
+            assertEquals(managed, _managedEntities(em));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    // child session is cleared between chunks, but not while writing a chunk
+    @Test
+    public void testChunks() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 141);
+            Set<Object> managed = _managedEntities(em);
+            PersistentCollection coll = (PersistentCollection) customer.getOrders();
+            Session session = em.unwrap(Session.class);
+            ElementStream stream = new ElementStream(coll, session,
+                    CollectionElementLoader._elementQuery(coll, session), 2);
+            // no module: "orderDetails" of elements are initialized with the child session
+            ObjectMapper mapper = new ObjectMapper().registerModule(new SimpleModule()
+                    .addSerializer(new OrderStreamSerializer()));
+            List<?> orders = mapper.readValue(mapper.writeValueAsString(stream), List.class);
+
+            assertEquals(managed, _managedEntities(em));
+            assertEquals(customer.getOrders().size(), orders.size());
+            for (Object order : orders) {
+                assertFalse(((List<?>) ((Map<?,?>) order).get("orderDetails")).isEmpty());
+            }
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    // emptiness of NON_EMPTY "payments" is known from its size, not from a query of the elements
+    @Test
+    public void testNonEmptyStreamedCollection() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+            stats.setStatisticsEnabled(true);
+
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 141);
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .enable(Feature.FORCE_LAZY_LOADING)
+                    .enable(Feature.STREAM_LAZY_COLLECTIONS))
+                    .addMixIn(Customer.class, PaymentsOnlyMixin.class);
+            stats.clear();
+            Map<?,?> stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+
+            assertEquals(1L, stats.getQueryExecutionCount());
+            assertFalse(Hibernate.isInitialized(customer.getPayments()));
+            assertEquals(customer.getPayments().size(), ((List<?>) stuff.get("payments")).size());
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    // checking emptiness leaves nothing open, in case collection is not written afterwards
+    @Test
+    public void testEmptinessCheckLeavesNothingOpen() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+            stats.setStatisticsEnabled(true);
+
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 141);
+            PersistentCollection coll = (PersistentCollection) customer.getOrders();
+            Session session = em.unwrap(Session.class);
+            ElementStream stream = CollectionElementLoader.stream(coll, session);
+            stats.clear();
+            assertFalse(stream.isEmpty());
+            assertNull(stream._results);
+            assertNull(stream._streamSession);
+            assertEquals(stats.getSessionOpenCount(), stats.getSessionCloseCount());
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testContentSerializer() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 141);
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .enable(Feature.FORCE_LAZY_LOADING)
+                    .enable(Feature.STREAM_LAZY_COLLECTIONS))
+                    .addMixIn(Customer.class, OrderNumbersMixin.class);
+            Map<?,?> stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+
+            // streamed elements are written with the content serializer of the property
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+            List<?> orders = (List<?>) stuff.get("orders");
+            assertEquals(customer.getOrders().size(), orders.size());
+            assertTrue(orders.get(0) instanceof Integer);
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    private static Set<Object> _managedEntities(EntityManager em) {
+        Set<Object> managed = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        managed.addAll(new ArrayList<Object>(em.unwrap(SessionImplementor.class).getPersistenceContext()
+                .getEntitiesByKey().values()));
+        return managed;
+    }
+}
@@ -0,0 +1,118 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidDefinitionException;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module.Feature;
+import com.fasterxml.jackson.datatype.hibernate5.data.Customer;
+import com.fasterxml.jackson.datatype.hibernate5.data.Order;
+import com.fasterxml.jackson.datatype.hibernate5.data.OrderedCustomer;
+import com.fasterxml.jackson.datatype.hibernate5.data.Payment;
+
+public class LazyLimitTest extends BaseTest
+{
+    static abstract class LimitedCustomerMixin {
+        @JsonLazyLimit(maxElements = 2)
+        public abstract Set<Order> getOrders();
+
+        @JsonLazyLimit(maxElements = 1, writeTotal = true)
+        public abstract Set<Payment> getPayments();
+    }
+
+    static abstract class EmptyLimitCustomerMixin {
+        @JsonLazyLimit(maxElements = 0)
+        public abstract Set<Order> getOrders();
+    }
+
+    @Test
+    public void testLimitedLoading() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 141);
+            ObjectMapper mapper = new ObjectMapper()
+                    .registerModule(new Hibernate5Module().enable(Feature.FORCE_LAZY_LOADING))
+                    .addMixIn(Customer.class, LimitedCustomerMixin.class);
+            Map<?,?> stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+
+            // only first elements selected: collections stay uninitialized
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+            assertFalse(Hibernate.isInitialized(customer.getPayments()));
+            assertEquals(2, ((List<?>) stuff.get("orders")).size());
+            Map<?,?> payments = (Map<?,?>) stuff.get("payments");
+            assertEquals(1, ((List<?>) payments.get("elements")).size());
+            assertEquals(Integer.valueOf(customer.getPayments().size()), payments.get("total"));
+
+            // initialized collections are truncated the same way
+            stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+            assertEquals(2, ((List<?>) stuff.get("orders")).size());
+            assertEquals(1, ((List<?>) ((Map<?,?>) stuff.get("payments")).get("elements")).size());
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testLimitedOrderedLoading() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            OrderedCustomer customer = em.find(OrderedCustomer.class, 141);
+            ObjectMapper mapper = new ObjectMapper()
+                    .registerModule(new Hibernate5Module().enable(Feature.FORCE_LAZY_LOADING))
+                    .addMixIn(OrderedCustomer.class, LimitedCustomerMixin.class);
+            Map<?,?> stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+            // query (and so ordering) is only resolved once per role
+            PersistentCollection coll = (PersistentCollection) customer.getOrders();
+            Session session = em.unwrap(Session.class);
+            String hql = CollectionElementLoader._elementQuery(coll, session);
+            assertTrue(hql.endsWith(" order by e.orderNumber desc"));
+            assertSame(hql, CollectionElementLoader._elementQuery(coll, session));
+
+            List<?> orders = (List<?>) stuff.get("orders");
+            assertEquals(2, orders.size());
+            // in the order of the collection (latest orders first)
+            int lastOrderNumber = 0;
+            for (Order order : customer.getOrders()) {
+                lastOrderNumber = Math.max(lastOrderNumber, order.getOrderNumber());
+            }
+            assertEquals(Integer.valueOf(lastOrderNumber), ((Map<?,?>) orders.get(0)).get("orderNumber"));
+            assertTrue(((Integer) ((Map<?,?>) orders.get(0)).get("orderNumber"))
+                    > ((Integer) ((Map<?,?>) orders.get(1)).get("orderNumber")));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testInvalidLimit() throws Exception
+    {
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModule(new Hibernate5Module())
+                .addMixIn(Customer.class, EmptyLimitCustomerMixin.class);
+        try {
+            mapper.writeValueAsString(new Customer());
+            fail("Should not pass");
+        } catch (InvalidDefinitionException e) {
+            verifyException(e, "maxElements (0) must be positive");
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.sql.Blob;
+import java.sql.Clob;
+
+import javax.sql.rowset.serial.SerialBlob;
+
+import org.hibernate.engine.jdbc.BlobProxy;
+import org.hibernate.engine.jdbc.ClobProxy;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module.Feature;
+
+public class LobSerializerTest extends BaseTest
+{
+    @JsonPropertyOrder({ "data", "text" })
+    static class Attachment {
+        public Blob data;
+        public Clob text;
+
+        Attachment(Blob data, Clob text) {
+            this.data = data;
+            this.text = text;
+        }
+    }
+
+    @Test
+    public void testLobContent() throws Exception
+    {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module());
+        Attachment att = new Attachment(BlobProxy.generateProxy(new byte[] { 1, 2, 3 }),
+                ClobProxy.generateProxy("some \"text\""));
+        assertEquals("{\"data\":\"AQID\",\"text\":\"some \\\"text\\\"\"}", mapper.writeValueAsString(att));
+        // also with generators that need the whole content
+        att = new Attachment(BlobProxy.generateProxy(new byte[] { 1, 2, 3 }),
+                ClobProxy.generateProxy("some \"text\""));
+        JsonNode tree = mapper.valueToTree(att);
+        assertEquals("AQID", tree.get("data").asText());
+        assertEquals("some \"text\"", tree.get("text").asText());
+    }
+
+    @Test
+    public void testUnreadableLob() throws Exception
+    {
+        SerialBlob blob = new SerialBlob(new byte[] { 1 });
+        blob.free();
+        Attachment att = new Attachment(blob, null);
+        assertEquals("{\"data\":null,\"text\":null}",
+                new ObjectMapper().registerModule(new Hibernate5Module()).writeValueAsString(att));
+        try {
+            new ObjectMapper().registerModule(new Hibernate5Module().enable(Feature.FAIL_ON_UNREADABLE_LOBS))
+                .writeValueAsString(att);
+            fail("Should not pass");
+        } catch (JsonMappingException e) {
+            assertTrue(e.getMessage().contains("Unable to read Blob content"));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.FetchType;
+import javax.persistence.OneToMany;
+import javax.persistence.Persistence;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.hibernate5.data.Customer;
+import com.fasterxml.jackson.datatype.hibernate5.data.CustomerBase;
+import com.fasterxml.jackson.datatype.hibernate5.data.InheritingCustomer;
+import com.fasterxml.jackson.datatype.hibernate5.data.Order;
+
+public class MappedLazinessTest extends BaseTest
+{
+    // Annotation seen by Jackson, but not by Hibernate
+    static abstract class EagerOrdersMixin {
+        @OneToMany(fetch = FetchType.EAGER)
+        public abstract Set<Order> getOrders();
+    }
+
+    @Test
+    public void testMappedLazinessHasPriority() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 103);
+
+            // without mapping, annotation of the property is used: collection is loaded
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module())
+                    .addMixIn(Customer.class, EagerOrdersMixin.class);
+            mapper.writeValueAsString(customer);
+            assertTrue(Hibernate.isInitialized(customer.getOrders()));
+            em.clear();
+
+            // with mapping, collection is known to be lazy
+            customer = em.find(Customer.class, 103);
+            mapper = new ObjectMapper().registerModule(new Hibernate5Module(emf.unwrap(SessionFactory.class)))
+                    .addMixIn(Customer.class, EagerOrdersMixin.class);
+            Map<?,?> stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+            assertTrue(stuff.containsKey("orders"));
+            assertNull(stuff.get("orders"));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    // collection declared by a mapped superclass, with no metadata of its own
+    @Test
+    public void testMappedSuperclassLaziness() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            InheritingCustomer customer = em.find(InheritingCustomer.class, 103);
+
+            // without mapping, annotation of the property is used: collection is loaded
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module())
+                    .addMixIn(CustomerBase.class, EagerOrdersMixin.class);
+            mapper.writeValueAsString(customer);
+            assertTrue(Hibernate.isInitialized(customer.getOrders()));
+            em.clear();
+
+            // with mapping, collection is known to be lazy from the entity extending the superclass
+            customer = em.find(InheritingCustomer.class, 103);
+            mapper = new ObjectMapper().registerModule(new Hibernate5Module(emf.unwrap(SessionFactory.class)))
+                    .addMixIn(CustomerBase.class, EagerOrdersMixin.class);
+            Map<?,?> stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+            assertFalse(Hibernate.isInitialized(customer.getOrders()));
+            assertTrue(stuff.containsKey("orders"));
+            assertNull(stuff.get("orders"));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module.Feature;
+import com.fasterxml.jackson.datatype.hibernate5.data.Customer;
+
+/**
+ * Tests for native image support: metadata shipped must match the classes and
+ * members accessed reflectively, and proxies must be serialized using only the
+ * members registered there (and no lookup of classes by name).
+ */
+public class NativeImageTest extends BaseTest
+{
+    private final static String CONFIG_DIR = "META-INF/native-image/com.fasterxml.jackson.datatype/jackson-datatype-hibernate5/";
+
+    @Test
+    public void testReflectConfig() throws Exception
+    {
+        JsonNode config = _readConfig("reflect-config.json");
+        assertTrue(config.size() > 0);
+        for (JsonNode entry : config) {
+            Class<?> cls = Class.forName(entry.get("name").asText(), false, getClass().getClassLoader());
+            for (JsonNode field : entry.path("fields")) {
+                assertNotNull(cls.getDeclaredField(field.get("name").asText()));
+            }
+            for (JsonNode method : entry.path("methods")) {
+                List<Class<?>> params = new ArrayList<>();
+                for (JsonNode param : method.get("parameterTypes")) {
+                    params.add(Class.forName(param.asText()));
+                }
+                Class<?>[] paramTypes = params.toArray(new Class<?>[params.size()]);
+                if ("<init>".equals(method.get("name").asText())) {
+                    assertNotNull(cls.getDeclaredConstructor(paramTypes));
+                } else {
+                    assertNotNull(cls.getDeclaredMethod(method.get("name").asText(), paramTypes));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testResourceConfig() throws Exception
+    {
+        JsonNode includes = _readConfig("resource-config.json").path("resources").path("includes");
+        assertTrue(includes.size() > 0);
+        String modulePattern = includes.get(0).get("pattern").asText();
+        String moduleResource = modulePattern.substring(2, modulePattern.length() - 2);
+        assertNotNull(getClass().getClassLoader().getResource(moduleResource));
+    }
+
+    @Test
+    public void testVersion() throws Exception
+    {
+        // read without package metadata, which native images do not have
+        assertEquals(org.hibernate.Version.getVersionString(), Hibernate5Version.getHibernateVersion());
+        assertTrue(Hibernate5Version.isHibernate5_2_Plus());
+        assertTrue(Hibernate5Version.isHibernate5_1_Plus());
+    }
+
+    @Test
+    public void testProxies() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            // attached proxy: identifier name read from its session
+            EntityManager em = emf.createEntityManager();
+            Customer attached = em.getReference(Customer.class, 103);
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .enable(Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS));
+            assertEquals("{\"customerNumber\":103}", mapper.writeValueAsString(attached));
+            assertFalse(Hibernate.isInitialized(attached));
+            em.close();
+
+            // detached proxy: identifier name read from the mapping
+            em = emf.createEntityManager();
+            Customer detached = em.getReference(Customer.class, 112);
+            em.close();
+            mapper = new ObjectMapper().registerModule(new Hibernate5Module(emf.unwrap(SessionFactory.class))
+                    .enable(Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS));
+            assertEquals("{\"customerNumber\":112}", mapper.writeValueAsString(detached));
+        } finally {
+            emf.close();
+        }
+    }
+
+    private JsonNode _readConfig(String name) throws Exception
+    {
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(CONFIG_DIR + name)) {
+            assertNotNull("No " + name, in);
+            return new ObjectMapper().readTree(in);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.Hibernate;
+import org.hibernate.collection.internal.PersistentSet;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.datatype.hibernate5.data.Customer;
+
+public class PersistentCollectionSerializersTest extends BaseTest
+{
+    @Test
+    public void testVariantPerContainerType() throws Exception
+    {
+        HibernateSerializerModifier modifier = new HibernateSerializerModifier(null, 0, null);
+        TypeFactory tf = TypeFactory.defaultInstance();
+        assertEquals(PersistentCollectionSerializers.ListSerializer.class, modifier.modifyCollectionSerializer(null,
+                tf.constructCollectionType(List.class, String.class), null, null).getClass());
+        assertEquals(PersistentCollectionSerializers.SetSerializer.class, modifier.modifyCollectionSerializer(null,
+                tf.constructCollectionType(Set.class, String.class), null, null).getClass());
+        assertEquals(PersistentCollectionSerializers.BagSerializer.class, modifier.modifyCollectionSerializer(null,
+                tf.constructCollectionType(Collection.class, String.class), null, null).getClass());
+        assertEquals(PersistentCollectionSerializers.MapSerializer.class, modifier.modifyMapSerializer(null,
+                tf.constructMapType(Map.class, String.class, String.class), null, null).getClass());
+    }
+
+    @Test
+    public void testUnexpectedCollectionType() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 103);
+            Hibernate.initialize(customer.getPayments());
+
+            // no backing collection for the collection type: collection itself is serialized
+            PersistentCollectionSerializer ser = (PersistentCollectionSerializer) new HibernateSerializerModifier(null, 0, null)
+                    .modifyCollectionSerializer(null, TypeFactory.defaultInstance().constructCollectionType(List.class,
+                            Object.class), null, null);
+            assertSame(customer.getPayments(), ser._initializedContents((PersistentCollection) customer.getPayments()));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testInitializedContents() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 103);
+            Hibernate.initialize(customer.getPayments());
+            PersistentSet payments = (PersistentSet) customer.getPayments();
+
+            PersistentCollectionSerializer ser = (PersistentCollectionSerializer) new HibernateSerializerModifier(null, 0, null)
+                    .modifyCollectionSerializer(null, TypeFactory.defaultInstance().constructCollectionType(Set.class,
+                            Object.class), null, null);
+            Object contents = ser._initializedContents(payments);
+            assertFalse(contents instanceof PersistentSet);
+            assertEquals(payments.size(), ((Set<?>) contents).size());
+
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module());
+            Map<?,?> stuff = mapper.readValue(mapper.writeValueAsString(customer), Map.class);
+            assertEquals(payments.size(), ((List<?>) stuff.get("payments")).size());
+            assertNull(stuff.get("orders"));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+}
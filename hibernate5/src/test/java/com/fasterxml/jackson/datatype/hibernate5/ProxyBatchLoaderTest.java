@@ -0,0 +1,219 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module.Feature;
+import com.fasterxml.jackson.datatype.hibernate5.data.Employee;
+import com.fasterxml.jackson.datatype.hibernate5.data.Office;
+
+public class ProxyBatchLoaderTest extends BaseTest
+{
+    @JsonIgnoreProperties({ "customers" })
+    static abstract class NoCustomersMixin { }
+
+    @JsonIgnoreProperties({ "employees" })
+    static abstract class NoEmployeesMixin { }
+
+    @Test
+    public void testMultiLoadOfProxies() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+            stats.setStatisticsEnabled(true);
+
+            EntityManager em = emf.createEntityManager();
+            List<Employee> employees = em.createQuery("select e from Employee e", Employee.class).getResultList();
+            for (Employee employee : employees) {
+                assertFalse(Hibernate.isInitialized(employee.getOffice()));
+            }
+
+            stats.clear();
+            int count = ProxyBatchLoader.initialize(em.unwrap(Session.class), employees);
+            // 7 distinct offices, loaded with a single query
+            assertEquals(7, count);
+            assertEquals(1L, stats.getPrepareStatementCount());
+            for (Employee employee : employees) {
+                assertTrue(Hibernate.isInitialized(employee.getOffice()));
+                // but collections are left alone
+                assertFalse(Hibernate.isInitialized(employee.getCustomers()));
+            }
+
+            // and no lazy loading is needed to serialize offices
+            ObjectMapper mapper = mapperWithModule(false);
+            stats.clear();
+            List<?> result = mapper.readValue(mapper.writeValueAsString(employees), List.class);
+            assertEquals(0L, stats.getPrepareStatementCount());
+            Map<?,?> office = (Map<?,?>) ((Map<?,?>) result.get(0)).get("office");
+            assertNotNull(office);
+            assertNotNull(office.get("city"));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testBatchLazyLoading() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+            stats.setStatisticsEnabled(true);
+
+            EntityManager em = emf.createEntityManager();
+            List<Employee> employees = em.createQuery("select e from Employee e", Employee.class).getResultList();
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .enable(Feature.FORCE_LAZY_LOADING)
+                    .enable(Feature.BATCH_LAZY_LOADING))
+                    .addMixIn(Employee.class, NoCustomersMixin.class)
+                    .addMixIn(Office.class, NoEmployeesMixin.class);
+            stats.clear();
+            List<?> result = mapper.readValue(mapper.writeValueAsString(employees), List.class);
+            // offices of all employees loaded along with the first one
+            assertEquals(1L, stats.getPrepareStatementCount());
+            for (Object employee : result) {
+                assertNotNull(((Map<?,?>) ((Map<?,?>) employee).get("office")).get("city"));
+            }
+            em.close();
+
+            // instead of one by one
+            em = emf.createEntityManager();
+            employees = em.createQuery("select e from Employee e", Employee.class).getResultList();
+            mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .enable(Feature.FORCE_LAZY_LOADING))
+                    .addMixIn(Employee.class, NoCustomersMixin.class)
+                    .addMixIn(Office.class, NoEmployeesMixin.class);
+            stats.clear();
+            mapper.writeValueAsString(employees);
+            assertEquals(7L, stats.getPrepareStatementCount());
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    // as done without multi-id loading (before Hibernate 5.1)
+    @Test
+    public void testInitializeEach() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            List<Employee> employees = em.createQuery("select e from Employee e", Employee.class).getResultList();
+            List<LazyInitializer> inits = new ArrayList<>();
+            for (Employee employee : employees) {
+                LazyInitializer init = ((HibernateProxy) employee.getOffice()).getHibernateLazyInitializer();
+                if (!inits.contains(init)) {
+                    inits.add(init);
+                }
+            }
+            List<Object> next = new ArrayList<>();
+            int count = new ProxyBatchLoader(em.unwrap(SessionImplementor.class))._initializeEach(inits, next);
+            assertEquals(7, count);
+            assertEquals(7, next.size());
+            for (Employee employee : employees) {
+                assertTrue(Hibernate.isInitialized(employee.getOffice()));
+            }
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testElementsScannedOncePerProperty() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            final int[] scans = new int[1];
+            List<Employee> employees = new ArrayList<Employee>(em.createQuery("select e from Employee e",
+                    Employee.class).getResultList()) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public Iterator<Employee> iterator() {
+                    ++scans[0];
+                    return super.iterator();
+                }
+            };
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                    .enable(Feature.FORCE_LAZY_LOADING)
+                    .enable(Feature.BATCH_LAZY_LOADING));
+            SerializerProvider provider = mapper.getSerializerProviderInstance();
+            BeanProperty office = _findProperty(provider.findValueSerializer(Employee.class), "office");
+            LazyInitializer first = ((HibernateProxy) employees.get(0).getOffice()).getHibernateLazyInitializer();
+            LazyInitializer last = ((HibernateProxy) employees.get(employees.size() - 1).getOffice())
+                    .getHibernateLazyInitializer();
+            assertNotSame(first, last);
+
+            ProxyBatchLoader.setElements(provider, employees);
+            assertEquals(7, ProxyBatchLoader.initialize(first, provider, office));
+            assertEquals(1, scans[0]);
+            // already batched for these elements: not scanned again
+            assertEquals(0, ProxyBatchLoader.initialize(last, provider, office));
+            assertEquals(1, scans[0]);
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    public void testProxyOfOtherSessionNotBatched() throws Exception
+    {
+        // like proxies of entities loaded by a StatelessSession
+        SharedSessionContractImplementor session = Mockito.mock(SharedSessionContractImplementor.class);
+        Mockito.when(session.isOpen()).thenReturn(true);
+        LazyInitializer init = Mockito.mock(LazyInitializer.class);
+        Mockito.when(init.isUninitialized()).thenReturn(true);
+        Mockito.when(init.getEntityName()).thenReturn(Office.class.getName());
+        Mockito.when(init.getSession()).thenReturn(session);
+
+        ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module()
+                .enable(Feature.FORCE_LAZY_LOADING)
+                .enable(Feature.BATCH_LAZY_LOADING));
+        SerializerProvider provider = mapper.getSerializerProviderInstance();
+        BeanProperty office = _findProperty(provider.findValueSerializer(Employee.class), "office");
+        ProxyBatchLoader.setElements(provider, Collections.singletonList(new Employee()));
+        // left for the caller to initialize, rather than failing
+        assertEquals(0, ProxyBatchLoader.initialize(init, provider, office));
+    }
+
+    private static BeanProperty _findProperty(JsonSerializer<?> ser, String name)
+    {
+        for (Iterator<PropertyWriter> it = ser.properties(); it.hasNext(); ) {
+            PropertyWriter prop = it.next();
+            if (name.equals(prop.getName())) {
+                return prop;
+            }
+        }
+        throw new IllegalArgumentException("No property '"+name+"'");
+    }
+}
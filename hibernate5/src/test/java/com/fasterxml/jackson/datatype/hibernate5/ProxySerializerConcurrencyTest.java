@@ -0,0 +1,173 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.Hibernate;
+import org.junit.Test;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.datatype.hibernate5.data.Customer;
+import com.fasterxml.jackson.datatype.hibernate5.data.Office;
+import com.fasterxml.jackson.datatype.hibernate5.data.Product;
+
+public class ProxySerializerConcurrencyTest extends BaseTest
+{
+    // Serializers for proxied values resolved concurrently by one instance must all be kept
+    @Test
+    public void testConcurrentLookups() throws Exception
+    {
+        // no more than the entries kept by PropertySerializerMap
+        final Object[] values = { "a", 1, 2L, 3.0, 4.0f, (short) 5, (byte) 6, Boolean.TRUE };
+        final ObjectMapper mapper = new ObjectMapper();
+        ExecutorService executor = Executors.newFixedThreadPool(values.length);
+        try {
+            for (int round = 0; round < 200; ++round) {
+                final HibernateProxySerializer ser = new HibernateProxySerializer(false, false, null,
+                        new EntityIdentifierRegistry(null, null), null);
+                final CyclicBarrier barrier = new CyclicBarrier(values.length);
+                List<Future<?>> results = new ArrayList<>();
+                for (final Object value : values) {
+                    results.add(executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            barrier.await();
+                            ser.findSerializer(mapper.getSerializerProviderInstance(), value);
+                            return null;
+                        }
+                    }));
+                }
+                for (Future<?> result : results) {
+                    result.get();
+                }
+                for (Object value : values) {
+                    assertNotNull("Lost serializer for "+value.getClass()+" in round "+round,
+                            ser._dynamicSerializers.serializerFor(value.getClass()));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSerializerPerEntity() throws Exception
+    {
+        HibernateSerializers serializers = new HibernateSerializers(0);
+        TypeFactory tf = TypeFactory.defaultInstance();
+        HibernateProxySerializer ser = (HibernateProxySerializer) serializers.findSerializer(null,
+                tf.constructType(CustomerProxyStub.class), null);
+        assertEquals(Customer.class, ser._entityClass);
+        // shared by all proxy classes of the entity
+        assertSame(ser, serializers.findSerializer(null, tf.constructType(OtherCustomerProxyStub.class), null));
+
+        // ... and each mapper uses one instance of its own for them
+        ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module());
+        JsonSerializer<?> used = mapper.getSerializerProviderInstance()
+                .findValueSerializer(CustomerProxyStub.class, null);
+        assertNotSame(ser, used);
+        assertSame(used, mapper.getSerializerProviderInstance()
+                .findValueSerializer(OtherCustomerProxyStub.class, null));
+        assertNotSame(used, mapper.copy().getSerializerProviderInstance()
+                .findValueSerializer(CustomerProxyStub.class, null));
+    }
+
+    @Test
+    public void testSerializerPerProperty() throws Exception
+    {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module());
+        BeanProperty property = new BeanProperty.Bogus();
+        JsonSerializer<?> ser = mapper.getSerializerProviderInstance()
+                .findValueSerializer(CustomerProxyStub.class, property);
+        assertSame(property, ((HibernateProxySerializer) ser)._property);
+        // same instance for all proxy classes of the entity
+        assertSame(ser, mapper.getSerializerProviderInstance()
+                .findValueSerializer(OtherCustomerProxyStub.class, property));
+        assertNotSame(ser, mapper.getSerializerProviderInstance()
+                .findValueSerializer(CustomerProxyStub.class, new BeanProperty.Bogus()));
+    }
+
+    @JsonIgnoreProperties({ "customerName" })
+    static abstract class NoNameMixin { }
+
+    // Serializers (and serializers they resolve) are not shared by copies of a mapper
+    @Test
+    public void testCopiedMapper() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            EntityManager em = emf.createEntityManager();
+            Customer proxy = em.getReference(Customer.class, 103);
+            Hibernate.initialize(proxy);
+            em.close();
+
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module());
+            ObjectMapper copy = mapper.copy().addMixIn(Customer.class, NoNameMixin.class);
+            assertFalse(copy.writeValueAsString(proxy).contains("customerName"));
+            assertTrue(mapper.writeValueAsString(proxy).contains("customerName"));
+        } finally {
+            emf.close();
+        }
+    }
+
+
+    @Test
+    public void testConcurrentSerialization() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            EntityManager em = emf.createEntityManager();
+            // proxies of different entities, written concurrently through one mapper
+            final List<Object> proxies = new ArrayList<>();
+            proxies.add(em.getReference(Customer.class, 103));
+            proxies.add(em.getReference(Office.class, "1"));
+            proxies.add(em.getReference(Product.class, "S10_1678"));
+            for (Object proxy : proxies) {
+                Hibernate.initialize(proxy);
+            }
+            em.close();
+
+            final ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module());
+            final List<String> expected = new ArrayList<>();
+            for (Object proxy : proxies) {
+                expected.add(new ObjectMapper().registerModule(new Hibernate5Module()).writeValueAsString(proxy));
+            }
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 64; ++i) {
+                final int index = i % proxies.size();
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        return expected.get(index).equals(mapper.writeValueAsString(proxies.get(index)));
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+            emf.close();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    static abstract class CustomerProxyStub extends Customer implements org.hibernate.proxy.HibernateProxy { }
+
+    @SuppressWarnings("serial")
+    static abstract class OtherCustomerProxyStub extends Customer implements org.hibernate.proxy.HibernateProxy { }
+}
@@ -74,6 +74,7 @@ public class ReplacePersistentCollectionTest extends BaseTest
 		Assert.assertFalse(Hibernate.isInitialized(customer.getPayments()));
 		String json = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(customer);
 		Assert.assertFalse(json.contains("org.hibernate.collection"));
+		Assert.assertTrue(json.contains("\"java.util.HashSet\""));
 		// should force loading...
 		Set<Payment> payments = customer.getPayments();
 
@@ -0,0 +1,49 @@
+package com.fasterxml.jackson.datatype.hibernate5;
+
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.DefaultSerializerProvider;
+import com.fasterxml.jackson.datatype.hibernate5.data.Customer;
+
+public class SerializerWarmUpTest extends BaseTest
+{
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testWarmUp() throws Exception
+    {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("persistenceUnit");
+        try {
+            SessionFactoryImplementor sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+            ObjectMapper mapper = new ObjectMapper().registerModule(new Hibernate5Module());
+            DefaultSerializerProvider provider = (DefaultSerializerProvider) mapper.getSerializerProvider();
+            assertEquals(0, provider.cachedSerializersCount());
+
+            SerializerWarmUp.Result result = Hibernate5Module.warmUp(mapper, sessionFactory);
+            assertEquals(0, result.getFailureCount());
+            assertEquals(sessionFactory.getEntityPersisters().size(), result.getEntityCount());
+            assertTrue(result.getProxyCount() > 0);
+            assertEquals(sessionFactory.getCollectionPersisters().size(), result.getCollectionCount());
+            assertTrue(provider.cachedSerializersCount() > 0);
+
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, 103);
+            int cached = provider.cachedSerializersCount();
+            String json = mapper.writeValueAsString(customer);
+            // nothing left to construct by the first serialization call
+            assertEquals(cached, provider.cachedSerializersCount());
+            Map<?,?> stuff = mapper.readValue(json, Map.class);
+            assertEquals(Integer.valueOf(103), stuff.get("customerNumber"));
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.fasterxml.jackson.datatype.hibernate5.data;
+
+/**
+ * Entity without annotations: mapped (to the table of {@link Office}) in
+ * <code>META-INF/orm-branch.xml</code>.
+ */
+@SuppressWarnings("serial")
+public class Branch implements java.io.Serializable
+{
+    private String officeCode;
+    private String city;
+    private BranchAddress address;
+
+    public Branch() { }
+
+    public String getOfficeCode() {
+        return this.officeCode;
+    }
+
+    public void setOfficeCode(String officeCode) {
+        this.officeCode = officeCode;
+    }
+
+    public String getCity() {
+        return this.city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    public BranchAddress getAddress() {
+        return this.address;
+    }
+
+    public void setAddress(BranchAddress address) {
+        this.address = address;
+    }
+}
@@ -0,0 +1,29 @@
+package com.fasterxml.jackson.datatype.hibernate5.data;
+
+/**
+ * Embeddable without annotations, mapped in <code>META-INF/orm-branch.xml</code>.
+ */
+@SuppressWarnings("serial")
+public class BranchAddress implements java.io.Serializable
+{
+    private String addressLine1;
+    private String country;
+
+    public BranchAddress() { }
+
+    public String getAddressLine1() {
+        return this.addressLine1;
+    }
+
+    public void setAddressLine1(String addressLine1) {
+        this.addressLine1 = addressLine1;
+    }
+
+    public String getCountry() {
+        return this.country;
+    }
+
+    public void setCountry(String country) {
+        this.country = country;
+    }
+}
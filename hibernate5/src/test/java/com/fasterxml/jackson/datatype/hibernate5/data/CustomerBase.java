@@ -0,0 +1,37 @@
+package com.fasterxml.jackson.datatype.hibernate5.data;
+
+import java.util.HashSet;
+import java.util.Set;
+import javax.persistence.*;
+
+/**
+ * Mapped superclass declaring a lazy collection, for entities mapped to the
+ * table of {@link Customer}.
+ */
+@SuppressWarnings("serial")
+@MappedSuperclass
+public abstract class CustomerBase implements java.io.Serializable
+{
+    private Integer customerNumber;
+    private Set<Order> orders = new HashSet<Order>(0);
+
+    @Id
+    @Column(name="customerNumber", unique=true, nullable=false)
+    public Integer getCustomerNumber() {
+        return this.customerNumber;
+    }
+
+    public void setCustomerNumber(Integer customerNumber) {
+        this.customerNumber = customerNumber;
+    }
+
+    @OneToMany(fetch=FetchType.LAZY)
+    @JoinColumn(name="customerNumber", insertable=false, updatable=false)
+    public Set<Order> getOrders() {
+        return this.orders;
+    }
+
+    public void setOrders(Set<Order> orders) {
+        this.orders = orders;
+    }
+}
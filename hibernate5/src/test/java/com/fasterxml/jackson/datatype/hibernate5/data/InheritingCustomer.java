@@ -0,0 +1,26 @@
+package com.fasterxml.jackson.datatype.hibernate5.data;
+
+import javax.persistence.*;
+
+/**
+ * Entity mapped to the table of {@link Customer}, with orders declared by its
+ * mapped superclass.
+ */
+@SuppressWarnings("serial")
+@Entity
+@Table(name="Customer", catalog="classicmodels")
+public class InheritingCustomer extends CustomerBase
+{
+    private String customerName;
+
+    public InheritingCustomer() { }
+
+    @Column(name="customerName", nullable=false, length=50)
+    public String getCustomerName() {
+        return this.customerName;
+    }
+
+    public void setCustomerName(String customerName) {
+        this.customerName = customerName;
+    }
+}
@@ -0,0 +1,51 @@
+package com.fasterxml.jackson.datatype.hibernate5.data;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import javax.persistence.*;
+
+/**
+ * Entity mapped to the table of {@link Customer}, with orders as an ordered
+ * collection (latest orders first).
+ */
+@SuppressWarnings("serial")
+@Entity
+@Table(name="Customer", catalog="classicmodels")
+public class OrderedCustomer implements java.io.Serializable
+{
+    private Integer customerNumber;
+    private String customerName;
+    private Set<Order> orders = new LinkedHashSet<Order>(0);
+
+    public OrderedCustomer() { }
+
+    @Id
+    @Column(name="customerNumber", unique=true, nullable=false)
+    public Integer getCustomerNumber() {
+        return this.customerNumber;
+    }
+
+    public void setCustomerNumber(Integer customerNumber) {
+        this.customerNumber = customerNumber;
+    }
+
+    @Column(name="customerName", nullable=false, length=50)
+    public String getCustomerName() {
+        return this.customerName;
+    }
+
+    public void setCustomerName(String customerName) {
+        this.customerName = customerName;
+    }
+
+    @OneToMany(fetch=FetchType.LAZY)
+    @JoinColumn(name="customerNumber", insertable=false, updatable=false)
+    @OrderBy("orderNumber desc")
+    public Set<Order> getOrders() {
+        return this.orders;
+    }
+
+    public void setOrders(Set<Order> orders) {
+        this.orders = orders;
+    }
+}